@@ -0,0 +1,258 @@
+package bench;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import model.IImage;
+import model.ImageExecutor;
+
+/**
+ * Runs the image benchmarks and reports how long each operation takes. Each benchmark is warmed
+ * up for a fixed time so the JIT compiler has finished with it, then timed over several
+ * iterations, each of which repeats the operation until a minimum time has passed. The mean and
+ * standard deviation of the time per operation are reported for each benchmark and image size.
+ *
+ * <p>Results can be written to a CSV file, and a previous CSV file can be given as a baseline to
+ * compare against, which makes it possible to measure the effect of a change between commits.
+ *
+ * <pre>
+ * java -Xmx8g -cp out bench.BenchmarkRunner [-sizes thumbnail,vga,hd,12mp,50mp]
+ *     [-filter regex] [-warmup seconds] [-iterations count] [-time seconds]
+ *     [-csv results.csv] [-baseline previous.csv]
+ * </pre>
+ */
+public final class BenchmarkRunner {
+  private static final String CSV_HEADER = "benchmark,size,width,height,ms_per_op,error,mpx_per_s";
+
+  // Results are added to this, so the JIT cannot remove the operations being timed
+  private static volatile int sink;
+
+  private final List<ImageSize> sizes;
+  private final Pattern filter;
+  private final double warmupSeconds;
+  private final int iterations;
+  private final double iterationSeconds;
+
+  /**
+   * Constructs a runner with the given settings.
+   *
+   * @param sizes            the image sizes to run every benchmark on.
+   * @param filter           only benchmarks whose names contain a match are run.
+   * @param warmupSeconds    how long to run each benchmark before timing it.
+   * @param iterations       how many timed iterations to run.
+   * @param iterationSeconds the minimum length of each timed iteration.
+   */
+  public BenchmarkRunner(List<ImageSize> sizes, Pattern filter, double warmupSeconds,
+                         int iterations, double iterationSeconds) {
+    if (iterations < 1) {
+      throw new IllegalArgumentException("There must be at least one iteration");
+    }
+    this.sizes = new ArrayList<>(sizes);
+    this.filter = filter;
+    this.warmupSeconds = warmupSeconds;
+    this.iterations = iterations;
+    this.iterationSeconds = iterationSeconds;
+  }
+
+  /**
+   * Represents the timing of one benchmark on one image size.
+   */
+  public static class Result {
+    private final String benchmark;
+    private final ImageSize size;
+    private final double millisPerOp;
+    private final double error;
+
+    Result(String benchmark, ImageSize size, double millisPerOp, double error) {
+      this.benchmark = benchmark;
+      this.size = size;
+      this.millisPerOp = millisPerOp;
+      this.error = error;
+    }
+
+    String getKey() {
+      return this.benchmark + "," + this.size.getName();
+    }
+
+    double getMegapixelsPerSecond() {
+      return this.size.getPixels() / 1e6 / (this.millisPerOp / 1000);
+    }
+
+    String toCsv() {
+      return String.format(Locale.ROOT, "%s,%s,%d,%d,%.4f,%.4f,%.3f", this.benchmark,
+              this.size.getName(), this.size.getWidth(), this.size.getHeight(), this.millisPerOp,
+              this.error, this.getMegapixelsPerSecond());
+    }
+  }
+
+  /**
+   * Runs every selected benchmark on every selected size, printing each result as it finishes.
+   *
+   * @param out      where to print results.
+   * @param baseline previous results to compare against, by benchmark and size.
+   * @return the results.
+   * @throws Exception if a benchmark fails.
+   */
+  public List<Result> run(PrintStream out, Map<String, Double> baseline) throws Exception {
+    List<Result> results = new ArrayList<>();
+    Path directory = Files.createTempDirectory("imageprocessing-bench");
+
+    try {
+      out.printf(Locale.ROOT, "%-24s %-10s %14s %12s %10s%s%n", "benchmark", "size", "ms/op",
+              "error", "Mpx/s", baseline.isEmpty() ? "" : "   vs baseline");
+
+      for (ImageSize size : this.sizes) {
+        IImage image = size.createImage("input");
+
+        for (ImageBenchmarks.Benchmark benchmark : ImageBenchmarks.all()) {
+          if (!this.filter.matcher(benchmark.getName()).find()) {
+            continue;
+          }
+
+          Result result = this.measure(benchmark.getName(), size,
+                  benchmark.setUp(image, directory));
+          results.add(result);
+
+          Double previous = baseline.get(result.getKey());
+          out.printf(Locale.ROOT, "%-24s %-10s %14.3f %12.3f %10.2f%s%n", benchmark.getName(),
+                  size.getName(), result.millisPerOp, result.error,
+                  result.getMegapixelsPerSecond(), previous == null ? ""
+                          : String.format(Locale.ROOT, "   %.2fx", previous / result.millisPerOp));
+        }
+      }
+    } finally {
+      try (Stream<Path> files = Files.walk(directory)) {
+        files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+
+    return results;
+  }
+
+  private Result measure(String name, ImageSize size, Callable<Object> operation)
+          throws Exception {
+    long warmupEnd = System.nanoTime() + (long) (this.warmupSeconds * 1e9);
+    do {
+      consume(operation.call());
+    } while (System.nanoTime() < warmupEnd);
+
+    double[] millis = new double[this.iterations];
+    for (int i = 0; i < this.iterations; ++i) {
+      long start = System.nanoTime();
+      long end = start + (long) (this.iterationSeconds * 1e9);
+      long now;
+      int ops = 0;
+      do {
+        consume(operation.call());
+        ++ops;
+        now = System.nanoTime();
+      } while (now < end);
+      millis[i] = (now - start) / 1e6 / ops;
+    }
+
+    double mean = Arrays.stream(millis).average().orElse(0);
+    double variance = Arrays.stream(millis).map(m -> (m - mean) * (m - mean)).sum()
+            / Math.max(1, this.iterations - 1);
+    return new Result(name, size, mean, Math.sqrt(variance));
+  }
+
+  private static void consume(Object result) {
+    sink += System.identityHashCode(result);
+  }
+
+  private static Map<String, Double> readBaseline(Path file) throws IOException {
+    Map<String, Double> baseline = new HashMap<>();
+    for (String line : Files.readAllLines(file)) {
+      if (line.startsWith("#") || line.equals(CSV_HEADER) || line.isBlank()) {
+        continue;
+      }
+      String[] fields = line.split(",");
+      baseline.put(fields[0] + "," + fields[1], Double.parseDouble(fields[4]));
+    }
+    return baseline;
+  }
+
+  /**
+   * Runs the benchmarks with the settings given on the command line.
+   *
+   * @param args the command line arguments, as described in the class documentation.
+   * @throws Exception if a benchmark fails.
+   */
+  public static void main(String[] args) throws Exception {
+    List<ImageSize> sizes = Arrays.asList(ImageSize.THUMBNAIL, ImageSize.VGA, ImageSize.HD,
+            ImageSize.MP12);
+    Pattern filter = Pattern.compile("");
+    double warmup = 1;
+    int iterations = 5;
+    double time = 1;
+    Path csv = null;
+    Map<String, Double> baseline = new HashMap<>();
+
+    for (int i = 0; i < args.length; i += 2) {
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Missing value for " + args[i]);
+      }
+      String value = args[i + 1];
+
+      switch (args[i]) {
+        case "-sizes":
+          sizes = new ArrayList<>();
+          for (String name : value.split(",")) {
+            sizes.add(ImageSize.fromName(name));
+          }
+          break;
+        case "-filter":
+          filter = Pattern.compile(value);
+          break;
+        case "-warmup":
+          warmup = Double.parseDouble(value);
+          break;
+        case "-iterations":
+          iterations = Integer.parseInt(value);
+          break;
+        case "-time":
+          time = Double.parseDouble(value);
+          break;
+        case "-csv":
+          csv = Paths.get(value);
+          break;
+        case "-baseline":
+          baseline = readBaseline(Paths.get(value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+    }
+
+    String environment = String.format(Locale.ROOT, "# java %s, %d processors, parallelism %d",
+            System.getProperty("java.version"), Runtime.getRuntime().availableProcessors(),
+            ImageExecutor.getDefault().getParallelism());
+    System.out.println(environment);
+
+    List<Result> results = new BenchmarkRunner(sizes, filter, warmup, iterations, time)
+            .run(System.out, baseline);
+
+    if (csv != null) {
+      List<String> lines = new ArrayList<>();
+      lines.add(environment);
+      lines.add(CSV_HEADER);
+      for (Result result : results) {
+        lines.add(result.toCsv());
+      }
+      Files.write(csv, lines);
+    }
+  }
+}
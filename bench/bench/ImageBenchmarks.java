@@ -0,0 +1,178 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.imageio.ImageIO;
+
+import control.ImageControllerImpl;
+import control.ImageUtil;
+import control.NetpbmEncoding;
+import model.Album;
+import model.Histogram;
+import model.IAlbum;
+import model.IImage;
+import model.command.ResultCache;
+import view.ImageTextView;
+
+/**
+ * The benchmarks run by {@code BenchmarkRunner}: reading and writing images, every image command
+ * run through {@code ImageControllerImpl}, building a {@code Histogram}, and converting images for
+ * display.
+ */
+public final class ImageBenchmarks {
+  private ImageBenchmarks() {
+    // Static utility class
+  }
+
+  /**
+   * Represents a single benchmark, which can be run on an image of any size.
+   */
+  public interface Benchmark {
+    /**
+     * Returns the name of this benchmark, as used for filtering and in results.
+     *
+     * @return the name of the benchmark.
+     */
+    String getName();
+
+    /**
+     * Prepares to run this benchmark on the given image, outside of the timed section.
+     *
+     * @param image     the image to run the benchmark on, named "input".
+     * @param directory a temporary directory for any files the benchmark reads or writes.
+     * @return the operation to time, which returns its result so it is not optimized away.
+     * @throws IOException if the benchmark's input files cannot be written.
+     */
+    Callable<Object> setUp(IImage image, Path directory) throws IOException;
+  }
+
+  /**
+   * Returns every benchmark, in the order they should be run.
+   *
+   * @return the list of benchmarks.
+   */
+  public static List<Benchmark> all() {
+    List<Benchmark> benchmarks = new ArrayList<>();
+
+    benchmarks.add(create("read-ppm", (image, directory) -> {
+      String filename = directory.resolve("input.ppm").toString();
+      ImageUtil.savePPM(filename, image);
+      return () -> ImageUtil.readPPM(filename, "read");
+    }));
+    benchmarks.add(create("save-ppm", (image, directory) -> {
+      String filename = directory.resolve("output.ppm").toString();
+      return () -> {
+        ImageUtil.savePPM(filename, image);
+        return filename;
+      };
+    }));
+    benchmarks.add(create("load-png", (image, directory) -> {
+      File file = directory.resolve("input.png").toFile();
+      ImageIO.write(ImageUtil.imageToBufferedImage(image), "png", file);
+      return () -> ImageUtil.loadImage(file.getPath(), "loaded");
+    }));
+    benchmarks.add(create("load-ppm", (image, directory) -> {
+      String filename = directory.resolve("input.ppm").toString();
+      ImageUtil.savePPM(filename, image);
+      return () -> ImageUtil.loadImage(filename, "loaded");
+    }));
+    benchmarks.add(create("load-ppm-binary", (image, directory) -> {
+      String filename = directory.resolve("input-binary.ppm").toString();
+      ImageUtil.savePPM(filename, image, NetpbmEncoding.BINARY);
+      return () -> ImageUtil.loadImage(filename, "loaded");
+    }));
+    benchmarks.add(create("map-ppm-binary", (image, directory) -> {
+      String filename = directory.resolve("input-mapped.ppm").toString();
+      ImageUtil.savePPM(filename, image, NetpbmEncoding.BINARY);
+      return () -> ImageUtil.mapImage(filename, "mapped");
+    }));
+    benchmarks.add(create("save-ppm-binary", (image, directory) -> {
+      String filename = directory.resolve("output-binary.ppm").toString();
+      return () -> {
+        ImageUtil.savePPM(filename, image, NetpbmEncoding.BINARY);
+        return filename;
+      };
+    }));
+    benchmarks.add(create("save-image-png", (image, directory) -> {
+      String filename = directory.resolve("output.png").toString();
+      return () -> {
+        ImageUtil.saveImage(filename, image);
+        return filename;
+      };
+    }));
+    benchmarks.add(create("save-image-ppm", (image, directory) -> {
+      String filename = directory.resolve("output.ppm").toString();
+      return () -> {
+        ImageUtil.saveImage(filename, image);
+        return filename;
+      };
+    }));
+
+    String[] commands = {"blur", "sharpen", "sepia", "luma", "vertical-flip", "horizontal-flip",
+        "brighten 10"};
+    for (String command : commands) {
+      String name = command.split(" ")[0];
+      benchmarks.add(create("command-" + name, (image, directory) -> {
+        IAlbum album = new Album();
+        album.addImage(image);
+        String script = command + " input output";
+        // Otherwise every iteration after the first would only time a cache hit
+        ResultCache.setDefault(new ResultCache(0));
+
+        return () -> {
+          new ImageControllerImpl(album, new ImageTextView(new StringBuilder()),
+                  new StringReader(script)).run();
+          return album.getImage("output");
+        };
+      }));
+    }
+
+    benchmarks.add(create("command-blur-cached", (image, directory) -> {
+      IAlbum album = new Album();
+      album.addImage(image);
+      ResultCache.setDefault(new ResultCache(Long.MAX_VALUE));
+      new ImageControllerImpl(album, new ImageTextView(new StringBuilder()),
+              new StringReader("blur input blurred")).run();
+
+      // Finds the earlier result, and copies it under the new name
+      return () -> {
+        new ImageControllerImpl(album, new ImageTextView(new StringBuilder()),
+                new StringReader("blur input output")).run();
+        return album.getImage("output");
+      };
+    }));
+
+    benchmarks.add(create("histogram", (image, directory) -> () -> new Histogram(image)));
+    benchmarks.add(create("to-buffered-image",
+        (image, directory) -> () -> ImageUtil.imageToBufferedImage(image)));
+
+    return benchmarks;
+  }
+
+  /**
+   * The part of a benchmark which prepares its operation.
+   */
+  private interface SetUp {
+    Callable<Object> setUp(IImage image, Path directory) throws IOException;
+  }
+
+  private static Benchmark create(String name, SetUp setUp) {
+    return new Benchmark() {
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public Callable<Object> setUp(IImage image, Path directory) throws IOException {
+        return setUp.setUp(image, directory);
+      }
+    };
+  }
+}
@@ -0,0 +1,114 @@
+package bench;
+
+import model.IImage;
+import model.ImageBuilder;
+
+/**
+ * Represents the sizes of synthetic images that benchmarks are run on, from a thumbnail up to a
+ * 50 megapixel photo.
+ */
+public enum ImageSize {
+  THUMBNAIL("thumbnail", 160, 120),
+  VGA("vga", 640, 480),
+  HD("hd", 1920, 1080),
+  MP12("12mp", 4000, 3000),
+  MP50("50mp", 8660, 5774);
+
+  private final String name;
+  private final int width;
+  private final int height;
+
+  ImageSize(String name, int width, int height) {
+    this.name = name;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Returns the size with the given name, as used on the command line.
+   *
+   * @param name the name of the size.
+   * @return the size with that name.
+   * @throws IllegalArgumentException if there is no size with that name.
+   */
+  public static ImageSize fromName(String name) {
+    for (ImageSize size : values()) {
+      if (size.name.equals(name)) {
+        return size;
+      }
+    }
+    throw new IllegalArgumentException("Unknown image size: " + name);
+  }
+
+  /**
+   * Returns the name of this size, as used on the command line and in results.
+   *
+   * @return the name of this size.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Returns the width of images of this size.
+   *
+   * @return the width in pixels.
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Returns the height of images of this size.
+   *
+   * @return the height in pixels.
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the number of pixels in images of this size.
+   *
+   * @return the width times the height.
+   */
+  public long getPixels() {
+    return (long) this.width * this.height;
+  }
+
+  /**
+   * Creates a synthetic image of this size. The image is a smooth gradient with noise added, so
+   * that it has detail everywhere like a photo, and is the same every time it is created so that
+   * results can be compared between runs.
+   *
+   * @param imageName the name of the image to create.
+   * @return the synthetic image.
+   */
+  public IImage createImage(String imageName) {
+    ImageBuilder builder = new ImageBuilder(this.width, this.height);
+    int[] row = new int[this.width];
+    int seed = 0x9E3779B9;
+
+    for (int y = 0; y < this.height; ++y) {
+      for (int x = 0; x < this.width; ++x) {
+        // xorshift, for noise which does not depend on the JDK's Random
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        int noise = (seed & 0x3F) - 32;
+
+        int red = clamp(255 * x / this.width + noise);
+        int green = clamp(255 * y / this.height + noise);
+        int blue = clamp(255 - 255 * (x + y) / (this.width + this.height) + noise);
+        row[x] = (red << 16) | (green << 8) | blue;
+      }
+      builder.writeRow(y, row);
+    }
+
+    return builder.build(imageName);
+  }
+
+  private static int clamp(int value) {
+    return Math.max(0, Math.min(255, value));
+  }
+}
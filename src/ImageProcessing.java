@@ -1,12 +1,18 @@
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
+import control.BatchController;
 import control.ImageController;
 import control.ImageControllerImpl;
 import control.ImageGuiController;
-import model.Album;
+import model.ConcurrentAlbum;
 import model.IAlbum;
+import model.SpillingAlbum;
+import model.command.CommandScheduler;
 import view.ImageGuiView;
 import view.ImageTextView;
 import view.ImageView;
@@ -22,7 +28,7 @@ public class ImageProcessing {
    * @param args Command-line arguments.
    */
   public static void main(String[] args) {
-    IAlbum album = new Album();
+    IAlbum album = createAlbum();
 
     if (args.length == 0) {
       ImageGuiView view = new SwingGuiView(album);
@@ -33,18 +39,111 @@ public class ImageProcessing {
               album, view, new InputStreamReader(System.in));
       controller.run();
     } else if (args[0].equals("-file")) {
-      ImageView view = new ImageTextView(System.out);
-      Readable input;
+      runFile(args, album, new ImageTextView(System.out));
+    } else if (args[0].equals("-batch")) {
+      runBatch(args, new ImageTextView(System.out));
+    }
+  }
+
+  /**
+   * Creates the album for the program, which spills images to disk if a budget in megabytes is
+   * given by the {@code imageprocessing.albumMemory} system property, and can otherwise be shared
+   * by commands running in parallel.
+   *
+   * @return the album.
+   */
+  private static IAlbum createAlbum() {
+    Long budget = Long.getLong("imageprocessing.albumMemory");
+    return budget == null ? new ConcurrentAlbum() : new SpillingAlbum(budget * 1024 * 1024);
+  }
+
+  /**
+   * Runs a script file in pipeline mode, given the arguments
+   * {@code -file script [-threads count]}.
+   *
+   * @param args  the command-line arguments.
+   * @param album the album to run the script on.
+   * @param view  the view to render the output of the script to.
+   */
+  private static void runFile(String[] args, IAlbum album, ImageView view) {
+    if (args.length < 2 || args.length % 2 != 0) {
+      view.renderMessage("Usage: -file script [-threads count]\n");
+      return;
+    }
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    Readable input;
 
-      try {
-        input = new FileReader(args[1]);
-      } catch (FileNotFoundException e) {
-        view.renderMessage("File not found!\n");
-        return;
+    try {
+      for (int i = 2; i < args.length; i += 2) {
+        if (args[i].equals("-threads")) {
+          threads = Integer.parseInt(args[i + 1]);
+        } else {
+          view.renderMessage("Unknown option: " + args[i] + "\n");
+          return;
+        }
       }
+      input = new FileReader(args[1]);
+    } catch (NumberFormatException e) {
+      view.renderMessage("Invalid number: " + e.getMessage() + "\n");
+      return;
+    } catch (FileNotFoundException e) {
+      view.renderMessage("File not found!\n");
+      return;
+    }
 
-      ImageController controller = new ImageControllerImpl(album, view, input);
-      controller.run();
+    ImageController controller;
+    try {
+      controller = new ImageControllerImpl(album, view, input, new CommandScheduler(threads));
+    } catch (IllegalArgumentException e) {
+      view.renderMessage(e.getMessage() + "\n");
+      return;
+    }
+    controller.run();
+  }
+
+  /**
+   * Runs a script template on every matching file in a directory, given the arguments
+   * {@code -batch directory glob template [-threads count] [-memory megabytes]}.
+   *
+   * @param args the command-line arguments.
+   * @param view the view to render progress and results to.
+   */
+  private static void runBatch(String[] args, ImageView view) {
+    if (args.length < 4 || args.length % 2 != 0) {
+      view.renderMessage("Usage: -batch directory glob template [-threads count] "
+              + "[-memory megabytes]\n");
+      return;
+    }
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    long memory = Runtime.getRuntime().maxMemory() / 2;
+    String template;
+
+    try {
+      for (int i = 4; i < args.length; i += 2) {
+        if (args[i].equals("-threads")) {
+          threads = Integer.parseInt(args[i + 1]);
+        } else if (args[i].equals("-memory")) {
+          memory = Long.parseLong(args[i + 1]) * 1024 * 1024;
+        } else {
+          view.renderMessage("Unknown option: " + args[i] + "\n");
+          return;
+        }
+      }
+      template = Files.readString(Paths.get(args[3]));
+    } catch (NumberFormatException e) {
+      view.renderMessage("Invalid number: " + e.getMessage() + "\n");
+      return;
+    } catch (IOException e) {
+      view.renderMessage("File not found!\n");
+      return;
+    }
+
+    try {
+      new BatchController(view, Paths.get(args[1]), args[2], template, threads, memory).run();
+    } catch (IllegalArgumentException e) {
+      view.renderMessage(e.getMessage() + "\n");
     }
   }
 }
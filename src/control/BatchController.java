@@ -0,0 +1,280 @@
+package control;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import model.Album;
+import view.ImageView;
+
+/**
+ * A controller which runs a script template on every file in a directory which matches a glob,
+ * such as {@code *.png}, in one run of the program. In the template, {@code {file}} is replaced by
+ * the path of the file and {@code {name}} by its name without the extension, and the resulting
+ * script is run in pipeline mode by an {@code ImageControllerImpl} with an album of its own.
+ *
+ * <p>Files are processed concurrently, by at most the given number of threads, and a file only
+ * starts once the estimated memory of every file in progress fits in the memory budget. A file is
+ * estimated to need four bytes per pixel for each line of the template, since each command can
+ * add an image to the album. The time taken by each file, and any errors reported while
+ * processing it, are rendered as each file finishes, followed by a summary.
+ */
+public class BatchController implements ImageController {
+  private static final long KILOBYTE = 1024;
+
+  private final ImageView view;
+  private final Path directory;
+  private final String glob;
+  private final String template;
+  private final int parallelism;
+  private final long memoryBudget;
+  private final List<Result> results;
+
+  /**
+   * Represents the outcome of processing one file.
+   */
+  public static final class Result {
+    private final Path file;
+    private final long millis;
+    private final String error;
+
+    Result(Path file, long millis, String error) {
+      this.file = file;
+      this.millis = millis;
+      this.error = error;
+    }
+
+    /**
+     * Returns the file which was processed.
+     *
+     * @return the path of the file.
+     */
+    public Path getFile() {
+      return this.file;
+    }
+
+    /**
+     * Returns how long the file took to process, not counting time spent waiting to start.
+     *
+     * @return the time in milliseconds.
+     */
+    public long getMillis() {
+      return this.millis;
+    }
+
+    /**
+     * Returns whether the script ran on the file without reporting any errors.
+     *
+     * @return true if the file was processed successfully.
+     */
+    public boolean isSuccess() {
+      return this.error == null;
+    }
+
+    /**
+     * Returns the errors reported while processing the file.
+     *
+     * @return the errors, or null if there were none.
+     */
+    public String getError() {
+      return this.error;
+    }
+  }
+
+  /**
+   * Constructs a batch controller.
+   *
+   * @param view         the view to render progress and results to.
+   * @param directory    the directory containing the files to process.
+   * @param glob         the glob which the names of the files to process must match.
+   * @param template     the script to run on each file, containing {@code {file}} and
+   *                     {@code {name}} placeholders.
+   * @param parallelism  the maximum number of files to process at once.
+   * @param memoryBudget the maximum estimated memory, in bytes, of the files being processed.
+   * @throws IllegalArgumentException if the parallelism or memory budget is not positive.
+   */
+  public BatchController(ImageView view, Path directory, String glob, String template,
+                         int parallelism, long memoryBudget) {
+    this.view = Objects.requireNonNull(view);
+    this.directory = Objects.requireNonNull(directory);
+    this.glob = Objects.requireNonNull(glob);
+    this.template = Objects.requireNonNull(template);
+
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+    if (memoryBudget < 1) {
+      throw new IllegalArgumentException("Memory budget must be positive");
+    }
+    this.parallelism = parallelism;
+    this.memoryBudget = memoryBudget;
+    this.results = new ArrayList<>();
+  }
+
+  @Override
+  public void run() {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, this.glob)) {
+      for (Path file : stream) {
+        if (Files.isRegularFile(file)) {
+          files.add(file);
+        }
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      this.view.renderMessage("Could not list files: " + e.getMessage() + "\n");
+      return;
+    }
+    Collections.sort(files);
+
+    int permits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, this.memoryBudget / KILOBYTE));
+    Semaphore memory = new Semaphore(permits, true);
+    int lines = Math.max(1, (int) this.template.lines().filter(line -> !line.isBlank()).count());
+    ExecutorService pool = Executors.newFixedThreadPool(this.parallelism);
+    long start = System.nanoTime();
+
+    List<Future<Result>> futures = new ArrayList<>();
+    for (Path file : files) {
+      futures.add(pool.submit(() -> this.process(file, memory, permits, lines)));
+    }
+    pool.shutdown();
+
+    this.results.clear();
+    try {
+      for (Future<Result> future : futures) {
+        this.results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      pool.shutdownNow();
+      Thread.currentThread().interrupt();
+      return;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Batch task failed", e.getCause());
+    }
+
+    long failed = this.results.stream().filter(result -> !result.isSuccess()).count();
+    this.render(String.format("Processed %d files in %d ms: %d succeeded, %d failed\n",
+            files.size(), (System.nanoTime() - start) / 1_000_000, files.size() - failed,
+            failed));
+  }
+
+  /**
+   * Returns the result of each file processed by the last run, in the order of their paths.
+   *
+   * @return the results.
+   */
+  public List<Result> getResults() {
+    return Collections.unmodifiableList(this.results);
+  }
+
+  private Result process(Path file, Semaphore memory, int permits, int lines) {
+    int needed = (int) Math.min(permits, estimateBytes(file) * lines / KILOBYTE + 1);
+    try {
+      memory.acquire(needed);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new Result(file, 0, "Interrupted");
+    }
+
+    long start = System.nanoTime();
+    List<String> errors = new ArrayList<>();
+    try {
+      String name = file.getFileName().toString();
+      int dot = name.lastIndexOf('.');
+      String script = this.template.replace("{file}", file.toString())
+              .replace("{name}", dot > 0 ? name.substring(0, dot) : name);
+
+      new ImageControllerImpl(new Album(), new ErrorView(errors), new StringReader(script), true)
+              .run();
+    } catch (RuntimeException e) {
+      errors.add(e.toString());
+    } finally {
+      memory.release(needed);
+    }
+
+    Result result = new Result(file, (System.nanoTime() - start) / 1_000_000,
+            errors.isEmpty() ? null : String.join("; ", errors));
+    this.render(String.format("%-6s %s (%d ms)%s\n", result.isSuccess() ? "OK" : "FAILED",
+            file, result.millis, result.isSuccess() ? "" : ": " + result.error));
+    return result;
+  }
+
+  private synchronized void render(String message) {
+    this.view.renderMessage(message);
+  }
+
+  /**
+   * Estimates the memory needed to hold one decoded copy of the given image, from its header
+   * where possible, and otherwise from the size of the file.
+   */
+  private static long estimateBytes(Path file) {
+    try {
+      String name = file.getFileName().toString();
+      if (name.endsWith(".ppm") || name.endsWith(".pgm") || name.endsWith(".pnm")) {
+        try (FileChannel input = FileChannel.open(file)) {
+          NetpbmReader.Header header = NetpbmReader.fromChannel(input).readHeader();
+          return 4L * header.getWidth() * header.getHeight();
+        }
+      }
+
+      try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+        Iterator<ImageReader> readers = input == null ? Collections.emptyIterator()
+                : ImageIO.getImageReaders(input);
+        if (readers.hasNext()) {
+          ImageReader reader = readers.next();
+          try {
+            reader.setInput(input);
+            return 4L * reader.getWidth(0) * reader.getHeight(0);
+          } finally {
+            reader.dispose();
+          }
+        }
+      }
+      return 4 * Files.size(file);
+    } catch (IOException e) {
+      // The script will report the problem when it tries to load the file
+      return 0;
+    }
+  }
+
+  /**
+   * A view which keeps the errors reported by the commands of one file, and ignores the prompts
+   * and command list rendered by the controller.
+   */
+  private static class ErrorView implements ImageView {
+    private final List<String> errors;
+
+    ErrorView(List<String> errors) {
+      this.errors = errors;
+    }
+
+    @Override
+    public void renderCommands(Set<String> commands) {
+      // The command list is only useful interactively
+    }
+
+    @Override
+    public void renderMessage(String message) {
+      if (!message.equals(ImageControllerImpl.PROMPT)) {
+        this.errors.add(message.trim());
+      }
+    }
+  }
+}
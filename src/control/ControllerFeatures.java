@@ -11,4 +11,9 @@ public interface ControllerFeatures {
    * @param command The command to run on the album.
    */
   void runCommand(ICommand command);
+
+  /**
+   * Stop the commands which have been started and have not finished yet, as soon as possible.
+   */
+  void cancelCommands();
 }
@@ -1,12 +1,17 @@
 package control;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Scanner;
 import java.util.function.Function;
 
 import model.IAlbum;
+import model.command.CommandPipeline;
+import model.command.CommandScheduler;
 import model.command.FlipCommand;
 import model.command.ICommand;
 import model.command.KernelOperationCommand;
@@ -24,10 +29,15 @@ import view.ImageView;
  * there are private helper methods to aid the run method.
  */
 public class ImageControllerImpl implements ImageController {
+  // Rendered before reading each command
+  static final String PROMPT = "Enter command:\n";
+
   private final IAlbum album;
   private final ImageView view;
   private final Readable input;
   private final Map<String, Function<Scanner, ICommand>> commands;
+  private final boolean pipeline;
+  private final CommandScheduler scheduler;
 
   /**
    * This is a constructor for {@code ImageControllerImpl} that initialize the commands and sets
@@ -38,12 +48,49 @@ public class ImageControllerImpl implements ImageController {
    * @param input the source of user input.
    */
   public ImageControllerImpl(IAlbum album, ImageView view, Readable input) {
+    this(album, view, input, false);
+  }
+
+  /**
+   * This is a constructor for {@code ImageControllerImpl} which can run in pipeline mode. In
+   * pipeline mode, the whole input is read before any command runs, and consecutive pixel
+   * operations are fused into a single pass wherever the intermediate image is not used by a
+   * later command. Those intermediate images are never added to the album.
+   *
+   * @param album    the album that is being passed in.
+   * @param view     the view that the controller should output to.
+   * @param input    the source of user input.
+   * @param pipeline whether to run in pipeline mode.
+   */
+  public ImageControllerImpl(IAlbum album, ImageView view, Readable input, boolean pipeline) {
+    this(album, view, input, pipeline, null);
+  }
+
+  /**
+   * This is a constructor for {@code ImageControllerImpl} which runs in pipeline mode, and runs
+   * the fused script with the given scheduler, so that commands which do not depend on each other
+   * run at the same time.
+   *
+   * @param album     the album that is being passed in.
+   * @param view      the view that the controller should output to.
+   * @param input     the source of user input.
+   * @param scheduler the scheduler to run the script with.
+   */
+  public ImageControllerImpl(IAlbum album, ImageView view, Readable input,
+                             CommandScheduler scheduler) {
+    this(album, view, input, true, Objects.requireNonNull(scheduler));
+  }
+
+  private ImageControllerImpl(IAlbum album, ImageView view, Readable input, boolean pipeline,
+                              CommandScheduler scheduler) {
     Objects.requireNonNull(album);
     Objects.requireNonNull(view);
     Objects.requireNonNull(input);
     this.album = album;
     this.view = view;
     this.input = input;
+    this.pipeline = pipeline;
+    this.scheduler = scheduler;
 
     this.commands = new LinkedHashMap<>();
     this.initCommands();
@@ -122,6 +169,22 @@ public class ImageControllerImpl implements ImageController {
                     {0.393, 0.769, 0.189},
                     {0.349, 0.686, 0.168},
                     {0.272, 0.534, 0.131}})));
+
+    this.commands.put("kernel",
+        (s) -> {
+          int size = s.nextInt();
+          // Rendered through the view by run, like any other malformed command
+          if (size < 1 || size % 2 == 0) {
+            throw new IllegalArgumentException("The kernel size must be a positive, odd number");
+          }
+          double[][] kernel = new double[size][size];
+          for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+              kernel[y][x] = s.nextDouble();
+            }
+          }
+          return new KernelOperationCommand(s.next(), s.next(), kernel);
+        });
   }
 
   @Override
@@ -130,18 +193,47 @@ public class ImageControllerImpl implements ImageController {
 
     this.view.renderCommands(this.commands.keySet());
 
-    this.view.renderMessage("Enter command:\n");
+    List<ICommand> script = new ArrayList<>();
+
+    this.view.renderMessage(PROMPT);
     while (scan.hasNext()) {
       String commandName = scan.next();
 
       if (!this.commands.containsKey(commandName)) {
         this.view.renderMessage("Command not found!\n");
       } else {
-        ICommand command = this.commands.get(commandName).apply(scan);
-        command.apply(this.album, this.view);
+        ICommand command;
+        try {
+          command = this.commands.get(commandName).apply(scan);
+        } catch (NoSuchElementException | IllegalArgumentException e) {
+          // Skip the rest of the malformed line, and keep going with the next one
+          if (scan.hasNextLine()) {
+            scan.nextLine();
+          }
+          this.view.renderMessage(e instanceof IllegalArgumentException
+                  ? e.getMessage() + "\n"
+                  : "Invalid arguments for " + commandName + "!\n");
+          this.view.renderMessage(PROMPT);
+          continue;
+        }
+
+        if (this.pipeline) {
+          script.add(command);
+        } else {
+          command.apply(this.album, this.view);
+        }
       }
 
-      this.view.renderMessage("Enter command:\n");
+      this.view.renderMessage(PROMPT);
+    }
+
+    List<ICommand> fused = CommandPipeline.fuse(script);
+    if (this.scheduler != null) {
+      this.scheduler.run(fused, this.album, this.view);
+      return;
+    }
+    for (ICommand command : fused) {
+      command.apply(this.album, this.view);
     }
   }
 }
@@ -0,0 +1,22 @@
+package control;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import model.IImage;
+
+/**
+ * Represents a way of encoding images in one file format. {@code ImageUtil.saveImage} chooses
+ * the encoder registered for the extension of the file being saved.
+ */
+public interface ImageEncoder {
+  /**
+   * Writes the given image to the given channel in this encoder's format. The channel is not
+   * closed.
+   *
+   * @param image  the image to write.
+   * @param output the channel to write the encoded image to.
+   * @throws IOException if the image cannot be encoded or written.
+   */
+  void write(IImage image, WritableByteChannel output) throws IOException;
+}
@@ -1,26 +1,56 @@
 package control;
 
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import model.IAlbum;
+import model.TaskMonitor;
 import model.command.ICommand;
 import view.ImageGuiView;
 
 /**
- * An asynchronous controller which controls a GUI view.
+ * An asynchronous controller which controls a GUI view. Commands run one at a time, in the order
+ * they were given, on a background thread, so the GUI stays responsive while they run. The view
+ * is told when commands are running, shown the progress of the running command, and refreshed
+ * after each command. Commands which have not finished can be cancelled.
  */
 public class ImageGuiController implements ControllerFeatures {
   private final IAlbum album;
   private final ImageGuiView view;
+  private final Executor executor;
+  // The monitors of the commands which have not finished, in order
+  private final Queue<TaskMonitor> pending;
 
   /**
-   * Construct a controller with the given album state and the given GUI view.
+   * Construct a controller with the given album state and the given GUI view, which runs
+   * commands on its own background thread.
    * @param album The album state.
    * @param view The GUI view.
    */
   public ImageGuiController(IAlbum album, ImageGuiView view) {
+    this(album, view, Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "commands");
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+
+  /**
+   * Construct a controller with the given album state and the given GUI view, which runs
+   * commands with the given executor. The executor must run commands one at a time, in order.
+   * @param album The album state.
+   * @param view The GUI view.
+   * @param executor The executor to run commands with.
+   */
+  public ImageGuiController(IAlbum album, ImageGuiView view, Executor executor) {
     this.album = Objects.requireNonNull(album);
     this.view = Objects.requireNonNull(view);
+    this.executor = Objects.requireNonNull(executor);
+    this.pending = new ConcurrentLinkedQueue<>();
 
     this.view.useFeatures(this);
   }
@@ -28,7 +58,40 @@ public class ImageGuiController implements ControllerFeatures {
   @Override
   public void runCommand(ICommand command) {
     Objects.requireNonNull(command);
-    command.apply(this.album, this.view);
-    this.view.refresh();
+    TaskMonitor monitor = new TaskMonitor(this.view::renderProgress);
+    // Keeps the busy state in order with the commands finishing on the other thread
+    synchronized (this.pending) {
+      if (this.pending.isEmpty()) {
+        this.view.setBusy(true);
+      }
+      this.pending.add(monitor);
+    }
+    this.executor.execute(() -> this.apply(command, monitor));
+  }
+
+  @Override
+  public void cancelCommands() {
+    for (TaskMonitor monitor : this.pending) {
+      monitor.cancel();
+    }
+  }
+
+  private void apply(ICommand command, TaskMonitor monitor) {
+    try {
+      // Commands create their images right away under a monitor, rather than deferring them
+      monitor.run(() -> command.apply(this.album, this.view));
+    } catch (CancellationException e) {
+      this.view.renderMessage("Command cancelled\n");
+    } catch (RuntimeException e) {
+      this.view.renderMessage(e.getMessage() + "\n");
+    } finally {
+      this.view.refresh();
+      synchronized (this.pending) {
+        this.pending.remove(monitor);
+        if (this.pending.isEmpty()) {
+          this.view.setBusy(false);
+        }
+      }
+    }
   }
 }
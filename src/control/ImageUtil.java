@@ -1,28 +1,108 @@
 package control;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.RenderedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.Scanner;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
+import model.ByteBufferImage;
 import model.IImage;
 import model.IPixel;
-import model.Image;
-import model.Pixel;
+import model.ImageBuilder;
+import model.ImageStorage;
 
 /**
  * This class contains utility methods to read and write PPM images.
+ *
+ * <p>PPM and PGM files are read in either the plain or the binary encoding, and are written by
+ * {@link #saveImage(String, IImage)} in the default encoding, which is plain unless changed with
+ * {@link #setNetpbmEncoding(NetpbmEncoding)} or the {@code imageprocessing.netpbm} system property
+ * ("plain" or "binary").
+ *
+ * <p>Binary PPM and PGM files can also be memory-mapped rather than read, with
+ * {@link #mapImage(String, String)}, or by {@link #loadImage(String, String)} once
+ * {@link #setMemoryMapping(boolean)} is enabled (or the {@code imageprocessing.mmap} system
+ * property is true). The pixels of a mapped image are read from the file as they are needed, so
+ * loading takes almost no time or heap however large the image is.
  */
 public class ImageUtil {
+  private static volatile NetpbmEncoding netpbmEncoding = NetpbmEncoding.valueOf(
+          System.getProperty("imageprocessing.netpbm", "plain").toUpperCase(Locale.ROOT));
+
+  private static volatile boolean memoryMapping = Boolean.getBoolean("imageprocessing.mmap");
+
+  private static final Map<String, ImageEncoder> ENCODERS = new ConcurrentHashMap<>();
+
+  static {
+    ImageEncoder ppm = (image, output) ->
+        new NetpbmWriter(output).write(image, false, netpbmEncoding);
+    registerEncoder("ppm", ppm);
+    registerEncoder("pnm", ppm);
+    registerEncoder("pgm", (image, output) ->
+        new NetpbmWriter(output).write(image, true, netpbmEncoding));
+  }
+
+  /**
+   * Returns the encoding that {@link #saveImage(String, IImage)} writes PPM and PGM files in.
+   *
+   * @return the default Netpbm encoding.
+   */
+  public static NetpbmEncoding getNetpbmEncoding() {
+    return netpbmEncoding;
+  }
+
+  /**
+   * Sets the encoding that {@link #saveImage(String, IImage)} writes PPM and PGM files in.
+   *
+   * @param encoding the new default Netpbm encoding.
+   */
+  public static void setNetpbmEncoding(NetpbmEncoding encoding) {
+    netpbmEncoding = Objects.requireNonNull(encoding);
+  }
+
+  /**
+   * Returns whether {@link #loadImage(String, String)} memory-maps binary PPM and PGM files.
+   *
+   * @return true if binary files are memory-mapped.
+   */
+  public static boolean isMemoryMapping() {
+    return memoryMapping;
+  }
+
+  /**
+   * Sets whether {@link #loadImage(String, String)} memory-maps binary PPM and PGM files rather
+   * than reading them onto the heap.
+   *
+   * @param enabled whether to memory-map binary files.
+   */
+  public static void setMemoryMapping(boolean enabled) {
+    memoryMapping = enabled;
+  }
 
   /**
-   * Read an image file in the PPM format and print the colors.
+   * Read an image file in the PPM format and print the colors. The file may be a PPM or PGM
+   * image in either the plain or the binary encoding.
    *
    * @param filename  the path of the file.
    * @param imageName the name of the image to create.
@@ -31,77 +111,96 @@ public class ImageUtil {
    * @throws IOException                   if the file is not a valid PPM image.
    */
   public static IImage readPPM(String filename, String imageName) throws IOException {
-    return readPPM(new InputStreamReader(new FileInputStream(filename)), imageName);
+    return readNetpbm(filename, imageName, false);
   }
 
   /**
-   * Reads an image in PPM format from the given Readable.
+   * Memory-maps a binary PPM ("P6") or PGM ("P5") file as an image, without copying its pixels
+   * onto the heap. The file should not be modified while the image is in use.
    *
-   * @param file      The Readable to output the image data to.
-   * @param imageName The name of the image to create.
-   * @return The newly created image.
-   * @throws InvalidImageException if the image is not correctly formatted as PPM.
+   * @param filename  the path of the file.
+   * @param imageName the name of the image to create.
+   * @return the image, which reads its pixels from the mapped file.
+   * @throws java.io.FileNotFoundException if the file is not found.
+   * @throws IOException                   if the file is not a valid binary PPM or PGM image.
    */
-  public static IImage readPPM(Readable file, String imageName) throws InvalidImageException {
-    Scanner sc = new Scanner(file);
+  public static IImage mapImage(String filename, String imageName) throws IOException {
+    IImage image = readNetpbm(filename, imageName, true);
+    if (!(image instanceof ByteBufferImage)) {
+      throw new InvalidImageException("Only binary PPM and PGM files can be memory-mapped");
+    }
+    return image;
+  }
 
-    StringBuilder builder = new StringBuilder();
+  /**
+   * Memory-maps a file of raw 8-bit RGB samples, with no header, as an image of the given size,
+   * without copying its pixels onto the heap. The file should not be modified while the image is
+   * in use.
+   *
+   * @param filename  the path of the file.
+   * @param width     the width of the image.
+   * @param height    the height of the image.
+   * @param imageName the name of the image to create.
+   * @return the image, which reads its pixels from the mapped file.
+   * @throws java.io.FileNotFoundException if the file is not found.
+   * @throws IOException                   if the file is too small for an image of that size.
+   * @throws IllegalArgumentException      if the dimensions are negative.
+   */
+  public static IImage mapRawRgb(String filename, int width, int height, String imageName)
+          throws IOException {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Invalid image dimensions");
+    }
+    try (FileChannel input = new FileInputStream(filename).getChannel()) {
+      return mapRaster(input, 0, width, height, 3, imageName);
+    }
+  }
 
-    // Read the file line by line, and populate a string
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
+  private static IImage readNetpbm(String filename, String imageName, boolean map)
+          throws IOException {
+    try (FileChannel input = new FileInputStream(filename).getChannel()) {
+      NetpbmReader reader = NetpbmReader.fromChannel(input);
+      NetpbmReader.Header header = reader.readHeader();
 
-      // This will throw away any comment lines
-      if (s.charAt(0) != '#') {
-        builder.append(s);
-        builder.append(System.lineSeparator());
+      if (map && header.isBinary()) {
+        return mapRaster(input, header.getRasterOffset(), header.getWidth(), header.getHeight(),
+                header.isGray() ? 1 : 3, imageName);
       }
+      return reader.readRaster(header, imageName);
     }
+  }
 
-    // Set up the scanner to read from the string we just built
-    sc = new Scanner(builder.toString());
-    IPixel[][] imageArray;
-
-    String token;
-
-    token = sc.next();
-    if (!token.equals("P3")) {
-      throw new InvalidImageException("Invalid PPM file: plain RAW file should begin with P3");
+  private static IImage mapRaster(FileChannel input, long offset, int width, int height,
+                                  int channels, String imageName) throws IOException {
+    long length = (long) width * height * channels;
+    if (length > Integer.MAX_VALUE) {
+      throw new InvalidImageException("Image is too large to memory-map");
     }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    if (width < 0 || height < 0) {
-      throw new InvalidImageException("Invalid image dimensions");
-    }
-    imageArray = new IPixel[height][width];
-
-    int maxValue = sc.nextInt();
-    if (maxValue != IPixel.MAX_VALUE) {
-      throw new InvalidImageException("Unsupported maximum PPM value");
+    if (input.size() - offset < length) {
+      throw new InvalidImageException("Not enough pixel values");
     }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (!sc.hasNext()) {
-          throw new InvalidImageException("Not enough pixel values");
-        }
-
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        IPixel p;
-
-        try {
-          p = new Pixel(r, g, b);
-        } catch (IllegalArgumentException e) {
-          throw new InvalidImageException("Invalid pixel value");
-        }
+    // The mapping stays valid after the channel is closed
+    ByteBuffer buffer = input.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    return new ByteBufferImage(width, height, channels, buffer, imageName);
+  }
 
-        imageArray[i][j] = p;
-      }
+  /**
+   * Reads an image in PPM format from the given Readable.
+   *
+   * @param file      The Readable to output the image data to.
+   * @param imageName The name of the image to create.
+   * @return The newly created image.
+   * @throws InvalidImageException if the image is not correctly formatted as PPM.
+   */
+  public static IImage readPPM(Readable file, String imageName) throws InvalidImageException {
+    try {
+      return NetpbmReader.fromReadable(file).readPlainPPM(imageName);
+    } catch (InvalidImageException e) {
+      throw e;
+    } catch (IOException e) {
+      throw new InvalidImageException("Could not read PPM data: " + e.getMessage());
     }
-
-    return new Image(width, height, imageArray, imageName);
   }
 
   /**
@@ -113,35 +212,107 @@ public class ImageUtil {
    * @throws IOException if the bufferedImage is unable to be read.
    */
   public static IImage loadImage(String filename, String imageName) throws IOException {
-    if (filename.endsWith(".ppm")) {
-      return readPPM(filename, imageName);
+    if (isNetpbm(filename)) {
+      return readNetpbm(filename, imageName, memoryMapping);
     } else {
       BufferedImage image = ImageIO.read(new File(filename));
-      return bufferedImageToImage(image, imageName);
+      // Nothing else refers to the loaded image, so its pixels can be used without copying
+      return toImage(image, imageName, true);
     }
   }
 
   /**
-   * This is a helper method in order to turn a buffered image to an {@code IImage}.
+   * This is a helper method in order to turn a buffered image to an {@code IImage}. Images of
+   * the common types {@code TYPE_INT_RGB}, {@code TYPE_INT_ARGB}, and {@code TYPE_3BYTE_BGR}
+   * are converted by reading their data buffers directly; other types are converted through
+   * their color models.
    *
    * @param image     the BufferedImage that is being converted to an IImage.
    * @param imageName the name of the image.
    * @return an {@code IImage}.
    */
   public static IImage bufferedImageToImage(BufferedImage image, String imageName) {
+    return toImage(image, imageName, false);
+  }
+
+  /**
+   * Converts a buffered image to an {@code IImage}. If the buffered image is owned by the caller
+   * and its data buffer already holds exactly the packed pixels of the image, the new image may
+   * use that array directly.
+   */
+  private static IImage toImage(BufferedImage image, String imageName, boolean owned) {
     int width = image.getWidth();
     int height = image.getHeight();
+    WritableRaster raster = image.getRaster();
+    DataBuffer buffer = raster.getDataBuffer();
+    SampleModel sampleModel = raster.getSampleModel();
+
+    if ((image.getType() == BufferedImage.TYPE_INT_RGB
+            || image.getType() == BufferedImage.TYPE_INT_ARGB)
+            && buffer instanceof DataBufferInt
+            && sampleModel instanceof SinglePixelPackedSampleModel) {
+      int[] data = ((DataBufferInt) buffer).getData();
+      int stride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+      int origin = origin(raster, stride, 1);
+
+      if (owned && origin == 0 && stride == width && data.length == width * height) {
+        return ImageStorage.getDefault().create(width, height, data, imageName);
+      }
 
-    IPixel[][] pixelArray = new IPixel[height][width];
+      ImageBuilder builder = new ImageBuilder(width, height);
+      int[] row = new int[width];
+      for (int y = 0; y < height; ++y) {
+        System.arraycopy(data, origin + y * stride, row, 0, width);
+        builder.writeRow(y, row);
+      }
+      return builder.build(imageName);
+    }
 
-    for (int y = 0; y < height; ++y) {
-      for (int x = 0; x < width; ++x) {
-        int rgb = image.getRGB(x, y);
-        pixelArray[y][x] = new Pixel((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+    if (image.getType() == BufferedImage.TYPE_3BYTE_BGR
+            && buffer instanceof DataBufferByte
+            && sampleModel instanceof PixelInterleavedSampleModel) {
+      byte[] data = ((DataBufferByte) buffer).getData();
+      PixelInterleavedSampleModel interleaved = (PixelInterleavedSampleModel) sampleModel;
+      int stride = interleaved.getScanlineStride();
+      int pixelStride = interleaved.getPixelStride();
+      int origin = origin(raster, stride, pixelStride);
+      int[] bandOffsets = interleaved.getBandOffsets();
+      int red = bandOffsets[0];
+      int green = bandOffsets[1];
+      int blue = bandOffsets[2];
+
+      ImageBuilder builder = new ImageBuilder(width, height);
+      int[] row = new int[width];
+      for (int y = 0; y < height; ++y) {
+        int i = origin + y * stride;
+        for (int x = 0; x < width; ++x, i += pixelStride) {
+          row[x] = ((data[i + red] & 0xFF) << 16) | ((data[i + green] & 0xFF) << 8)
+                  | (data[i + blue] & 0xFF);
+        }
+        builder.writeRow(y, row);
       }
+      return builder.build(imageName);
     }
 
-    return new Image(width, height, pixelArray, imageName);
+    ImageBuilder builder = new ImageBuilder(width, height);
+    int[] row = new int[width];
+
+    for (int y = 0; y < height; ++y) {
+      image.getRGB(0, y, width, 1, row, 0, width);
+      builder.writeRow(y, row);
+    }
+
+    return builder.build(imageName);
+  }
+
+  /**
+   * Returns the index in the data buffer of the given raster of the sample for its top-left
+   * pixel, which is not 0 for rasters which share a buffer with a larger raster.
+   */
+  private static int origin(WritableRaster raster, int scanlineStride, int pixelStride) {
+    return raster.getDataBuffer().getOffset()
+            - raster.getSampleModelTranslateY() * scanlineStride
+            - raster.getSampleModelTranslateX() * pixelStride;
   }
 
   /**
@@ -152,9 +323,42 @@ public class ImageUtil {
    * @throws IOException if the file cannot be opened for writing
    */
   public static void savePPM(String filename, IImage image) throws IOException {
-    FileWriter output = new FileWriter(filename);
-    savePPM(output, image);
-    output.close();
+    savePPM(filename, image, NetpbmEncoding.PLAIN);
+  }
+
+  /**
+   * Saves the given image to a PPM file in the given encoding.
+   *
+   * @param filename The filename to write the image to.
+   * @param image    The image to write to a PPM file.
+   * @param encoding Whether to write a plain ("P3") or a binary ("P6") file.
+   * @throws IOException if the file cannot be opened for writing
+   */
+  public static void savePPM(String filename, IImage image, NetpbmEncoding encoding)
+          throws IOException {
+    saveNetpbm(filename, image, false, encoding);
+  }
+
+  /**
+   * Saves the given image to a PGM file in the given encoding. Pixels which are not already gray
+   * are saved as their luma.
+   *
+   * @param filename The filename to write the image to.
+   * @param image    The image to write to a PGM file.
+   * @param encoding Whether to write a plain ("P2") or a binary ("P5") file.
+   * @throws IOException if the file cannot be opened for writing
+   */
+  public static void savePGM(String filename, IImage image, NetpbmEncoding encoding)
+          throws IOException {
+    saveNetpbm(filename, image, true, encoding);
+  }
+
+  private static void saveNetpbm(String filename, IImage image, boolean gray,
+                                 NetpbmEncoding encoding) throws IOException {
+    Objects.requireNonNull(encoding);
+    try (FileChannel output = new FileOutputStream(filename).getChannel()) {
+      new NetpbmWriter(output).write(image, gray, encoding);
+    }
   }
 
   /**
@@ -169,34 +373,93 @@ public class ImageUtil {
     output.append(String.format("%d %d\n", image.getWidth(), image.getHeight()));
     output.append(String.format("%d\n", IPixel.MAX_VALUE));
 
+    int[] row = new int[image.getWidth()];
     for (int y = 0; y < image.getHeight(); ++y) {
-      for (int x = 0; x < image.getWidth(); ++x) {
-        IPixel pixel = image.getPixel(x, y);
-        output.append(
-                String.format("%d\n%d\n%d\n", pixel.getRed(), pixel.getGreen(), pixel.getBlue()));
+      image.readRow(y, row);
+      for (int rgb : row) {
+        output.append(Integer.toString((rgb >> 16) & 0xFF)).append('\n')
+                .append(Integer.toString((rgb >> 8) & 0xFF)).append('\n')
+                .append(Integer.toString(rgb & 0xFF)).append('\n');
       }
     }
   }
 
   /**
-   * Saves the image in the program to the desired format.
+   * Registers the encoder which {@link #saveImage(String, IImage)} uses for files with the given
+   * extension, replacing any encoder already registered for it. Extensions are not case
+   * sensitive.
+   *
+   * @param extension the file extension, without the dot.
+   * @param encoder   the encoder to use for files with that extension.
+   */
+  public static void registerEncoder(String extension, ImageEncoder encoder) {
+    ENCODERS.put(extension.toLowerCase(Locale.ROOT), Objects.requireNonNull(encoder));
+  }
+
+  /**
+   * Returns the encoder which {@link #saveImage(String, IImage)} uses for files with the given
+   * extension: the registered encoder if there is one, or else an encoder which writes through
+   * {@code ImageIO} if it supports the extension.
+   *
+   * @param extension the file extension, without the dot.
+   * @return the encoder, or nothing if the format is not supported.
+   */
+  public static Optional<ImageEncoder> getEncoder(String extension) {
+    String suffix = extension.toLowerCase(Locale.ROOT);
+    ImageEncoder encoder = ENCODERS.get(suffix);
+    if (encoder == null && ImageIO.getImageWritersBySuffix(suffix).hasNext()) {
+      encoder = imageIOEncoder(suffix);
+    }
+    return Optional.ofNullable(encoder);
+  }
+
+  /**
+   * Returns an encoder which converts images to a {@code BufferedImage} and writes them with
+   * {@code ImageIO}, in the format with the given name. The encoded image is collected in memory
+   * rather than in a temporary file, and written to the channel in large blocks.
+   */
+  private static ImageEncoder imageIOEncoder(String formatName) {
+    return (image, output) -> {
+      OutputStream stream = Channels.newOutputStream(output);
+      ImageOutputStream imageStream = new MemoryCacheImageOutputStream(stream);
+      try {
+        if (!ImageIO.write(imageToBufferedImage(image), formatName, imageStream)) {
+          throw new IOException("Unsupported image format: " + formatName);
+        }
+      } finally {
+        // Flushes the cached image to the channel, without closing it
+        imageStream.close();
+      }
+    };
+  }
+
+  /**
+   * Saves the image in the program to the desired format, choosing the encoder from the file
+   * extension. PPM, PGM, and PNM files are written in the default Netpbm encoding, and other
+   * formats through {@code ImageIO} unless another encoder has been registered for them.
    *
    * @param filename the name of the file.
    * @param image    the image to be saved.
-   * @throws IOException if the image cannot be rendered.
+   * @throws IOException if the format is not supported, or the image cannot be written.
    */
   public static void saveImage(String filename, IImage image) throws IOException {
-    RenderedImage renderedImage = imageToBufferedImage(image);
     String[] filenameParts = filename.split("\\.");
     String formatName = filenameParts[filenameParts.length - 1];
-    if (formatName.equals("ppm")) {
-      savePPM(filename, image);
+    ImageEncoder encoder = getEncoder(formatName).orElseThrow(
+        () -> new IOException("Unsupported image format: " + formatName));
+
+    try (FileChannel output = new FileOutputStream(filename).getChannel()) {
+      encoder.write(image, output);
     }
-    ImageIO.write(renderedImage, formatName, new File(filename));
+  }
+
+  private static boolean isNetpbm(String filename) {
+    return filename.endsWith(".ppm") || filename.endsWith(".pgm") || filename.endsWith(".pnm");
   }
 
   /**
-   * A helper method to convert an {@code IImage} to a RenderedImage.
+   * A helper method to convert an {@code IImage} to a RenderedImage. The pixels are copied
+   * directly into the data buffer of a new {@code TYPE_INT_RGB} image.
    *
    * @param image the image to be converted to a rendered image.
    * @return a RenderedImage.
@@ -207,13 +470,9 @@ public class ImageUtil {
 
     BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
 
-    for (int y = 0; y < height; ++y) {
-      for (int x = 0; x < width; ++x) {
-        IPixel pixel = image.getPixel(x, y);
-        int rgb = (pixel.getRed() << 16) | (pixel.getGreen() << 8) | (pixel.getBlue());
-        bufferedImage.setRGB(x, y, rgb);
-      }
-    }
+    // A new TYPE_INT_RGB image stores exactly the packed colors, in one row-major array
+    int[] data = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+    image.readRegion(0, 0, width, height, data);
 
     return bufferedImage;
   }
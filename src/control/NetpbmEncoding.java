@@ -0,0 +1,11 @@
+package control;
+
+/**
+ * Represents the two encodings of Netpbm images: plain images ("P3" PPM and "P2" PGM), which
+ * store every value as decimal text, and binary images ("P6" PPM and "P5" PGM), which store every
+ * value as a single byte.
+ */
+public enum NetpbmEncoding {
+  PLAIN,
+  BINARY
+}
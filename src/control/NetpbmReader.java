@@ -0,0 +1,425 @@
+package control;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Objects;
+
+import model.IImage;
+import model.IPixel;
+import model.ImageBuilder;
+
+/**
+ * Reads Netpbm images in a single pass: plain ("P3") and binary ("P6") PPM images, and plain
+ * ("P2") and binary ("P5") PGM images. The input is read through a buffer of bytes, which is
+ * refilled from a channel, an input stream, a {@code Readable}, or a {@code ByteBuffer}, so the
+ * file is never held in memory as text. Plain values are parsed directly from the buffer, and
+ * binary rasters are copied out of it a row at a time.
+ *
+ * <p>In the header (and between the values of plain images), comments (from a '#' to the end of
+ * the line) may appear anywhere between values, and any amount of whitespace, including empty
+ * lines, may separate them.
+ */
+final class NetpbmReader {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int END = -1;
+
+  private final Source source;
+  private final byte[] buffer;
+  private int position;
+  private int limit;
+  // The number of bytes read before the current contents of the buffer
+  private long consumed;
+
+  /**
+   * Reads bytes into the buffer from wherever the image comes from.
+   */
+  private interface Source {
+    /**
+     * Read up to {@code length} bytes into the start of the given array.
+     *
+     * @return the number of bytes read, or -1 at the end of the input.
+     */
+    int read(byte[] buffer, int length) throws IOException;
+  }
+
+  private NetpbmReader(Source source) {
+    this.source = source;
+    this.buffer = new byte[BUFFER_SIZE];
+  }
+
+  /**
+   * Creates a reader which reads the image from the given channel, through a direct buffer. The
+   * channel is not closed.
+   *
+   * @param input the channel to read from.
+   * @return the reader.
+   */
+  static NetpbmReader fromChannel(ReadableByteChannel input) {
+    Objects.requireNonNull(input);
+    ByteBuffer direct = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    return new NetpbmReader((buffer, length) -> {
+      direct.clear();
+      direct.limit(Math.min(length, direct.capacity()));
+      int count = input.read(direct);
+      direct.flip();
+      direct.get(buffer, 0, direct.remaining());
+      return count;
+    });
+  }
+
+  /**
+   * Creates a reader which reads the image from the given stream. The stream is not closed.
+   *
+   * @param input the stream to read from.
+   * @return the reader.
+   */
+  static NetpbmReader fromStream(InputStream input) {
+    Objects.requireNonNull(input);
+    return new NetpbmReader((buffer, length) -> input.read(buffer, 0, length));
+  }
+
+  /**
+   * Creates a reader which reads the image from the remaining bytes of the given buffer.
+   *
+   * @param input the buffer to read from.
+   * @return the reader.
+   */
+  static NetpbmReader fromBuffer(ByteBuffer input) {
+    Objects.requireNonNull(input);
+    return new NetpbmReader((buffer, length) -> {
+      if (!input.hasRemaining()) {
+        return END;
+      }
+      int count = Math.min(length, input.remaining());
+      input.get(buffer, 0, count);
+      return count;
+    });
+  }
+
+  /**
+   * Creates a reader which reads the image from the given characters. Characters outside of
+   * ASCII cannot be part of a valid plain image, so they are only kept as invalid bytes.
+   *
+   * @param input the characters to read from.
+   * @return the reader.
+   */
+  static NetpbmReader fromReadable(Readable input) {
+    Objects.requireNonNull(input);
+    CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+    return new NetpbmReader((buffer, length) -> {
+      chars.clear();
+      chars.limit(Math.min(length, chars.capacity()));
+      int count = input.read(chars);
+      for (int i = 0; i < count; ++i) {
+        char c = chars.get(i);
+        buffer[i] = c < 0x80 ? (byte) c : (byte) 0xFF;
+      }
+      return count;
+    });
+  }
+
+  /**
+   * Represents the header of a Netpbm image.
+   */
+  static final class Header {
+    private final int format;
+    private final int width;
+    private final int height;
+    private final long rasterOffset;
+
+    private Header(int format, int width, int height, long rasterOffset) {
+      this.format = format;
+      this.width = width;
+      this.height = height;
+      this.rasterOffset = rasterOffset;
+    }
+
+    /**
+     * Returns whether the image stores its values as bytes ("P5" or "P6").
+     *
+     * @return true if the image is binary.
+     */
+    boolean isBinary() {
+      return this.format == '5' || this.format == '6';
+    }
+
+    /**
+     * Returns whether the image has one value per pixel ("P2" or "P5").
+     *
+     * @return true if the image is gray.
+     */
+    boolean isGray() {
+      return this.format == '2' || this.format == '5';
+    }
+
+    int getWidth() {
+      return this.width;
+    }
+
+    int getHeight() {
+      return this.height;
+    }
+
+    /**
+     * Returns the number of bytes from the start of the input to the first value of the raster.
+     * For binary images, this is where the pixel bytes start.
+     *
+     * @return the offset of the raster.
+     */
+    long getRasterOffset() {
+      return this.rasterOffset;
+    }
+  }
+
+  /**
+   * Reads a plain PPM ("P3") image, and rejects every other format.
+   *
+   * @param imageName the name of the image to create.
+   * @return the image.
+   * @throws ImageUtil.InvalidImageException if the input is not a valid plain PPM image.
+   * @throws IOException                     if the input cannot be read.
+   */
+  IImage readPlainPPM(String imageName) throws IOException {
+    int format = this.readMagicNumber();
+    if (format != '3') {
+      throw new ImageUtil.InvalidImageException(
+              "Invalid PPM file: plain RAW file should begin with P3");
+    }
+    return this.readRaster(this.readHeader(format), imageName);
+  }
+
+  /**
+   * Reads a PPM or PGM image, in either the plain or the binary format.
+   *
+   * @param imageName the name of the image to create.
+   * @return the image.
+   * @throws ImageUtil.InvalidImageException if the input is not a valid image in one of these
+   *                                         formats.
+   * @throws IOException                     if the input cannot be read.
+   */
+  IImage read(String imageName) throws IOException {
+    return this.readRaster(this.readHeader(), imageName);
+  }
+
+  /**
+   * Reads the header of a PPM or PGM image, in either the plain or the binary format, leaving
+   * the reader at the start of the raster.
+   *
+   * @return the header.
+   * @throws ImageUtil.InvalidImageException if the input does not start with a valid header in
+   *                                         one of these formats.
+   * @throws IOException                     if the input cannot be read.
+   */
+  Header readHeader() throws IOException {
+    int format = this.readMagicNumber();
+    if (format != '2' && format != '3' && format != '5' && format != '6') {
+      throw new ImageUtil.InvalidImageException(
+              "Invalid Netpbm file: should begin with P2, P3, P5, or P6");
+    }
+    return this.readHeader(format);
+  }
+
+  /**
+   * Reads the two character magic number at the start of the image.
+   *
+   * @return the second character of the magic number, or -1 if it is not of the form "Pn".
+   */
+  private int readMagicNumber() throws IOException {
+    if (this.nextToken() != 'P') {
+      return END;
+    }
+    int format = this.next();
+    return isSeparator(this.peek()) ? format : END;
+  }
+
+  private Header readHeader(int format) throws IOException {
+    int width = this.nextInt("Invalid PPM file: missing image size");
+    int height = this.nextInt("Invalid PPM file: missing image size");
+    if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE) {
+      throw new ImageUtil.InvalidImageException("Invalid image dimensions");
+    }
+
+    int maxValue = this.nextInt("Invalid PPM file: missing maximum value");
+    if (maxValue != IPixel.MAX_VALUE) {
+      throw new ImageUtil.InvalidImageException("Unsupported maximum PPM value");
+    }
+
+    // Exactly one whitespace character separates the header from a binary raster
+    if ((format == '5' || format == '6') && !isWhitespace(this.next())) {
+      throw new ImageUtil.InvalidImageException("Invalid PPM file: expected a number");
+    }
+    return new Header(format, width, height, this.consumed + this.position);
+  }
+
+  /**
+   * Reads the raster of an image whose header has just been read.
+   *
+   * @param header    the header of the image.
+   * @param imageName the name of the image to create.
+   * @return the image.
+   * @throws ImageUtil.InvalidImageException if the raster is not valid.
+   * @throws IOException                     if the input cannot be read.
+   */
+  IImage readRaster(Header header, String imageName) throws IOException {
+    int width = header.width;
+    int height = header.height;
+    boolean gray = header.isGray();
+
+    ImageBuilder builder = new ImageBuilder(width, height);
+    int[] row = new int[width];
+
+    if (header.isBinary()) {
+      byte[] bytes = new byte[gray ? width : 3 * width];
+
+      for (int y = 0; y < height; ++y) {
+        this.readFully(bytes);
+        if (gray) {
+          for (int x = 0; x < width; ++x) {
+            int value = bytes[x] & 0xFF;
+            row[x] = (value << 16) | (value << 8) | value;
+          }
+        } else {
+          for (int x = 0, i = 0; x < width; ++x, i += 3) {
+            row[x] = ((bytes[i] & 0xFF) << 16) | ((bytes[i + 1] & 0xFF) << 8)
+                    | (bytes[i + 2] & 0xFF);
+          }
+        }
+        builder.writeRow(y, row);
+      }
+    } else {
+      for (int y = 0; y < height; ++y) {
+        for (int x = 0; x < width; ++x) {
+          int red = this.nextInt("Not enough pixel values");
+          int green = gray ? red : this.nextInt("Not enough pixel values");
+          int blue = gray ? red : this.nextInt("Not enough pixel values");
+
+          if ((red | green | blue) < 0 || (red | green | blue) > IPixel.MAX_VALUE) {
+            throw new ImageUtil.InvalidImageException("Invalid pixel value");
+          }
+          row[x] = (red << 16) | (green << 8) | blue;
+        }
+        builder.writeRow(y, row);
+      }
+    }
+
+    return builder.build(imageName);
+  }
+
+  /**
+   * Copies the next bytes of the input into the given array, filling it.
+   *
+   * @throws ImageUtil.InvalidImageException if the input ends first.
+   */
+  private void readFully(byte[] bytes) throws IOException {
+    int copied = 0;
+    while (copied < bytes.length) {
+      if (this.position == this.limit && !this.fill()) {
+        throw new ImageUtil.InvalidImageException("Not enough pixel values");
+      }
+      int count = Math.min(bytes.length - copied, this.limit - this.position);
+      System.arraycopy(this.buffer, this.position, bytes, copied, count);
+      this.position += count;
+      copied += count;
+    }
+  }
+
+  /**
+   * Reads the next integer, which may be negative.
+   *
+   * @param endMessage the message of the exception thrown if there are no more values.
+   * @return the integer.
+   * @throws ImageUtil.InvalidImageException if there are no more values, or the next value is not
+   *                                         an integer.
+   */
+  private int nextInt(String endMessage) throws IOException {
+    int c = this.nextToken();
+    if (c == END) {
+      throw new ImageUtil.InvalidImageException(endMessage);
+    }
+
+    boolean negative = c == '-';
+    if (negative) {
+      c = this.next();
+    }
+    if (c < '0' || c > '9') {
+      throw new ImageUtil.InvalidImageException("Invalid PPM file: expected a number");
+    }
+
+    long value = 0;
+    while (c >= '0' && c <= '9') {
+      // Saturate rather than overflow, so huge values are still rejected by the range checks
+      value = Math.min(value * 10 + (c - '0'), Integer.MAX_VALUE);
+      c = this.peek();
+      if (c >= '0' && c <= '9') {
+        ++this.position;
+      }
+    }
+    if (c != END && !isSeparator(c)) {
+      throw new ImageUtil.InvalidImageException("Invalid PPM file: expected a number");
+    }
+
+    return (int) (negative ? -value : value);
+  }
+
+  /**
+   * Skips whitespace and comments, and returns the first character of the next token.
+   *
+   * @return the first character of the next token, or -1 at the end of the input.
+   */
+  private int nextToken() throws IOException {
+    while (true) {
+      int c = this.next();
+      if (c == '#') {
+        this.skipComment();
+      } else if (c == END || !isWhitespace(c)) {
+        return c;
+      }
+    }
+  }
+
+  private void skipComment() throws IOException {
+    int c;
+    do {
+      c = this.next();
+    } while (c != END && c != '\n' && c != '\r');
+  }
+
+  private int next() throws IOException {
+    if (this.position == this.limit && !this.fill()) {
+      return END;
+    }
+    return this.buffer[this.position++] & 0xFF;
+  }
+
+  private int peek() throws IOException {
+    if (this.position == this.limit && !this.fill()) {
+      return END;
+    }
+    return this.buffer[this.position] & 0xFF;
+  }
+
+  private boolean fill() throws IOException {
+    int count;
+    do {
+      count = this.source.read(this.buffer, this.buffer.length);
+    } while (count == 0);
+
+    this.consumed += this.limit;
+    this.position = 0;
+    this.limit = Math.max(count, 0);
+    return count > 0;
+  }
+
+  private static boolean isSeparator(int c) {
+    return c == END || c == '#' || isWhitespace(c);
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+  }
+}
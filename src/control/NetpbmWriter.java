@@ -0,0 +1,135 @@
+package control;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.WritableByteChannel;
+
+import model.IImage;
+import model.IPixel;
+
+/**
+ * Writes Netpbm images to a channel through a direct buffer: PPM images in the plain ("P3") or
+ * binary ("P6") encoding, and PGM images in the plain ("P2") or binary ("P5") encoding. Values are
+ * written into the buffer as bytes a row at a time, rather than being formatted as strings.
+ *
+ * <p>Plain images are written with the header on three lines and then one value per line, the
+ * same as {@link ImageUtil#savePPM(Appendable, IImage)}. Gray images are written with the shared
+ * value of pixels whose components are all equal, and the luma of any other pixel.
+ */
+final class NetpbmWriter {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  // The longest plain pixel, "255\n255\n255\n"
+  private static final int MAX_PLAIN_PIXEL = 12;
+
+  private final WritableByteChannel output;
+  private final ByteBuffer buffer;
+
+  /**
+   * Creates a writer which writes to the given channel. The channel is not closed.
+   *
+   * @param output the channel to write to.
+   */
+  NetpbmWriter(WritableByteChannel output) {
+    this.output = output;
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  }
+
+  /**
+   * Writes the given image.
+   *
+   * @param image    the image to write.
+   * @param gray     whether to write a PGM image rather than a PPM image.
+   * @param encoding whether to write a plain or a binary image.
+   * @throws IOException if the image cannot be written to the channel.
+   */
+  void write(IImage image, boolean gray, NetpbmEncoding encoding) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    boolean binary = encoding == NetpbmEncoding.BINARY;
+
+    String magic = gray ? (binary ? "P5" : "P2") : (binary ? "P6" : "P3");
+    this.buffer.put(String.format("%s\n%d %d\n%d\n", magic, width, height, IPixel.MAX_VALUE)
+            .getBytes(StandardCharsets.US_ASCII));
+
+    int[] row = new int[width];
+    for (int y = 0; y < height; ++y) {
+      image.readRow(y, row);
+
+      if (binary) {
+        this.writeBinaryRow(row, gray);
+      } else {
+        this.writePlainRow(row, gray);
+      }
+    }
+
+    this.flush();
+  }
+
+  private void writeBinaryRow(int[] row, boolean gray) throws IOException {
+    int bytesPerPixel = gray ? 1 : 3;
+
+    for (int x = 0; x < row.length; ) {
+      if (this.buffer.remaining() < bytesPerPixel) {
+        this.flush();
+      }
+      int end = Math.min(row.length, x + this.buffer.remaining() / bytesPerPixel);
+
+      for (; x < end; ++x) {
+        int rgb = row[x];
+        if (gray) {
+          this.buffer.put((byte) grayValue(rgb));
+        } else {
+          this.buffer.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+        }
+      }
+    }
+  }
+
+  private void writePlainRow(int[] row, boolean gray) throws IOException {
+    for (int rgb : row) {
+      if (this.buffer.remaining() < MAX_PLAIN_PIXEL) {
+        this.flush();
+      }
+
+      if (gray) {
+        this.putValue(grayValue(rgb));
+      } else {
+        this.putValue((rgb >> 16) & 0xFF);
+        this.putValue((rgb >> 8) & 0xFF);
+        this.putValue(rgb & 0xFF);
+      }
+    }
+  }
+
+  private void putValue(int value) {
+    if (value >= 100) {
+      this.buffer.put((byte) ('0' + value / 100));
+    }
+    if (value >= 10) {
+      this.buffer.put((byte) ('0' + value / 10 % 10));
+    }
+    this.buffer.put((byte) ('0' + value % 10)).put((byte) '\n');
+  }
+
+  private void flush() throws IOException {
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      this.output.write(this.buffer);
+    }
+    this.buffer.clear();
+  }
+
+  private static int grayValue(int rgb) {
+    int red = (rgb >> 16) & 0xFF;
+    int green = (rgb >> 8) & 0xFF;
+    int blue = rgb & 0xFF;
+
+    if (red == green && green == blue) {
+      return red;
+    }
+    // The same weights as the luma command
+    return Math.min(IPixel.MAX_VALUE, (int) (0.2126 * red + 0.7152 * green + 0.0722 * blue));
+  }
+}
@@ -0,0 +1,148 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * An implementation of {@code IImage} which reads its pixels directly from 8-bit samples in a
+ * {@code ByteBuffer}, such as a file mapped into memory with {@code FileChannel.map}, rather than
+ * copying them onto the heap. Each pixel is either three bytes (red, green, and blue) or one byte
+ * (a gray value used for all three components), and rows are stored one after another with no
+ * padding.
+ *
+ * <p>The image only reads from the buffer, using absolute indices, so it is safe to read from
+ * several threads at once. Changes to the contents of the buffer (or to a mapped file) are seen
+ * by the image, so the buffer should not be modified while the image is in use.
+ */
+public class ByteBufferImage implements IImage {
+  private final ByteBuffer buffer;
+  private final String imageName;
+  private final int width;
+  private final int height;
+  private final int channels;
+
+  /**
+   * Constructs an image which reads its pixels from the remaining bytes of the given buffer. The
+   * buffer's position and limit are not changed, and later changes to them do not affect the
+   * image.
+   *
+   * @param width     The width of the image.
+   * @param height    The height of the image.
+   * @param channels  The number of bytes per pixel: 3 for RGB samples, or 1 for gray samples.
+   * @param buffer    The buffer holding the row-major samples of the image.
+   * @param imageName The name of the image to be created.
+   * @throws IllegalArgumentException if the dimensions or number of channels are invalid, or
+   *                                  the buffer does not hold enough samples.
+   */
+  public ByteBufferImage(int width, int height, int channels, ByteBuffer buffer,
+                         String imageName) {
+    Objects.requireNonNull(buffer);
+    Objects.requireNonNull(imageName);
+
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Invalid image dimensions");
+    }
+    if (channels != 1 && channels != 3) {
+      throw new IllegalArgumentException("Images must have 1 or 3 channels");
+    }
+    long length = (long) width * height * channels;
+    if (buffer.remaining() < length) {
+      throw new IllegalArgumentException(
+              "Buffer is too small to hold an image of size " + width + "x" + height);
+    }
+
+    this.buffer = buffer.slice(buffer.position(), (int) length);
+    this.imageName = imageName;
+    this.width = width;
+    this.height = height;
+    this.channels = channels;
+  }
+
+  @Override
+  public String getImageName() {
+    return this.imageName;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public IImage withName(String imageName) {
+    return this.imageName.equals(imageName) ? this
+            : new ByteBufferImage(this.width, this.height, this.channels, this.buffer, imageName);
+  }
+
+  @Override
+  public long getMemoryFootprint() {
+    // Direct and mapped buffers are not on the heap
+    return this.buffer.isDirect() ? 0 : this.buffer.capacity();
+  }
+
+  @Override
+  public IPixel getPixel(int x, int y) {
+    return Pixel.fromRgb(this.getRgb(x, y));
+  }
+
+  @Override
+  public int getRgb(int x, int y) {
+    if (x >= this.width || y >= this.height || x < 0 || y < 0) {
+      throw new IllegalArgumentException(
+              "Pixel (" + x + ", " + y + ") out of bounds! Image size: ("
+                      + this.width + ", " + this.height + ")");
+    }
+
+    int index = (y * this.width + x) * this.channels;
+    if (this.channels == 1) {
+      return (this.buffer.get(index) & 0xFF) * 0x010101;
+    }
+    return ((this.buffer.get(index) & 0xFF) << 16) | ((this.buffer.get(index + 1) & 0xFF) << 8)
+            | (this.buffer.get(index + 2) & 0xFF);
+  }
+
+  @Override
+  public void readRegion(int x, int y, int w, int h, int[] dst, int offset) {
+    IImage.checkRegion(this.width, this.height, x, y, w, h, dst, offset);
+
+    byte[] samples = new byte[w * this.channels];
+    for (int j = 0; j < h; ++j) {
+      this.buffer.get(((y + j) * this.width + x) * this.channels, samples);
+      int start = offset + j * w;
+
+      if (this.channels == 1) {
+        for (int i = 0; i < w; ++i) {
+          dst[start + i] = (samples[i] & 0xFF) * 0x010101;
+        }
+      } else {
+        for (int i = 0, s = 0; i < w; ++i, s += 3) {
+          dst[start + i] = ((samples[s] & 0xFF) << 16) | ((samples[s + 1] & 0xFF) << 8)
+                  | (samples[s + 2] & 0xFF);
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ByteBufferImage image = (ByteBufferImage) o;
+    return width == image.width && height == image.height && channels == image.channels
+            && buffer.equals(image.buffer);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(imageName, width, height, channels, buffer);
+  }
+}
@@ -0,0 +1,144 @@
+package model;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An implementation of {@code IAlbum} which can be used by several threads at once, such as
+ * commands of a script which run in parallel. Each name maps to a future of its image, so reading
+ * an image which is already in the album never takes a lock, and adding or replacing an image is a
+ * single atomic update.
+ *
+ * <p>A name can also be reserved with {@link #reserve(String)} while its image is still being
+ * computed. Readers which ask for that image wait until it is added with
+ * {@link #addImage(IImage)}, rather than failing or seeing an older image with the same name, and
+ * get the error instead if the computation fails with {@link #fail(String, RuntimeException)}.
+ */
+public class ConcurrentAlbum implements IAlbum {
+  private final ConcurrentMap<String, CompletableFuture<IImage>> images;
+
+  /**
+   * Constructs an empty album.
+   */
+  public ConcurrentAlbum() {
+    this.images = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public void addImage(IImage image) {
+    Objects.requireNonNull(image);
+    CompletableFuture<IImage> previous =
+            this.images.put(image.getImageName(), CompletableFuture.completedFuture(image));
+
+    // Wakes up any readers waiting for the image
+    if (previous != null) {
+      previous.complete(image);
+    }
+  }
+
+  /**
+   * Marks the image with the given name as being computed, so that readers wait for it to be
+   * added instead of getting the image currently in the album, or failing if there is none. Does
+   * nothing if the image is already being computed.
+   *
+   * @param imageName the name of the image which will be added.
+   */
+  public void reserve(String imageName) {
+    Objects.requireNonNull(imageName);
+    this.images.compute(imageName, (name, future) ->
+            future != null && !future.isDone() ? future : new CompletableFuture<>());
+  }
+
+  /**
+   * Reports that the image with the given name could not be computed. Readers waiting for it get
+   * the given exception, and the name is removed from the album. Does nothing if the image is not
+   * being computed.
+   *
+   * @param imageName the name of the image which was reserved.
+   * @param cause     the exception to throw to readers of the image.
+   */
+  public void fail(String imageName, RuntimeException cause) {
+    Objects.requireNonNull(cause);
+    CompletableFuture<IImage> future = this.images.get(imageName);
+
+    if (future != null && !future.isDone() && this.images.remove(imageName, future)) {
+      future.completeExceptionally(cause);
+    }
+  }
+
+  /**
+   * Returns whether the image with the given name is in the album and not being computed.
+   *
+   * @param imageName the name of the image.
+   * @return true if {@link #getImage(String)} would return the image without waiting.
+   */
+  public boolean isAvailable(String imageName) {
+    CompletableFuture<IImage> future = this.images.get(imageName);
+    return future != null && future.isDone() && !future.isCompletedExceptionally();
+  }
+
+  /**
+   * Returns a future of the image with the given name, which is completed once the image is
+   * available.
+   *
+   * @param imageName the name of the image.
+   * @return the future of the image.
+   * @throws IllegalArgumentException if the image is neither in the album nor reserved.
+   */
+  public CompletableFuture<IImage> getImageAsync(String imageName) {
+    CompletableFuture<IImage> future = this.images.get(imageName);
+    if (future == null) {
+      throw new IllegalArgumentException("Image " + imageName + " not found!");
+    }
+    // Callers must not be able to complete the album's own future
+    return future.copy();
+  }
+
+  /**
+   * Gets the image with the given name, waiting for it if it is still being computed.
+   *
+   * @param imageName the name of the image trying to be found.
+   * @return the image.
+   * @throws IllegalArgumentException if the image is neither in the album nor reserved.
+   * @throws IllegalStateException    if the thread is interrupted while waiting.
+   */
+  @Override
+  public IImage getImage(String imageName) {
+    CompletableFuture<IImage> future = this.images.get(imageName);
+    if (future == null) {
+      throw new IllegalArgumentException("Image " + imageName + " not found!");
+    }
+
+    // Completed futures return at once, without blocking
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for image " + imageName, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Image " + imageName + " could not be computed",
+              e.getCause());
+    } catch (CancellationException e) {
+      throw new IllegalStateException("Image " + imageName + " was cancelled", e);
+    }
+  }
+
+  /**
+   * Returns the names of the images in the album, including those being computed. The set is a
+   * snapshot, which is not changed by later additions.
+   *
+   * @return a set of image names which map to images in the album.
+   */
+  @Override
+  public Set<String> getImageNames() {
+    return Set.copyOf(this.images.keySet());
+  }
+}
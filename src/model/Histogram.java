@@ -1,39 +1,460 @@
 package model;
 
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.operation.ChannelLookupTable;
+import model.operation.IPixelOperation;
+
 /**
  * Represents a histogram (a chart which shows the frequency of different
  * pixel component values) for a particular image. Contains lines for red, green,
  * blue, and intensity components.
+ *
+ * <p>Histograms are counted row by row, in bands of rows which run in parallel on the default
+ * {@code ImageExecutor}, each into its own counts which are added together at the end. Since
+ * images are immutable, {@link #of(IImage)} remembers the histograms of the most recently used
+ * images, and {@link #propagate} gives the result of a lookup table operation a histogram derived
+ * from the histogram of its original image, without computing the result. Only the intensity of
+ * a color image has to be counted again, from the pixels of the original image, once it is first
+ * needed.
+ *
+ * <p>For very large images, {@link #approximate} estimates a histogram from a stratified sample of
+ * pixels, whose size is the sample budget ({@link #setSampleBudget} or the
+ * {@code imageprocessing.histogramSamples} system property), while {@link #ofAsync} counts the
+ * exact histogram in the background.
  */
 public class Histogram {
+  // The number of images whose histograms are remembered by of(IImage)
+  private static final int CACHE_SIZE = 16;
+  // The number of standard errors within which approximate counts fall 95% of the time
+  private static final double CONFIDENCE = 1.96;
+  private static final Map<ImageKey, Histogram> CACHE =
+          new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ImageKey, Histogram> eldest) {
+              return this.size() > CACHE_SIZE;
+            }
+          };
+
+  // Exact histograms being counted in the background, by image
+  private static final Map<ImageKey, CompletableFuture<Histogram>> PENDING = new HashMap<>();
+  private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor(task -> {
+    Thread thread = new Thread(task, "histogram");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static volatile int sampleBudget = Integer.getInteger("imageprocessing.histogramSamples",
+          1 << 16);
+
+  // A third of each component value, added up exactly as the intensity has always been computed
+  private static final double[] THIRDS = new double[256];
+
+  static {
+    for (int i = 0; i < THIRDS.length; ++i) {
+      THIRDS[i] = 1.0 / 3 * i;
+    }
+  }
+
   private final int[] redHistogram;
   private final int[] greenHistogram;
   private final int[] blueHistogram;
-  private final int[] intensityHistogram;
+  // Null until it is counted, for a derived histogram of a color image
+  private int[] intensityHistogram;
+  // The image and table which the intensity is counted from, until it is counted
+  private IImage intensitySource;
+  private ChannelLookupTable intensityTable;
+  // Whether every pixel has equal red, green, and blue components (false until it is known)
+  private boolean gray;
+  private boolean exact = true;
+  private int errorBound;
 
   /**
    * Construct a histogram chart based on the given image.
    * @param image The image to build the histogram from.
    */
   public Histogram(IImage image) {
-    this.redHistogram = new int[256];
-    this.greenHistogram = new int[256];
-    this.blueHistogram = new int[256];
-    this.intensityHistogram = new int[256];
-
-    for (int x = 0; x < image.getWidth(); ++x) {
-      for (int y = 0; y < image.getHeight(); ++y) {
-        IPixel pixel = image.getPixel(x, y);
-        this.redHistogram[pixel.getRed()] += 1;
-        this.greenHistogram[pixel.getGreen()] += 1;
-        this.blueHistogram[pixel.getBlue()] += 1;
-
-        int intensity = (int) (1.0 / 3 * pixel.getRed()
-                + 1.0 / 3 * pixel.getGreen()
-                + 1.0 / 3 * pixel.getBlue());
-        this.intensityHistogram[intensity] += 1;
+    this(new int[256], new int[256], new int[256], new int[256], true);
+
+    int width = image.getWidth();
+    ImageExecutor.getDefault().forEachBand(width, image.getHeight(), (startY, endY) -> {
+      Histogram band = new Histogram(new int[256], new int[256], new int[256], new int[256],
+              true);
+      int[] row = new int[width];
+
+      for (int y = startY; y < endY; ++y) {
+        image.readRow(y, row);
+        band.count(row);
+      }
+      this.add(band);
+    });
+  }
+
+  private Histogram(int[] red, int[] green, int[] blue, int[] intensity, boolean gray) {
+    this.redHistogram = red;
+    this.greenHistogram = green;
+    this.blueHistogram = blue;
+    this.intensityHistogram = intensity;
+    this.gray = gray;
+  }
+
+  /**
+   * Returns the histogram of the given image, reusing the histogram of the same image if it was
+   * recently built or derived.
+   *
+   * @param image The image to build the histogram from.
+   * @return The histogram of the image.
+   */
+  public static Histogram of(IImage image) {
+    Objects.requireNonNull(image);
+    ImageKey key = new ImageKey(image);
+    synchronized (CACHE) {
+      Histogram histogram = CACHE.get(key);
+      if (histogram != null) {
+        return histogram;
+      }
+    }
+
+    Histogram histogram = new Histogram(image);
+    synchronized (CACHE) {
+      CACHE.put(key, histogram);
+    }
+    return histogram;
+  }
+
+  /**
+   * Returns the histogram of the image made by applying the given lookup table to every pixel of
+   * an image with the given histogram. The red, green, and blue counts are moved to the values
+   * the table maps them to. The intensity depends on all three components of each pixel, so
+   * unless every pixel of the original image was gray, it is only counted when it is first
+   * needed, from the pixels of the original image mapped through the table. Until then, the
+   * histogram keeps the original image. Deriving a histogram from one whose intensity has not been
+   * counted yet reads the same image, through both tables, so no image in between is read.
+   *
+   * @param original The histogram of the original image.
+   * @param image The original image.
+   * @param table The lookup table applied to each pixel.
+   * @return The histogram of the new image, or an empty optional if the original histogram is
+   *         approximate.
+   */
+  public static Optional<Histogram> derive(Histogram original, IImage image,
+                                           ChannelLookupTable table) {
+    Objects.requireNonNull(original);
+    Objects.requireNonNull(image);
+    Objects.requireNonNull(table);
+    if (!original.exact) {
+      return Optional.empty();
+    }
+
+    int[] intensity;
+    IImage source;
+    ChannelLookupTable sourceTable;
+    boolean gray;
+    synchronized (original) {
+      intensity = original.intensityHistogram;
+      source = original.intensitySource;
+      sourceTable = original.intensityTable;
+      gray = original.gray;
+    }
+
+    Histogram result = new Histogram(new int[256], new int[256], new int[256],
+            gray ? new int[256] : null, gray);
+    for (int value = 0; value < 256; ++value) {
+      result.redHistogram[table.getRed(value)] += original.redHistogram[value];
+      result.greenHistogram[table.getGreen(value)] += original.greenHistogram[value];
+      result.blueHistogram[table.getBlue(value)] += original.blueHistogram[value];
+    }
+
+    if (gray) {
+      for (int value = 0; value < 256; ++value) {
+        int count = original.redHistogram[value];
+        if (count == 0) {
+          continue;
+        }
+        int red = table.getRed(value);
+        int green = table.getGreen(value);
+        int blue = table.getBlue(value);
+        result.intensityHistogram[intensity(red, green, blue)] += count;
+        result.gray &= red == green && green == blue;
+      }
+    } else if (intensity == null) {
+      result.intensitySource = source;
+      result.intensityTable = sourceTable.then(table);
+    } else {
+      result.intensitySource = image;
+      result.intensityTable = table;
+    }
+    return Optional.of(result);
+  }
+
+  /**
+   * Counts the intensities of the pixels of the given image, mapped through the given table.
+   */
+  private static Histogram countIntensity(IImage image, ChannelLookupTable table) {
+    Histogram result = new Histogram(new int[256], new int[256], new int[256], new int[256],
+            true);
+    int width = image.getWidth();
+    ImageExecutor.getDefault().forEachBand(width, image.getHeight(), (startY, endY) -> {
+      Histogram band = new Histogram(new int[256], new int[256], new int[256], new int[256],
+              true);
+      int[] row = new int[width];
+
+      for (int y = startY; y < endY; ++y) {
+        image.readRow(y, row);
+        for (int rgb : row) {
+          int red = table.getRed((rgb >> 16) & 0xFF);
+          int green = table.getGreen((rgb >> 8) & 0xFF);
+          int blue = table.getBlue(rgb & 0xFF);
+          band.intensityHistogram[intensity(red, green, blue)] += 1;
+          band.gray &= red == green && green == blue;
+        }
+      }
+      result.addIntensity(band);
+    });
+    return result;
+  }
+
+  /**
+   * Returns the intensity counts, counting them first if they were derived and are needed for the
+   * first time.
+   */
+  private synchronized int[] getIntensityHistogram() {
+    if (this.intensityHistogram == null) {
+      Histogram counted = countIntensity(this.intensitySource, this.intensityTable);
+      this.intensityHistogram = counted.intensityHistogram;
+      this.gray = counted.gray;
+      this.intensitySource = null;
+      this.intensityTable = null;
+    }
+    return this.intensityHistogram;
+  }
+
+  /**
+   * Remembers the histogram of an image created by applying the given operation to another
+   * image, if the operation is a lookup table, the exact histogram of the original image is
+   * already known, and the new histogram can be derived from it.
+   *
+   * @param original The image the operation was applied to.
+   * @param operation The operation which was applied.
+   * @param result The image created by the operation.
+   */
+  public static void propagate(IImage original, IPixelOperation operation, IImage result) {
+    Optional<ChannelLookupTable> table = operation.toLookupTable();
+    if (table.isEmpty()) {
+      return;
+    }
+
+    Histogram histogram;
+    synchronized (CACHE) {
+      histogram = CACHE.get(new ImageKey(original));
+    }
+    if (histogram != null) {
+      derive(histogram, original, table.get()).ifPresent(derived -> {
+        synchronized (CACHE) {
+          CACHE.put(new ImageKey(result), derived);
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns the exact histogram of the given image if it is already known, without counting it.
+   *
+   * @param image The image whose histogram is needed.
+   * @return The histogram, or an empty optional if it has not been counted.
+   */
+  public static Optional<Histogram> getCached(IImage image) {
+    synchronized (CACHE) {
+      return Optional.ofNullable(CACHE.get(new ImageKey(image)));
+    }
+  }
+
+  /**
+   * Counts the exact histogram of the given image on a background thread, unless it is already
+   * known or being counted. The histogram is remembered as if by {@link #of(IImage)}.
+   *
+   * @param image The image to build the histogram from.
+   * @return A future which is completed with the histogram.
+   */
+  public static CompletableFuture<Histogram> ofAsync(IImage image) {
+    Objects.requireNonNull(image);
+    ImageKey key = new ImageKey(image);
+    CompletableFuture<Histogram> future;
+
+    synchronized (CACHE) {
+      Histogram histogram = CACHE.get(key);
+      if (histogram != null) {
+        return CompletableFuture.completedFuture(histogram);
+      }
+      future = PENDING.get(key);
+      if (future != null) {
+        return future;
+      }
+      future = new CompletableFuture<>();
+      PENDING.put(key, future);
+    }
+
+    CompletableFuture<Histogram> result = future;
+    BACKGROUND.execute(() -> {
+      try {
+        result.complete(of(image));
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+      } finally {
+        synchronized (CACHE) {
+          PENDING.remove(key);
+        }
       }
+    });
+    return result;
+  }
+
+  /**
+   * Returns the number of pixels sampled by default to approximate a histogram.
+   *
+   * @return the sample budget.
+   */
+  public static int getSampleBudget() {
+    return sampleBudget;
+  }
+
+  /**
+   * Sets the number of pixels sampled by default to approximate a histogram.
+   *
+   * @param samples the new sample budget.
+   * @throws IllegalArgumentException if the budget is not positive.
+   */
+  public static void setSampleBudget(int samples) {
+    if (samples < 1) {
+      throw new IllegalArgumentException("The sample budget must be positive");
     }
+    sampleBudget = samples;
+  }
+
+  /**
+   * Estimates the histogram of the given image from about the given number of pixels. The image
+   * is divided into a grid of cells, one per sample, and one pixel is chosen at random from each
+   * cell, so every part of the image is represented. Each count is scaled up from the samples to
+   * the whole image. If the image has no more pixels than the budget, the exact histogram is
+   * counted instead.
+   *
+   * @param image The image to estimate the histogram of.
+   * @param samples The number of pixels to sample.
+   * @return The approximate histogram.
+   * @throws IllegalArgumentException if the number of samples is not positive.
+   */
+  public static Histogram approximate(IImage image, int samples) {
+    if (samples < 1) {
+      throw new IllegalArgumentException("The sample budget must be positive");
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    long size = (long) width * height;
+    if (size <= samples) {
+      return new Histogram(image);
+    }
+
+    // Cells as close to square as the image allows
+    int rows = (int) Math.max(1, Math.min(height, Math.round(Math.sqrt(
+            (double) samples * height / width))));
+    int columns = Math.max(1, Math.min(width, samples / rows));
+    Histogram sample = new Histogram(new int[256], new int[256], new int[256], new int[256],
+            true);
+    Random random = new Random(size);
+    int[] pixels = new int[rows * columns];
+
+    for (int row = 0; row < rows; ++row) {
+      int top = (int) ((long) row * height / rows);
+      int bottom = (int) ((long) (row + 1) * height / rows);
+      for (int column = 0; column < columns; ++column) {
+        int left = (int) ((long) column * width / columns);
+        int right = (int) ((long) (column + 1) * width / columns);
+        pixels[row * columns + column] = image.getRgb(left + random.nextInt(right - left),
+                top + random.nextInt(bottom - top));
+      }
+    }
+    sample.count(pixels);
+
+    double scale = (double) size / pixels.length;
+    Histogram result = new Histogram(scale(sample.redHistogram, scale),
+            scale(sample.greenHistogram, scale), scale(sample.blueHistogram, scale),
+            scale(sample.intensityHistogram, scale), sample.gray);
+    result.exact = false;
+    // The standard error of a proportion is largest, 0.5 / sqrt(n), when it is one half
+    result.errorBound = (int) Math.min(size,
+            Math.ceil(CONFIDENCE * 0.5 / Math.sqrt(pixels.length) * size));
+    return result;
+  }
+
+  private static int[] scale(int[] counts, double scale) {
+    int[] result = new int[counts.length];
+    for (int i = 0; i < counts.length; ++i) {
+      result[i] = (int) Math.round(counts[i] * scale);
+    }
+    return result;
+  }
+
+  private static int intensity(int red, int green, int blue) {
+    return (int) (THIRDS[red] + THIRDS[green] + THIRDS[blue]);
+  }
+
+  private void count(int[] row) {
+    boolean grayRow = true;
+    for (int rgb : row) {
+      int red = (rgb >> 16) & 0xFF;
+      int green = (rgb >> 8) & 0xFF;
+      int blue = rgb & 0xFF;
+      this.redHistogram[red] += 1;
+      this.greenHistogram[green] += 1;
+      this.blueHistogram[blue] += 1;
+      this.intensityHistogram[intensity(red, green, blue)] += 1;
+      grayRow &= red == green && green == blue;
+    }
+    this.gray &= grayRow;
+  }
+
+  private synchronized void add(Histogram band) {
+    for (int i = 0; i < 256; ++i) {
+      this.redHistogram[i] += band.redHistogram[i];
+      this.greenHistogram[i] += band.greenHistogram[i];
+      this.blueHistogram[i] += band.blueHistogram[i];
+      this.intensityHistogram[i] += band.intensityHistogram[i];
+    }
+    this.gray &= band.gray;
+  }
+
+  private synchronized void addIntensity(Histogram band) {
+    for (int i = 0; i < 256; ++i) {
+      this.intensityHistogram[i] += band.intensityHistogram[i];
+    }
+    this.gray &= band.gray;
+  }
+
+  /**
+   * Return whether this histogram counts every pixel of its image, rather than being estimated
+   * from a sample.
+   * @return True if the counts are exact.
+   */
+  public boolean isExact() {
+    return this.exact;
+  }
+
+  /**
+   * Return how far each count of an approximate histogram may be from the exact count. Each
+   * count is within this bound of the exact count with 95% confidence.
+   * @return The error bound, which is zero for exact histograms.
+   */
+  public int getErrorBound() {
+    return this.errorBound;
   }
 
   /**
@@ -81,7 +502,7 @@ public class Histogram {
     if (value < 0 || value > 255) {
       throw new IllegalArgumentException("Invalid pixel value");
     }
-    return this.intensityHistogram[value];
+    return this.getIntensityHistogram()[value];
   }
 
   /**
@@ -100,9 +521,39 @@ public class Histogram {
     for (int count : this.blueHistogram) {
       max = Math.max(max, count);
     }
-    for (int count : this.intensityHistogram) {
+    for (int count : this.getIntensityHistogram()) {
       max = Math.max(max, count);
     }
     return max;
   }
+
+  /**
+   * Identifies an image by reference, without keeping it from being garbage collected.
+   */
+  private static final class ImageKey {
+    private final WeakReference<IImage> image;
+    private final int hash;
+
+    ImageKey(IImage image) {
+      this.image = new WeakReference<>(image);
+      this.hash = System.identityHashCode(image);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ImageKey)) {
+        return false;
+      }
+      IImage image = this.image.get();
+      return image != null && image == ((ImageKey) o).image.get();
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+  }
 }
@@ -35,4 +35,184 @@ public interface IImage {
    * @return the {@code Pixel} at the given location.
    */
   IPixel getPixel(int x, int y);
+
+  /**
+   * Returns an estimate of the heap memory used by the pixels of this image, in bytes. By
+   * default, this assumes four bytes per pixel.
+   *
+   * @return the estimated memory footprint of the image.
+   */
+  default long getMemoryFootprint() {
+    return 4L * this.getWidth() * this.getHeight();
+  }
+
+  /**
+   * Returns an image with the same size and pixels as this one under the given name. Images
+   * whose pixels are immutable share them with the new image instead of copying them; by
+   * default, the pixels are copied into a {@code PackedImage}.
+   *
+   * @param imageName the name of the new image.
+   * @return this image if it already has the given name, otherwise the renamed image.
+   */
+  default IImage withName(String imageName) {
+    if (this.getImageName().equals(imageName)) {
+      return this;
+    }
+    int[] data = new int[this.getWidth() * this.getHeight()];
+    this.readRegion(0, 0, this.getWidth(), this.getHeight(), data);
+    return PackedImage.wrap(this.getWidth(), this.getHeight(), data, imageName);
+  }
+
+  /**
+   * Returns a 64-bit hash of the size and pixels of this image, which is the same for any two
+   * images with the same size and pixels, whatever their names or implementations. It is used to
+   * recognize images with the same contents without comparing them pixel by pixel.
+   *
+   * @return the hash of the contents of the image.
+   */
+  default long getContentHash() {
+    int[] row = new int[this.getWidth()];
+    long hash = hashSize(this.getWidth(), this.getHeight());
+
+    for (int y = 0; y < this.getHeight(); ++y) {
+      this.readRow(y, row);
+      hash = hashPixels(hash, row, 0, row.length);
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the color of the pixel at the given location, packed into a single integer as
+   * 0xRRGGBB. Implementations backed by packed storage should override this to avoid creating
+   * a {@code Pixel}.
+   *
+   * @param x the x coordinate of the pixel.
+   * @param y the y coordinate of the pixel.
+   * @return the packed color of the pixel at the given location.
+   */
+  default int getRgb(int x, int y) {
+    return Pixel.toRgb(this.getPixel(x, y));
+  }
+
+  /**
+   * Copies the packed colors of one row of the image into the given array, starting at index 0.
+   *
+   * @param y   the y coordinate of the row.
+   * @param dst the array to copy the row into, which must hold at least {@code getWidth()} values.
+   * @throws IllegalArgumentException if the row is out of bounds or the array is too small.
+   */
+  default void readRow(int y, int[] dst) {
+    this.readRegion(0, y, this.getWidth(), 1, dst);
+  }
+
+  /**
+   * Copies the packed colors of a rectangular region of the image into the given array, in
+   * row-major order starting at index 0, so that pixel (x + i, y + j) ends up at index
+   * {@code j * w + i}.
+   *
+   * @param x   the x coordinate of the top-left corner of the region.
+   * @param y   the y coordinate of the top-left corner of the region.
+   * @param w   the width of the region.
+   * @param h   the height of the region.
+   * @param dst the array to copy the region into, which must hold at least {@code w * h} values.
+   * @throws IllegalArgumentException if the region is out of bounds or the array is too small.
+   */
+  default void readRegion(int x, int y, int w, int h, int[] dst) {
+    this.readRegion(x, y, w, h, dst, 0);
+  }
+
+  /**
+   * Copies the packed colors of a rectangular region of the image into the given array, in
+   * row-major order starting at the given offset, so that pixel (x + i, y + j) ends up at index
+   * {@code offset + j * w + i}.
+   *
+   * @param x      the x coordinate of the top-left corner of the region.
+   * @param y      the y coordinate of the top-left corner of the region.
+   * @param w      the width of the region.
+   * @param h      the height of the region.
+   * @param dst    the array to copy the region into.
+   * @param offset the index in the array to copy the top-left corner of the region to.
+   * @throws IllegalArgumentException if the region is out of bounds or the array is too small.
+   */
+  default void readRegion(int x, int y, int w, int h, int[] dst, int offset) {
+    checkRegion(this.getWidth(), this.getHeight(), x, y, w, h, dst, offset);
+
+    for (int j = 0; j < h; ++j) {
+      for (int i = 0; i < w; ++i) {
+        dst[offset + j * w + i] = this.getRgb(x + i, y + j);
+      }
+    }
+  }
+
+  /**
+   * Starts a content hash (see {@link #getContentHash()}) for an image of the given size.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @return the initial hash.
+   */
+  static long hashSize(int width, int height) {
+    return ((long) width << 32 | height) * 0x9E3779B97F4A7C15L;
+  }
+
+  /**
+   * Adds the given packed pixels, in row-major order, to a content hash.
+   *
+   * @param hash   the hash of the pixels before these ones.
+   * @param pixels the pixels, packed as 0xRRGGBB.
+   * @param from   the index of the first pixel, inclusive.
+   * @param to     the index of the last pixel, exclusive.
+   * @return the updated hash.
+   */
+  static long hashPixels(long hash, int[] pixels, int from, int to) {
+    for (int i = from; i < to; ++i) {
+      hash = (hash ^ (pixels[i] & 0xFFFFFF)) * 0xC2B2AE3D27D4EB4FL;
+      hash ^= hash >>> 29;
+    }
+    return hash;
+  }
+
+  /**
+   * Checks that the given region lies within an image of the given size, and that the given
+   * array is large enough to hold it.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param x      the x coordinate of the top-left corner of the region.
+   * @param y      the y coordinate of the top-left corner of the region.
+   * @param w      the width of the region.
+   * @param h      the height of the region.
+   * @param array  the array which will hold the region.
+   * @throws IllegalArgumentException if the region is out of bounds or the array is too small.
+   */
+  static void checkRegion(int width, int height, int x, int y, int w, int h, int[] array) {
+    checkRegion(width, height, x, y, w, h, array, 0);
+  }
+
+  /**
+   * Checks that the given region lies within an image of the given size, and that the given
+   * array is large enough to hold it starting at the given offset.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param x      the x coordinate of the top-left corner of the region.
+   * @param y      the y coordinate of the top-left corner of the region.
+   * @param w      the width of the region.
+   * @param h      the height of the region.
+   * @param array  the array which will hold the region.
+   * @param offset the index in the array where the region starts.
+   * @throws IllegalArgumentException if the region is out of bounds or the array is too small.
+   */
+  static void checkRegion(int width, int height, int x, int y, int w, int h, int[] array,
+                          int offset) {
+    if (x < 0 || y < 0 || w < 0 || h < 0 || x + w > width || y + h > height) {
+      throw new IllegalArgumentException(
+              "Region (" + x + ", " + y + ", " + w + ", " + h + ") out of bounds! Image size: ("
+                      + width + ", " + height + ")");
+    }
+    if (offset < 0 || array.length - offset < w * h) {
+      throw new IllegalArgumentException("Array is too small to hold region of size "
+              + w + "x" + h);
+    }
+  }
 }
@@ -79,11 +79,17 @@ public class Image implements IImage {
 
     this.pixelArray = new Pixel[height][width];
 
-    for (int y = 0; y < height; ++y) {
-      for (int x = 0; x < width; ++x) {
-        this.pixelArray[y][x] = operation.apply(original.getPixel(x, y));
+    IPixel[][] result = this.pixelArray;
+    ImageExecutor.getDefault().forEachBand(width, height, (startY, endY) -> {
+      int[] row = new int[width];
+      for (int y = startY; y < endY; ++y) {
+        original.readRow(y, row);
+        operation.applyRgb(row, 0, width);
+        for (int x = 0; x < width; ++x) {
+          result[y][x] = Pixel.fromRgb(row[x]);
+        }
       }
-    }
+    });
   }
 
   /**
@@ -103,11 +109,16 @@ public class Image implements IImage {
 
     this.pixelArray = new Pixel[height][width];
 
-    for (int y = 0; y < height; ++y) {
-      for (int x = 0; x < width; ++x) {
-        this.pixelArray[y][x] = operation.apply(x, y, original);
+    IPixel[][] result = this.pixelArray;
+    int[] colors = new int[width * height];
+    ImageExecutor.getDefault().forEachBand(width, height, (startY, endY) -> {
+      operation.applyRows(original, startY, endY, colors);
+      for (int y = startY; y < endY; ++y) {
+        for (int x = 0; x < width; ++x) {
+          result[y][x] = Pixel.fromRgb(colors[y * width + x]);
+        }
       }
-    }
+    });
   }
 
   @Override
@@ -125,6 +136,12 @@ public class Image implements IImage {
     return this.height;
   }
 
+  @Override
+  public long getMemoryFootprint() {
+    // A reference and a pixel object for each pixel, and an array header for each row
+    return 28L * this.width * this.height + 16L * (this.height + 1);
+  }
+
   @Override
   public IPixel getPixel(int x, int y) {
     if (x >= this.width || y >= this.height || x < 0 || y < 0) {
@@ -0,0 +1,119 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * A mutable buffer of packed 0xRRGGBB colors which can be filled in pixel by pixel, row by row,
+ * or region by region, and then turned into an immutable {@code IImage}. Once an image has been
+ * built, the builder can no longer be used.
+ */
+public class ImageBuilder {
+  private final int width;
+  private final int height;
+  private int[] data;
+
+  /**
+   * Constructs a builder for an image of the given size, with every pixel initially black.
+   *
+   * @param width  The width of the image.
+   * @param height The height of the image.
+   */
+  public ImageBuilder(int width, int height) {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Invalid image dimensions");
+    }
+    this.width = width;
+    this.height = height;
+    this.data = new int[width * height];
+  }
+
+  /**
+   * Returns the width of the image being built.
+   *
+   * @return the width of the image.
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Returns the height of the image being built.
+   *
+   * @return the height of the image.
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Sets the packed color of the pixel at the given location.
+   *
+   * @param x   the x coordinate of the pixel.
+   * @param y   the y coordinate of the pixel.
+   * @param rgb the packed color of the pixel.
+   */
+  public void setRgb(int x, int y, int rgb) {
+    this.checkNotBuilt();
+    if (x >= this.width || y >= this.height || x < 0 || y < 0) {
+      throw new IllegalArgumentException(
+              "Pixel (" + x + ", " + y + ") out of bounds! Image size: ("
+                      + this.width + ", " + this.height + ")");
+    }
+    this.data[y * this.width + x] = rgb & 0xFFFFFF;
+  }
+
+  /**
+   * Copies one row of packed colors from the given array, starting at index 0, into the image.
+   *
+   * @param y   the y coordinate of the row.
+   * @param src the array holding at least {@code getWidth()} packed colors.
+   */
+  public void writeRow(int y, int[] src) {
+    this.writeRegion(0, y, this.width, 1, src);
+  }
+
+  /**
+   * Copies a rectangular region of packed colors from the given array into the image. The array
+   * is read in row-major order starting at index 0, so that index {@code j * w + i} ends up at
+   * pixel (x + i, y + j).
+   *
+   * @param x   the x coordinate of the top-left corner of the region.
+   * @param y   the y coordinate of the top-left corner of the region.
+   * @param w   the width of the region.
+   * @param h   the height of the region.
+   * @param src the array holding at least {@code w * h} packed colors.
+   */
+  public void writeRegion(int x, int y, int w, int h, int[] src) {
+    this.checkNotBuilt();
+    Objects.requireNonNull(src);
+    IImage.checkRegion(this.width, this.height, x, y, w, h, src);
+
+    for (int j = 0; j < h; ++j) {
+      int offset = (y + j) * this.width + x;
+      for (int i = 0; i < w; ++i) {
+        this.data[offset + i] = src[j * w + i] & 0xFFFFFF;
+      }
+    }
+  }
+
+  /**
+   * Creates an image containing the pixels written so far, using the default image storage.
+   * The builder cannot be used after this method is called.
+   *
+   * @param imageName the name of the image to create.
+   * @return the newly created image.
+   */
+  public IImage build(String imageName) {
+    this.checkNotBuilt();
+    Objects.requireNonNull(imageName);
+    int[] result = this.data;
+    this.data = null;
+    return ImageStorage.getDefault().create(this.width, this.height, result, imageName);
+  }
+
+  private void checkNotBuilt() {
+    if (this.data == null) {
+      throw new IllegalStateException("Image has already been built");
+    }
+  }
+}
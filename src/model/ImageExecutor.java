@@ -0,0 +1,200 @@
+package model;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs work over the rows of an image in parallel. The rows are split into bands which are run
+ * on a {@code ForkJoinPool}, and small images are processed on the calling thread instead. Since
+ * every band computes its own rows exactly as a single sequential pass would, the output does not
+ * depend on how the rows are split.
+ *
+ * <p>The default executor uses one thread per available processor, which can be changed with the
+ * {@code imageprocessing.parallelism} system property or by setting a different default.
+ *
+ * <p>When the calling thread runs under a {@code TaskMonitor}, every finished band is reported to
+ * it, and no more bands are started once it has been cancelled. Monitored images which would be
+ * processed sequentially are still split into bands, so that they report progress too.
+ */
+public class ImageExecutor {
+  /**
+   * The default number of pixels below which images are processed sequentially.
+   */
+  public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 1 << 16;
+
+  // How many bands each thread gets, so that uneven bands can be balanced by work stealing
+  private static final int BANDS_PER_THREAD = 4;
+  // How many bands monitored images which are processed sequentially are split into
+  private static final int PROGRESS_BANDS = 16;
+
+  private static volatile ImageExecutor defaultExecutor = new ImageExecutor(
+          Math.max(1, Integer.getInteger("imageprocessing.parallelism",
+                  Runtime.getRuntime().availableProcessors())),
+          DEFAULT_SEQUENTIAL_THRESHOLD);
+
+  private final int parallelism;
+  private final long sequentialThreshold;
+  private ForkJoinPool pool;
+
+  /**
+   * Represents some work to do on a band of rows of an image.
+   */
+  public interface BandTask {
+    /**
+     * Do the work for the rows in [startY, endY).
+     *
+     * @param startY the first row of the band, inclusive.
+     * @param endY   the last row of the band, exclusive.
+     */
+    void run(int startY, int endY);
+  }
+
+  /**
+   * Constructs an executor which uses the given number of threads.
+   *
+   * @param parallelism         the number of threads to use; 1 runs everything sequentially.
+   * @param sequentialThreshold the number of pixels below which images are processed
+   *                            sequentially.
+   * @throws IllegalArgumentException if the parallelism is not positive or the threshold is
+   *                                  negative.
+   */
+  public ImageExecutor(int parallelism, long sequentialThreshold) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+    if (sequentialThreshold < 0) {
+      throw new IllegalArgumentException("Sequential threshold must not be negative");
+    }
+    this.parallelism = parallelism;
+    this.sequentialThreshold = sequentialThreshold;
+  }
+
+  /**
+   * Returns the executor used when creating new images.
+   *
+   * @return the default executor.
+   */
+  public static ImageExecutor getDefault() {
+    return defaultExecutor;
+  }
+
+  /**
+   * Sets the executor used when creating new images, and shuts down the threads of the executor
+   * it replaces.
+   *
+   * @param executor the new default executor.
+   */
+  public static void setDefault(ImageExecutor executor) {
+    Objects.requireNonNull(executor);
+    ImageExecutor previous;
+    synchronized (ImageExecutor.class) {
+      previous = defaultExecutor;
+      defaultExecutor = executor;
+    }
+    if (previous != executor) {
+      previous.shutdown();
+    }
+  }
+
+  /**
+   * Returns the number of threads this executor uses.
+   *
+   * @return the parallelism of this executor.
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Shuts down the threads of this executor once the bands which are running have finished. The
+   * executor can still be used afterwards, and starts new threads when it next needs them.
+   */
+  public synchronized void shutdown() {
+    if (this.pool != null) {
+      this.pool.shutdown();
+      this.pool = null;
+    }
+  }
+
+  /**
+   * Runs the given task over every row of an image of the given size, split into bands. The
+   * bands may run concurrently, so the task must only write to the rows it is given. This method
+   * returns once every band has finished, and rethrows any exception thrown by a band.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @param task   the work to do for each band.
+   * @throws java.util.concurrent.CancellationException if the current task's monitor is
+   *                                                    cancelled.
+   */
+  public void forEachBand(int width, int height, BandTask task) {
+    Objects.requireNonNull(task);
+    TaskMonitor monitor = TaskMonitor.current();
+    BandTask band = monitor == null ? task : monitored(task, monitor, height);
+
+    if (this.parallelism == 1 || height < 2 || (long) width * height < this.sequentialThreshold) {
+      if (monitor == null) {
+        task.run(0, height);
+        return;
+      }
+      int rowsPerBand = (height + PROGRESS_BANDS - 1) / PROGRESS_BANDS;
+      for (int startY = 0; startY < height; startY += rowsPerBand) {
+        band.run(startY, Math.min(height, startY + rowsPerBand));
+      }
+      return;
+    }
+
+    int bands = Math.min(height, this.parallelism * BANDS_PER_THREAD);
+    int rowsPerBand = (height + bands - 1) / bands;
+    this.getPool().invoke(new BandAction(band, 0, height, rowsPerBand));
+  }
+
+  private static BandTask monitored(BandTask task, TaskMonitor monitor, int height) {
+    AtomicLong done = new AtomicLong();
+    return (startY, endY) -> {
+      monitor.checkCancelled();
+      task.run(startY, endY);
+      monitor.progressed(done.addAndGet(endY - startY), height);
+    };
+  }
+
+  private synchronized ForkJoinPool getPool() {
+    if (this.pool == null) {
+      this.pool = new ForkJoinPool(this.parallelism);
+    }
+    return this.pool;
+  }
+
+  /**
+   * Splits a range of rows in half until each piece is no larger than a band.
+   */
+  private static class BandAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final BandTask task;
+    private final int startY;
+    private final int endY;
+    private final int rowsPerBand;
+
+    BandAction(BandTask task, int startY, int endY, int rowsPerBand) {
+      this.task = task;
+      this.startY = startY;
+      this.endY = endY;
+      this.rowsPerBand = rowsPerBand;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.endY - this.startY <= this.rowsPerBand) {
+        this.task.run(this.startY, this.endY);
+        return;
+      }
+
+      int middle = this.startY + (this.endY - this.startY) / 2;
+      invokeAll(new BandAction(this.task, this.startY, middle, this.rowsPerBand),
+              new BandAction(this.task, middle, this.endY, this.rowsPerBand));
+    }
+  }
+}
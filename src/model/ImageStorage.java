@@ -0,0 +1,117 @@
+package model;
+
+import java.util.Objects;
+
+import model.operation.IKernelOperation;
+import model.operation.IPixelOperation;
+
+/**
+ * Represents the ways in which the pixels of an image can be stored. Commands and image loaders
+ * create images through the default storage, which can be changed to select a different
+ * {@code IImage} implementation for the whole program.
+ */
+public enum ImageStorage {
+  /**
+   * Stores each pixel as a separate {@code IPixel} object, using {@code Image}.
+   */
+  PIXEL_ARRAY {
+    @Override
+    public IImage create(int width, int height, int[] data, String imageName) {
+      Objects.requireNonNull(data);
+      if (width < 0 || height < 0 || data.length != width * height) {
+        throw new IllegalArgumentException("Array length does not match provided size "
+                + width + "x" + height);
+      }
+
+      IPixel[][] pixels = new IPixel[height][width];
+      for (int y = 0; y < height; ++y) {
+        for (int x = 0; x < width; ++x) {
+          pixels[y][x] = Pixel.fromRgb(data[y * width + x]);
+        }
+      }
+      return new Image(width, height, pixels, imageName);
+    }
+
+    @Override
+    public IImage apply(IImage original, IPixelOperation operation, String imageName) {
+      return new Image(original, operation, imageName);
+    }
+
+    @Override
+    public IImage apply(IImage original, IKernelOperation operation, String imageName) {
+      return new Image(original, operation, imageName);
+    }
+  },
+
+  /**
+   * Stores each pixel as a single packed integer, using {@code PackedImage}.
+   */
+  PACKED {
+    @Override
+    public IImage create(int width, int height, int[] data, String imageName) {
+      return PackedImage.wrap(width, height, data, imageName);
+    }
+
+    @Override
+    public IImage apply(IImage original, IPixelOperation operation, String imageName) {
+      return new PackedImage(original, operation, imageName);
+    }
+
+    @Override
+    public IImage apply(IImage original, IKernelOperation operation, String imageName) {
+      return new PackedImage(original, operation, imageName);
+    }
+  };
+
+  private static volatile ImageStorage defaultStorage = PACKED;
+
+  /**
+   * Returns the storage used when creating new images.
+   *
+   * @return the default storage.
+   */
+  public static ImageStorage getDefault() {
+    return defaultStorage;
+  }
+
+  /**
+   * Sets the storage used when creating new images.
+   *
+   * @param storage the new default storage.
+   */
+  public static void setDefault(ImageStorage storage) {
+    defaultStorage = Objects.requireNonNull(storage);
+  }
+
+  /**
+   * Creates an image from the given row-major pixel data, with each pixel packed as 0xRRGGBB.
+   * The image may use the given array directly, so the caller must not modify it afterwards.
+   *
+   * @param width     The width of the image.
+   * @param height    The height of the image.
+   * @param data      The pixel data of the image.
+   * @param imageName The name of the image to be created.
+   * @return The newly created image.
+   */
+  public abstract IImage create(int width, int height, int[] data, String imageName);
+
+  /**
+   * Creates an image by applying the given operation to each pixel in an existing image.
+   *
+   * @param original  The original image to create the new image from.
+   * @param operation The operation to apply to pixels in the old image.
+   * @param imageName The name of the new image.
+   * @return The newly created image.
+   */
+  public abstract IImage apply(IImage original, IPixelOperation operation, String imageName);
+
+  /**
+   * Creates an image by applying the given kernel operation to an existing image.
+   *
+   * @param original  The original image to perform the provided operation to.
+   * @param operation The kernel operation to perform.
+   * @param imageName The name of the newly created image.
+   * @return The newly created image.
+   */
+  public abstract IImage apply(IImage original, IKernelOperation operation, String imageName);
+}
@@ -0,0 +1,213 @@
+package model;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import model.operation.IPixelOperation;
+
+/**
+ * An implementation of {@code IImage} whose pixels are only computed when something reads them,
+ * such as saving the image, building its histogram, showing it in the GUI, or an operation which
+ * cannot be deferred. Its name and size are known up front, so an image which is never read is
+ * never computed at all. Once computed, the image is kept and the inputs of the computation are
+ * released.
+ *
+ * <p>A pixel operation deferred on top of another deferred pixel operation which has not been
+ * computed yet is fused with it, so a chain of pixel operations is computed in a single pass from
+ * the first image which was not deferred.
+ *
+ * <p>Commands defer their images when lazy evaluation is enabled, with {@link #setEnabled} or the
+ * {@code imageprocessing.lazy} system property. It is disabled by default.
+ */
+public final class LazyImage implements IImage {
+  private static volatile boolean enabled = Boolean.getBoolean("imageprocessing.lazy");
+
+  private final String imageName;
+  private final int width;
+  private final int height;
+  // Cleared once the image has been computed
+  private Supplier<IImage> computation;
+  private IImage source;
+  private IPixelOperation operation;
+  private volatile IImage image;
+
+  private LazyImage(int width, int height, String imageName, Supplier<IImage> computation,
+                    IImage source, IPixelOperation operation) {
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Invalid image dimensions");
+    }
+    this.imageName = Objects.requireNonNull(imageName);
+    this.width = width;
+    this.height = height;
+    this.computation = Objects.requireNonNull(computation);
+    this.source = source;
+    this.operation = operation;
+  }
+
+  /**
+   * Returns whether commands defer the images they create.
+   *
+   * @return true if lazy evaluation is enabled.
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether commands defer the images they create.
+   *
+   * @param enabled true to enable lazy evaluation.
+   */
+  public static void setEnabled(boolean enabled) {
+    LazyImage.enabled = enabled;
+  }
+
+  /**
+   * Creates an image which is computed by the given function the first time it is read.
+   *
+   * @param width       the width of the computed image.
+   * @param height      the height of the computed image.
+   * @param imageName   the name of the image.
+   * @param computation the function which computes the image, with the same name and size.
+   * @return the deferred image.
+   * @throws IllegalArgumentException if the dimensions are negative.
+   */
+  public static LazyImage defer(int width, int height, String imageName,
+                                Supplier<IImage> computation) {
+    return new LazyImage(width, height, imageName, computation, null, null);
+  }
+
+  /**
+   * Creates an image which applies the given pixel operation to an image the first time it is
+   * read. If the original image is itself a pixel operation which has not been computed yet, both
+   * operations are applied to its source in one pass.
+   *
+   * @param original  the image to apply the operation to.
+   * @param operation the operation to apply to each pixel.
+   * @param imageName the name of the image.
+   * @return the deferred image.
+   */
+  public static LazyImage defer(IImage original, IPixelOperation operation, String imageName) {
+    Objects.requireNonNull(original);
+    Objects.requireNonNull(operation);
+
+    IImage source = original;
+    IPixelOperation fused = operation;
+    if (original instanceof LazyImage) {
+      LazyImage lazy = (LazyImage) original;
+      synchronized (lazy) {
+        if (lazy.operation != null) {
+          source = lazy.source;
+          fused = lazy.operation.andThen(operation);
+        }
+      }
+    }
+
+    IImage finalSource = source;
+    IPixelOperation finalOperation = fused;
+    return new LazyImage(original.getWidth(), original.getHeight(), imageName,
+        () -> ImageStorage.getDefault().apply(finalSource, finalOperation, imageName),
+        finalSource, finalOperation);
+  }
+
+  /**
+   * Returns whether the pixels of this image have been computed.
+   *
+   * @return true if the image has been computed.
+   */
+  public boolean isEvaluated() {
+    return this.image != null;
+  }
+
+  /**
+   * Computes this image if it has not been computed yet, and returns the computed image.
+   *
+   * @return the computed image.
+   */
+  public IImage evaluate() {
+    IImage result = this.image;
+    if (result == null) {
+      synchronized (this) {
+        result = this.image;
+        if (result == null) {
+          result = Objects.requireNonNull(this.computation.get());
+          this.image = result;
+          this.computation = null;
+          this.source = null;
+          this.operation = null;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String getImageName() {
+    return this.imageName;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public IImage withName(String imageName) {
+    if (this.imageName.equals(imageName)) {
+      return this;
+    }
+    return defer(this.width, this.height, imageName, () -> this.evaluate().withName(imageName));
+  }
+
+  @Override
+  public long getMemoryFootprint() {
+    IImage result = this.image;
+    return result == null ? 0 : result.getMemoryFootprint();
+  }
+
+  @Override
+  public long getContentHash() {
+    return this.evaluate().getContentHash();
+  }
+
+  @Override
+  public IPixel getPixel(int x, int y) {
+    return this.evaluate().getPixel(x, y);
+  }
+
+  @Override
+  public int getRgb(int x, int y) {
+    return this.evaluate().getRgb(x, y);
+  }
+
+  @Override
+  public void readRow(int y, int[] dst) {
+    this.evaluate().readRow(y, dst);
+  }
+
+  @Override
+  public void readRegion(int x, int y, int w, int h, int[] dst, int offset) {
+    this.evaluate().readRegion(x, y, w, h, dst, offset);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return this.evaluate().equals(((LazyImage) o).evaluate());
+  }
+
+  @Override
+  public int hashCode() {
+    return this.evaluate().hashCode();
+  }
+}
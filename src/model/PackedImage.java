@@ -0,0 +1,237 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import model.operation.IKernelOperation;
+import model.operation.IPixelOperation;
+
+/**
+ * An implementation of {@code IImage} which stores every pixel as a single integer packed as
+ * 0xRRGGBB in one row-major array, rather than as an array of {@code IPixel} objects. This uses
+ * four bytes per pixel, and lets operations read and write colors without creating pixels.
+ * Pixels returned by {@code getPixel} are created on demand from the packed value.
+ */
+public class PackedImage implements IImage {
+  private final int[] data;
+  private final String imageName;
+  private final int width;
+  private final int height;
+  // Computed on first use; the flag is written after the hash, so reading it publishes the hash
+  private long contentHash;
+  private volatile boolean hashed;
+
+  /**
+   * Constructs an image from the given packed pixel data. The array is copied, so later changes
+   * to it do not affect the image.
+   *
+   * @param width     The width of the image.
+   * @param height    The height of the image.
+   * @param data      The row-major pixel data of the image, with each pixel packed as 0xRRGGBB.
+   * @param imageName The name of the image to be created.
+   */
+  public PackedImage(int width, int height, int[] data, String imageName) {
+    this(Objects.requireNonNull(data).clone(), width, height, imageName);
+  }
+
+  /**
+   * Constructs an image which takes ownership of the given packed pixel data without copying it.
+   */
+  private PackedImage(int[] data, int width, int height, String imageName) {
+    Objects.requireNonNull(data);
+    Objects.requireNonNull(imageName);
+
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("Invalid image dimensions");
+    }
+    if (data.length != width * height) {
+      throw new IllegalArgumentException(
+              "Array length does not match provided size " + width + "x" + height);
+    }
+
+    for (int i = 0; i < data.length; ++i) {
+      data[i] &= 0xFFFFFF;
+    }
+
+    this.width = width;
+    this.height = height;
+    this.data = data;
+    this.imageName = imageName;
+  }
+
+  /**
+   * Creates an image which uses the given packed pixel data directly, without copying it. The
+   * caller must not modify the array after calling this method.
+   *
+   * @param width     The width of the image.
+   * @param height    The height of the image.
+   * @param data      The row-major pixel data of the image, with each pixel packed as 0xRRGGBB.
+   * @param imageName The name of the image to be created.
+   * @return The new image, backed by the given array.
+   */
+  public static PackedImage wrap(int width, int height, int[] data, String imageName) {
+    return new PackedImage(data, width, height, imageName);
+  }
+
+  /**
+   * Constructs an image which shares the pixels of the given image under another name.
+   */
+  private PackedImage(PackedImage original, String imageName) {
+    this.width = original.width;
+    this.height = original.height;
+    this.data = original.data;
+    this.imageName = Objects.requireNonNull(imageName);
+    // Reads the volatile flag first, so that a set flag comes with its hash
+    this.hashed = original.hashed;
+    this.contentHash = original.contentHash;
+  }
+
+  /**
+   * Constructs an image by applying the given operation to each pixel in an
+   * existing image.
+   *
+   * @param original  The original image to create the new image from.
+   * @param operation The operation to apply to pixels in the old image.
+   * @param imageName The name of the new image.
+   */
+  public PackedImage(IImage original, IPixelOperation operation, String imageName) {
+    Objects.requireNonNull(original);
+    Objects.requireNonNull(operation);
+    Objects.requireNonNull(imageName);
+
+    this.imageName = imageName;
+    this.width = original.getWidth();
+    this.height = original.getHeight();
+    this.data = new int[this.width * this.height];
+
+    int[] result = this.data;
+    int width = this.width;
+    ImageExecutor.getDefault().forEachBand(width, this.height, (startY, endY) -> {
+      int from = startY * width;
+      int to = endY * width;
+      original.readRegion(0, startY, width, endY - startY, result, from);
+      operation.applyRgb(result, from, to);
+      for (int i = from; i < to; ++i) {
+        result[i] &= 0xFFFFFF;
+      }
+    });
+  }
+
+  /**
+   * Construct an image by applying the provided kernel operation to the provided original image.
+   *
+   * @param original  The original image to perform the provided operation to.
+   * @param operation The kernel operation to perform.
+   * @param imageName The name of the newly created image.
+   */
+  public PackedImage(IImage original, IKernelOperation operation, String imageName) {
+    Objects.requireNonNull(original);
+    Objects.requireNonNull(operation);
+    Objects.requireNonNull(imageName);
+
+    this.imageName = imageName;
+    this.width = original.getWidth();
+    this.height = original.getHeight();
+    this.data = new int[this.width * this.height];
+
+    int[] result = this.data;
+    int width = this.width;
+    ImageExecutor.getDefault().forEachBand(width, this.height, (startY, endY) -> {
+      operation.applyRows(original, startY, endY, result);
+      for (int i = startY * width; i < endY * width; ++i) {
+        result[i] &= 0xFFFFFF;
+      }
+    });
+  }
+
+  @Override
+  public String getImageName() {
+    return this.imageName;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public long getMemoryFootprint() {
+    // The array and its header
+    return 4L * this.data.length + 16;
+  }
+
+  @Override
+  public IImage withName(String imageName) {
+    // The data is never modified, so it can be shared
+    return this.imageName.equals(imageName) ? this : new PackedImage(this, imageName);
+  }
+
+  @Override
+  public long getContentHash() {
+    if (!this.hashed) {
+      this.contentHash = IImage.hashPixels(IImage.hashSize(this.width, this.height), this.data, 0,
+              this.data.length);
+      this.hashed = true;
+    }
+    return this.contentHash;
+  }
+
+  @Override
+  public IPixel getPixel(int x, int y) {
+    return Pixel.fromRgb(this.getRgb(x, y));
+  }
+
+  @Override
+  public int getRgb(int x, int y) {
+    if (x >= this.width || y >= this.height || x < 0 || y < 0) {
+      throw new IllegalArgumentException(
+              "Pixel (" + x + ", " + y + ") out of bounds! Image size: ("
+                      + this.width + ", " + this.height + ")");
+    }
+    return this.data[y * this.width + x];
+  }
+
+  @Override
+  public void readRow(int y, int[] dst) {
+    IImage.checkRegion(this.width, this.height, 0, y, this.width, 1, dst);
+    System.arraycopy(this.data, y * this.width, dst, 0, this.width);
+  }
+
+  @Override
+  public void readRegion(int x, int y, int w, int h, int[] dst, int offset) {
+    IImage.checkRegion(this.width, this.height, x, y, w, h, dst, offset);
+
+    if (x == 0 && w == this.width) {
+      System.arraycopy(this.data, y * this.width, dst, offset, w * h);
+      return;
+    }
+    for (int j = 0; j < h; ++j) {
+      System.arraycopy(this.data, (y + j) * this.width + x, dst, offset + j * w, w);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    PackedImage image = (PackedImage) o;
+    return width == image.width && height == image.height
+            && Arrays.equals(data, image.data);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Objects.hash(imageName, width, height);
+    result = 31 * result + Arrays.hashCode(data);
+    return result;
+  }
+}
@@ -31,6 +31,27 @@ public class Pixel implements IPixel {
     this.blue = blue;
   }
 
+  /**
+   * Constructs a pixel from a color packed into a single integer as 0xRRGGBB. Any bits above the
+   * lowest 24 are ignored.
+   *
+   * @param rgb the packed color of the pixel.
+   * @return the pixel with the given color.
+   */
+  public static IPixel fromRgb(int rgb) {
+    return new Pixel((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+  }
+
+  /**
+   * Packs the color of the given pixel into a single integer as 0xRRGGBB.
+   *
+   * @param pixel the pixel to pack.
+   * @return the packed color of the pixel.
+   */
+  public static int toRgb(IPixel pixel) {
+    return (pixel.getRed() << 16) | (pixel.getGreen() << 8) | pixel.getBlue();
+  }
+
   /**
    * Determines if the number of the color provided is valid.
    *
@@ -0,0 +1,348 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An implementation of {@code IAlbum} which keeps the memory used by its images within a budget.
+ * The footprint of each image is given by {@link IImage#getMemoryFootprint()}. When the images
+ * held in memory exceed the budget, the least recently used ones are spilled to files on disk,
+ * three bytes per pixel, and are read back the next time they are requested with
+ * {@link #getImage(String)}. Every image is still listed by {@link #getImageNames()}, whether
+ * or not it is in memory.
+ *
+ * <p>Since images are immutable, an image is only written to disk the first time it is spilled;
+ * after being read back, it can be dropped from memory again without writing anything. The most
+ * recently used image is always kept in memory, even if it is larger than the whole budget.
+ * Deferred images (see {@code LazyImage}) are counted once they have been computed, the next time
+ * an image is added or requested.
+ */
+public class SpillingAlbum implements IAlbum, Closeable {
+  // Width and height
+  private static final int HEADER_SIZE = 8;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final long memoryBudget;
+  private final Path spillDirectory;
+  private final boolean ownsDirectory;
+  // In order of use, from least to most recent
+  private final Map<String, Entry> entries;
+  private long residentBytes;
+
+  /**
+   * Represents one image in the album, which is either in memory or on disk.
+   */
+  private static class Entry {
+    private long footprint;
+    private IImage image;
+    private Path file;
+
+    Entry(IImage image) {
+      this.image = image;
+      this.footprint = image.getMemoryFootprint();
+    }
+  }
+
+  /**
+   * Constructs an album which spills images to a new temporary directory, which is deleted when
+   * the album is closed or the program exits.
+   *
+   * @param memoryBudget the memory, in bytes, which the images held in memory may use.
+   * @throws IllegalArgumentException if the budget is negative.
+   * @throws UncheckedIOException     if the temporary directory cannot be created.
+   */
+  public SpillingAlbum(long memoryBudget) {
+    this(memoryBudget, createTempDirectory(), true);
+  }
+
+  /**
+   * Constructs an album which spills images to the given directory.
+   *
+   * @param memoryBudget   the memory, in bytes, which the images held in memory may use.
+   * @param spillDirectory the existing directory to write spilled images to.
+   * @throws IllegalArgumentException if the budget is negative.
+   */
+  public SpillingAlbum(long memoryBudget, Path spillDirectory) {
+    this(memoryBudget, spillDirectory, false);
+  }
+
+  private SpillingAlbum(long memoryBudget, Path spillDirectory, boolean ownsDirectory) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Memory budget must not be negative");
+    }
+    this.memoryBudget = memoryBudget;
+    this.spillDirectory = Objects.requireNonNull(spillDirectory);
+    this.ownsDirectory = ownsDirectory;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  private static Path createTempDirectory() {
+    try {
+      Path directory = Files.createTempDirectory("album");
+      // Files registered later are deleted first, so the directory is empty by then
+      directory.toFile().deleteOnExit();
+      return directory;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public synchronized void addImage(IImage image) {
+    Objects.requireNonNull(image);
+    Entry entry = new Entry(image);
+
+    this.remove(this.entries.put(image.getImageName(), entry));
+    this.residentBytes += entry.footprint;
+    this.evict();
+  }
+
+  @Override
+  public IImage getImage(String imageName) {
+    while (true) {
+      Entry entry;
+      Path file;
+      synchronized (this) {
+        entry = this.entries.get(imageName);
+        if (entry == null) {
+          throw new IllegalArgumentException("Image " + imageName + " not found!");
+        }
+        if (entry.image != null) {
+          if (this.remeasure()) {
+            this.evict();
+          }
+          return entry.image;
+        }
+        file = entry.file;
+      }
+
+      // Read the file without holding the lock, so other images stay available meanwhile
+      IImage image;
+      try {
+        image = readImage(file, imageName);
+      } catch (IOException e) {
+        synchronized (this) {
+          if (this.entries.get(imageName) != entry) {
+            // The image was replaced, and its file deleted, while it was being read
+            continue;
+          }
+        }
+        throw new UncheckedIOException("Could not read spilled image " + imageName, e);
+      }
+
+      synchronized (this) {
+        if (this.entries.get(imageName) != entry) {
+          continue;
+        }
+        if (entry.image == null) {
+          entry.image = image;
+          entry.footprint = image.getMemoryFootprint();
+          this.residentBytes += entry.footprint;
+          this.evict();
+        }
+        return entry.image;
+      }
+    }
+  }
+
+  @Override
+  public synchronized Set<String> getImageNames() {
+    // A copy, since looking images up reorders the entries
+    return Set.copyOf(this.entries.keySet());
+  }
+
+  /**
+   * Returns the estimated memory used by the images currently held in memory.
+   *
+   * @return the memory in bytes.
+   */
+  public synchronized long getResidentBytes() {
+    return this.residentBytes;
+  }
+
+  /**
+   * Returns whether the image with the given name is currently held in memory, rather than only
+   * on disk.
+   *
+   * @param imageName the name of the image.
+   * @return true if the image is in memory.
+   * @throws IllegalArgumentException if there is no image with that name.
+   */
+  public synchronized boolean isResident(String imageName) {
+    // Looking the entry up with get would count as using it
+    for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+      if (entry.getKey().equals(imageName)) {
+        return entry.getValue().image != null;
+      }
+    }
+    throw new IllegalArgumentException("Image " + imageName + " not found!");
+  }
+
+  /**
+   * Deletes every spilled image from disk, and the spill directory if the album created it. The
+   * album should not be used afterwards.
+   *
+   * @throws IOException if a file cannot be deleted.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    for (Entry entry : this.entries.values()) {
+      if (entry.file != null) {
+        Files.deleteIfExists(entry.file);
+        entry.file = null;
+      }
+    }
+    if (this.ownsDirectory) {
+      Files.deleteIfExists(this.spillDirectory);
+    }
+  }
+
+  /**
+   * Drops the least recently used images from memory until the rest fit in the budget, writing
+   * each one to disk if it has not been written before.
+   */
+  private void evict() {
+    this.remeasure();
+    Iterator<Entry> iterator = this.entries.values().iterator();
+
+    // The most recently used entry is last, and is never evicted
+    for (int i = this.entries.size() - 1; i > 0 && this.residentBytes > this.memoryBudget; --i) {
+      Entry entry = iterator.next();
+      // Images which are not on the heap gain nothing from being spilled
+      if (entry.image == null || entry.footprint == 0) {
+        continue;
+      }
+
+      if (entry.file == null) {
+        try {
+          entry.file = Files.createTempFile(this.spillDirectory, "image", ".rgb");
+          if (this.ownsDirectory) {
+            entry.file.toFile().deleteOnExit();
+          }
+          writeImage(entry.image, entry.file);
+        } catch (IOException e) {
+          // Keep the image in memory rather than lose it
+          deleteQuietly(entry.file);
+          entry.file = null;
+          continue;
+        }
+      }
+      entry.image = null;
+      this.residentBytes -= entry.footprint;
+    }
+  }
+
+  /**
+   * Counts the deferred images which have been computed since they were added.
+   *
+   * @return true if any image now takes up more memory than was counted.
+   */
+  private boolean remeasure() {
+    boolean grown = false;
+    for (Entry entry : this.entries.values()) {
+      // Deferred images only take up memory once they have been computed
+      if (entry.image != null && entry.footprint == 0) {
+        entry.footprint = entry.image.getMemoryFootprint();
+        this.residentBytes += entry.footprint;
+        grown |= entry.footprint > 0;
+      }
+    }
+    return grown;
+  }
+
+  private void remove(Entry entry) {
+    if (entry == null) {
+      return;
+    }
+    if (entry.image != null) {
+      this.residentBytes -= entry.footprint;
+    }
+    deleteQuietly(entry.file);
+  }
+
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // The file is only left behind
+    }
+  }
+
+  private static void writeImage(IImage image, Path file) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+
+    try (FileChannel output = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+      buffer.putInt(width).putInt(height);
+
+      int[] row = new int[width];
+      for (int y = 0; y < height; ++y) {
+        image.readRow(y, row);
+        for (int rgb : row) {
+          if (buffer.remaining() < 3) {
+            drain(buffer, output);
+          }
+          buffer.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+        }
+      }
+      drain(buffer, output);
+    }
+  }
+
+  private static void drain(ByteBuffer buffer, FileChannel output) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      output.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private static IImage readImage(Path file, String imageName) throws IOException {
+    try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      readFully(header, input);
+      int width = header.getInt();
+      int height = header.getInt();
+
+      ImageBuilder builder = new ImageBuilder(width, height);
+      ByteBuffer samples = ByteBuffer.allocate(3 * width);
+      byte[] bytes = samples.array();
+      int[] row = new int[width];
+
+      for (int y = 0; y < height; ++y) {
+        readFully(samples, input);
+        for (int x = 0, i = 0; x < width; ++x, i += 3) {
+          row[x] = ((bytes[i] & 0xFF) << 16) | ((bytes[i + 1] & 0xFF) << 8) | (bytes[i + 2] & 0xFF);
+        }
+        builder.writeRow(y, row);
+      }
+      return builder.build(imageName);
+    }
+  }
+
+  private static void readFully(ByteBuffer buffer, FileChannel input) throws IOException {
+    buffer.clear();
+    while (buffer.hasRemaining()) {
+      if (input.read(buffer) < 0) {
+        throw new IOException("Spilled image file is truncated");
+      }
+    }
+    buffer.flip();
+  }
+}
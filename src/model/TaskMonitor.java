@@ -0,0 +1,110 @@
+package model;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Follows the progress of a long-running task, such as a command run from the GUI, and lets it be
+ * cancelled. While a task runs under a monitor (see {@link #run}), the {@code ImageExecutor}
+ * reports every band of rows it finishes to the monitor's listener, and once the monitor has been
+ * cancelled it stops starting new bands and throws a {@code CancellationException} out of the
+ * task instead. Cancellation is cooperative, so a band which has already started still finishes.
+ */
+public final class TaskMonitor {
+  private static final ThreadLocal<TaskMonitor> CURRENT = new ThreadLocal<>();
+
+  private final ProgressListener listener;
+  private volatile boolean cancelled;
+
+  /**
+   * Listens to the progress of a task.
+   */
+  public interface ProgressListener {
+    /**
+     * Called when part of a pass over an image has finished. Passes report their progress
+     * separately, so a task which makes several passes starts over from zero for each one.
+     * This may be called from any thread which works on the task.
+     *
+     * @param done  the number of rows of the current pass which have finished.
+     * @param total the number of rows in the current pass.
+     */
+    void progressed(long done, long total);
+  }
+
+  /**
+   * Constructs a monitor which reports progress to the given listener.
+   *
+   * @param listener the listener to report progress to.
+   */
+  public TaskMonitor(ProgressListener listener) {
+    this.listener = Objects.requireNonNull(listener);
+  }
+
+  /**
+   * Returns the monitor of the task running on the current thread.
+   *
+   * @return the current monitor, or null if the current task is not monitored.
+   */
+  public static TaskMonitor current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Runs the given task on the current thread under this monitor.
+   *
+   * @param task the task to run.
+   * @throws CancellationException if this monitor is cancelled before or while the task runs.
+   */
+  public void run(Runnable task) {
+    Objects.requireNonNull(task);
+    TaskMonitor previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      this.checkCancelled();
+      task.run();
+    } finally {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  /**
+   * Asks the task to stop as soon as possible.
+   */
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  /**
+   * Returns whether the task has been asked to stop.
+   *
+   * @return true if this monitor has been cancelled.
+   */
+  public boolean isCancelled() {
+    return this.cancelled;
+  }
+
+  /**
+   * Stops the task if it has been cancelled.
+   *
+   * @throws CancellationException if this monitor has been cancelled.
+   */
+  public void checkCancelled() {
+    if (this.cancelled) {
+      throw new CancellationException("Task cancelled");
+    }
+  }
+
+  /**
+   * Reports that part of a pass over an image has finished.
+   *
+   * @param done  the number of rows of the current pass which have finished.
+   * @param total the number of rows in the current pass.
+   */
+  public void progressed(long done, long total) {
+    this.listener.progressed(done, total);
+  }
+}
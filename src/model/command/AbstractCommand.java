@@ -1,15 +1,24 @@
 package model.command;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import model.IAlbum;
 import model.IImage;
+import model.LazyImage;
+import model.TaskMonitor;
 import view.ImageView;
 
 /**
  * Represents a command which takes in some parameters and the name of an existing image in the
  * album, uses those parameters and the existing image to create a new image, and adds the new
- * image to the album.
+ * image to the album. When lazy evaluation is enabled (see {@code LazyImage}), the new image is
+ * added as a deferred image, and is only created once something reads its pixels, except for
+ * commands running under a {@code TaskMonitor}, which create it right away so that cancelling them
+ * stops the work and leaves nothing half-done in the album. Commands which
+ * describe their operation with {@code getOperationDescriptor} reuse earlier results from the
+ * default {@code ResultCache}.
  */
 public abstract class AbstractCommand implements ICommand {
   private final String originalName;
@@ -20,6 +29,34 @@ public abstract class AbstractCommand implements ICommand {
     this.destinationName = Objects.requireNonNull(destinationName);
   }
 
+  /**
+   * Get the name of the image which this command creates the new image from.
+   *
+   * @return the name of the original image.
+   */
+  public String getOriginalName() {
+    return this.originalName;
+  }
+
+  /**
+   * Get the name which this command gives to the new image.
+   *
+   * @return the name of the new image.
+   */
+  public String getDestinationName() {
+    return this.destinationName;
+  }
+
+  @Override
+  public Set<String> getSourceNames() {
+    return Set.of(this.originalName);
+  }
+
+  @Override
+  public Set<String> getDestinationNames() {
+    return Set.of(this.destinationName);
+  }
+
   /**
    * Create an image from an existing image and some parameters.
    *
@@ -29,6 +66,48 @@ public abstract class AbstractCommand implements ICommand {
    */
   protected abstract IImage createImage(IImage original, String imageName);
 
+  /**
+   * Create an image which is only created from the existing image once it is read. By default,
+   * the new image has the same size as the original, and is created with {@code createImage}.
+   *
+   * @param original   The original image to create the new image from.
+   * @param imageName  The name of the new image.
+   * @return The deferred image to add to the album.
+   */
+  protected LazyImage deferImage(IImage original, String imageName) {
+    return LazyImage.defer(original.getWidth(), original.getHeight(), imageName,
+        () -> this.createCachedImage(original, imageName));
+  }
+
+  /**
+   * Get a value which identifies the operation this command applies and all of its parameters,
+   * such that two commands with equal descriptors create the same image from the same original
+   * image. By default there is none, and the results of the command are not cached.
+   *
+   * @return the descriptor of the operation, or null if the results should not be cached.
+   */
+  protected Object getOperationDescriptor() {
+    return null;
+  }
+
+  /**
+   * Called with each image this command creates, before it is added to the album, so that the
+   * command can record what it knows about the new image. By default, this does nothing.
+   *
+   * @param original The original image the new image was created from.
+   * @param result   The new image, which may be deferred.
+   */
+  protected void resultCreated(IImage original, IImage result) {
+    // Nothing to record
+  }
+
+  private IImage createCachedImage(IImage original, String imageName) {
+    Object descriptor = this.getOperationDescriptor();
+    return ResultCache.getDefault().apply(original,
+            descriptor == null ? null : List.of(this.getClass(), descriptor), imageName,
+        name -> this.createImage(original, name));
+  }
+
   @Override
   public final void apply(IAlbum album, ImageView view) {
     IImage original;
@@ -39,6 +118,11 @@ public abstract class AbstractCommand implements ICommand {
       return;
     }
 
-    album.addImage(this.createImage(original, this.destinationName));
+    // A deferred image would be computed outside the monitor, by whatever reads it first
+    IImage result = LazyImage.isEnabled() && TaskMonitor.current() == null
+            ? this.deferImage(original, this.destinationName)
+            : this.createCachedImage(original, this.destinationName);
+    this.resultCreated(original, result);
+    album.addImage(result);
   }
 }
@@ -0,0 +1,74 @@
+package model.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rewrites a sequence of commands so that chains of pixel operations run in a single pass.
+ * When a {@code PixelOperationCommand} reads the image created by the command just before it,
+ * and no later command reads that intermediate image, the two are replaced by one command which
+ * applies both operations. The intermediate image is then never created.
+ */
+public final class CommandPipeline {
+  private CommandPipeline() {
+    // Static utility class
+  }
+
+  /**
+   * Fuses consecutive pixel operations in the given commands wherever the intermediate image is
+   * not used by any later command. Running the returned commands has the same effect on every
+   * image which is read later (or saved) as running the original commands.
+   *
+   * @param commands the commands to fuse, in the order they will be run.
+   * @return the fused commands, in the order they should be run.
+   */
+  public static List<ICommand> fuse(List<ICommand> commands) {
+    Objects.requireNonNull(commands);
+
+    List<ICommand> result = new ArrayList<>();
+    for (int i = 0; i < commands.size(); ++i) {
+      ICommand command = Objects.requireNonNull(commands.get(i));
+      int last = result.size() - 1;
+
+      if (last >= 0 && canFuse(result.get(last), command, commands.subList(i + 1,
+              commands.size()))) {
+        PixelOperationCommand first = (PixelOperationCommand) result.get(last);
+        PixelOperationCommand second = (PixelOperationCommand) command;
+
+        result.set(last, new PixelOperationCommand(first.getOriginalName(),
+                second.getDestinationName(), first.getOperation().andThen(second.getOperation())));
+      } else {
+        result.add(command);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Determines whether the second command can be fused into the first.
+   *
+   * @param first  the command which runs first.
+   * @param second the command which runs immediately after the first.
+   * @param later  every command which runs after the second.
+   * @return true if both are pixel operations, the second reads the first's result, and no
+   *         later command reads the first's result.
+   */
+  private static boolean canFuse(ICommand first, ICommand second, List<ICommand> later) {
+    if (!(first instanceof PixelOperationCommand) || !(second instanceof PixelOperationCommand)) {
+      return false;
+    }
+
+    String intermediate = ((PixelOperationCommand) first).getDestinationName();
+    if (!intermediate.equals(((PixelOperationCommand) second).getOriginalName())) {
+      return false;
+    }
+
+    for (ICommand command : later) {
+      if (command.getSourceNames().contains(intermediate)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,236 @@
+package model.command;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import model.ConcurrentAlbum;
+import model.IAlbum;
+import model.IImage;
+import view.ImageView;
+
+/**
+ * Runs a whole script of commands on a pool of threads, running commands which do not depend on
+ * each other at the same time. A command depends on an earlier command if it reads an image the
+ * earlier command creates, replaces an image the earlier command reads or creates, or loads or
+ * saves a file the earlier command saves (or saves a file it loads). Every image which is read
+ * later, and every file which is saved, ends up the same as if the commands ran in order, but
+ * messages from independent commands may be rendered in any order.
+ *
+ * <p>If a command throws an exception, the commands which depend on it are skipped, every other
+ * command still runs, and the exception is rethrown once they have finished.
+ */
+public class CommandScheduler {
+  private final int parallelism;
+
+  /**
+   * Constructs a scheduler which runs at most the given number of commands at once.
+   *
+   * @param parallelism the number of threads to run commands on.
+   * @throws IllegalArgumentException if the parallelism is not positive.
+   */
+  public CommandScheduler(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive");
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Returns the number of commands this scheduler runs at once.
+   *
+   * @return the parallelism of this scheduler.
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Runs the given commands, and returns once all of them have finished. The album is used from
+   * several threads at once, so unless it is a {@code ConcurrentAlbum}, every access to it is
+   * synchronized.
+   *
+   * @param commands the commands to run, in the order they appear in the script.
+   * @param album    the album to run the commands on.
+   * @param view     the view to render messages to.
+   * @throws RuntimeException the first exception thrown by a command, in script order.
+   */
+  public void run(List<ICommand> commands, IAlbum album, ImageView view) {
+    Objects.requireNonNull(album);
+    Objects.requireNonNull(view);
+    List<Set<Integer>> dependencies = dependencies(commands);
+
+    IAlbum sharedAlbum = album instanceof ConcurrentAlbum ? album : new SynchronizedAlbum(album);
+    ImageView sharedView = new SynchronizedView(view);
+    ExecutorService pool = Executors.newFixedThreadPool(this.parallelism);
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < commands.size(); ++i) {
+        ICommand command = commands.get(i);
+        CompletableFuture<?>[] before = dependencies.get(i).stream().map(futures::get)
+                .toArray(CompletableFuture[]::new);
+
+        // Fails without running the command if any command it depends on failed
+        futures.add(CompletableFuture.allOf(before)
+                .thenRunAsync(() -> command.apply(sharedAlbum, sharedView), pool));
+      }
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      return;
+    } catch (ExecutionException e) {
+      // Rethrown below, in script order
+    } finally {
+      pool.shutdownNow();
+    }
+
+    // A command's dependencies come before it, so the first failure is never a skipped command
+    for (CompletableFuture<Void> future : futures) {
+      if (future.isCompletedExceptionally() && !future.isCancelled()) {
+        try {
+          future.join();
+        } catch (CompletionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          if (e.getCause() instanceof Error) {
+            throw (Error) e.getCause();
+          }
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Finds the commands which each command must wait for.
+   *
+   * @param commands the commands of a script, in order.
+   * @return for each command, the indices of the earlier commands it depends on directly.
+   */
+  static List<Set<Integer>> dependencies(List<ICommand> commands) {
+    Objects.requireNonNull(commands);
+
+    Resources images = new Resources();
+    Resources files = new Resources();
+    List<Set<Integer>> result = new ArrayList<>();
+
+    for (int i = 0; i < commands.size(); ++i) {
+      ICommand command = Objects.requireNonNull(commands.get(i));
+      Set<Integer> dependencies = new TreeSet<>();
+
+      for (String name : command.getSourceNames()) {
+        images.read(name, i, dependencies);
+      }
+      for (String name : command.getDestinationNames()) {
+        images.write(name, i, dependencies);
+      }
+      if (command instanceof LoadCommand) {
+        files.read(normalize(((LoadCommand) command).getImagePath()), i, dependencies);
+      } else if (command instanceof SaveCommand) {
+        files.write(normalize(((SaveCommand) command).getImagePath()), i, dependencies);
+      }
+
+      dependencies.remove(i);
+      result.add(dependencies);
+    }
+    return result;
+  }
+
+  private static String normalize(String path) {
+    try {
+      return Paths.get(path).toAbsolutePath().normalize().toString();
+    } catch (InvalidPathException e) {
+      // The command will report the problem when it runs
+      return path;
+    }
+  }
+
+  /**
+   * Tracks, for each image name or file, the last command which wrote it and the commands which
+   * have read it since.
+   */
+  private static class Resources {
+    private final Map<String, Integer> lastWriter = new HashMap<>();
+    private final Map<String, List<Integer>> readers = new HashMap<>();
+
+    void read(String resource, int command, Set<Integer> dependencies) {
+      Integer writer = this.lastWriter.get(resource);
+      if (writer != null) {
+        dependencies.add(writer);
+      }
+      this.readers.computeIfAbsent(resource, r -> new ArrayList<>()).add(command);
+    }
+
+    void write(String resource, int command, Set<Integer> dependencies) {
+      Integer writer = this.lastWriter.put(resource, command);
+      if (writer != null) {
+        dependencies.add(writer);
+      }
+      List<Integer> previousReaders = this.readers.remove(resource);
+      if (previousReaders != null) {
+        dependencies.addAll(previousReaders);
+      }
+    }
+  }
+
+  /**
+   * An album which synchronizes every access to an album which is not thread-safe.
+   */
+  private static class SynchronizedAlbum implements IAlbum {
+    private final IAlbum album;
+
+    SynchronizedAlbum(IAlbum album) {
+      this.album = album;
+    }
+
+    @Override
+    public synchronized void addImage(IImage image) {
+      this.album.addImage(image);
+    }
+
+    @Override
+    public synchronized IImage getImage(String imageName) {
+      return this.album.getImage(imageName);
+    }
+
+    @Override
+    public synchronized Set<String> getImageNames() {
+      return Set.copyOf(this.album.getImageNames());
+    }
+  }
+
+  /**
+   * A view which lets one command at a time render to it.
+   */
+  private static class SynchronizedView implements ImageView {
+    private final ImageView view;
+
+    SynchronizedView(ImageView view) {
+      this.view = view;
+    }
+
+    @Override
+    public synchronized void renderCommands(Set<String> commands) {
+      this.view.renderCommands(commands);
+    }
+
+    @Override
+    public synchronized void renderMessage(String message) {
+      this.view.renderMessage(message);
+    }
+  }
+}
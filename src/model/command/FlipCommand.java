@@ -1,8 +1,7 @@
 package model.command;
 
 import model.IImage;
-import model.IPixel;
-import model.Image;
+import model.ImageBuilder;
 
 /**
  * Represents a command which flips an image vertically or horizontally.
@@ -16,25 +15,34 @@ public class FlipCommand extends AbstractCommand {
     this.flipVertical = flipVertical;
   }
 
+  @Override
+  protected Object getOperationDescriptor() {
+    return this.flipVertical;
+  }
+
   @Override
   protected IImage createImage(IImage original, String imageName) {
     int width = original.getWidth();
     int height = original.getHeight();
 
-    IPixel[][] newArray = new IPixel[height][width];
+    ImageBuilder builder = new ImageBuilder(width, height);
+    int[] row = new int[width];
 
     for (int originalY = 0; originalY < height; ++originalY) {
-      for (int originalX = 0; originalX < width; ++originalX) {
-        IPixel old = original.getPixel(originalX, originalY);
-
-        if (this.flipVertical) {
-          newArray[height - 1 - originalY][originalX] = old;
-        } else {
-          newArray[originalY][width - 1 - originalX] = old;
+      original.readRow(originalY, row);
+
+      if (this.flipVertical) {
+        builder.writeRow(height - 1 - originalY, row);
+      } else {
+        for (int left = 0, right = width - 1; left < right; ++left, --right) {
+          int old = row[left];
+          row[left] = row[right];
+          row[right] = old;
         }
+        builder.writeRow(originalY, row);
       }
     }
 
-    return new Image(width, height, newArray, imageName);
+    return builder.build(imageName);
   }
 }
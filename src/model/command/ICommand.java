@@ -1,5 +1,7 @@
 package model.command;
 
+import java.util.Set;
+
 import model.IAlbum;
 import view.ImageView;
 
@@ -16,4 +18,18 @@ public interface ICommand {
    * @param view The view to show error messages to.
    */
   void apply(IAlbum album, ImageView view);
+
+  /**
+   * Get the names of the images in the album which this command reads.
+   *
+   * @return the names of the images this command reads.
+   */
+  Set<String> getSourceNames();
+
+  /**
+   * Get the names of the images which this command adds to the album.
+   *
+   * @return the names of the images this command creates or replaces.
+   */
+  Set<String> getDestinationNames();
 }
@@ -1,12 +1,14 @@
 package model.command;
 
 import model.IImage;
-import model.Image;
+import model.ImageStorage;
+import model.operation.EdgeMode;
 import model.operation.IKernelOperation;
 import model.operation.KernelOperation;
 
 /**
- * This class represents a command that will be called onto a kernel.
+ * This class represents a command that will be called onto a kernel. Large kernels which are not
+ * separable are applied with an FFT (see {@code KernelOperation.create}).
  */
 public class KernelOperationCommand extends AbstractCommand {
   private final IKernelOperation operation;
@@ -19,12 +21,29 @@ public class KernelOperationCommand extends AbstractCommand {
    */
   public KernelOperationCommand(String originalName, String destinationName,
                                 double[][] kernelArray) {
+    this(originalName, destinationName, kernelArray, EdgeMode.ZERO);
+  }
+
+  /**
+   * A constructor for the {@code KernelOperationCommand} that takes in a 2d array that the
+   * operations will be called on, and how to treat the parts of the kernel outside the image.
+   *
+   * @param kernelArray the 2d array that will be called onto the image.
+   * @param edgeMode    how to treat taps which fall outside of the image.
+   */
+  public KernelOperationCommand(String originalName, String destinationName,
+                                double[][] kernelArray, EdgeMode edgeMode) {
     super(originalName, destinationName);
-    this.operation = new KernelOperation(kernelArray);
+    this.operation = KernelOperation.create(kernelArray, edgeMode);
   }
 
   @Override
   protected IImage createImage(IImage original, String imageName) {
-    return new Image(original, this.operation, imageName);
+    return ImageStorage.getDefault().apply(original, this.operation, imageName);
+  }
+
+  @Override
+  protected Object getOperationDescriptor() {
+    return this.operation;
   }
 }
@@ -2,6 +2,7 @@ package model.command;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.Set;
 
 import control.ImageUtil;
 import model.IAlbum;
@@ -20,6 +21,15 @@ public class LoadCommand implements ICommand {
     this.imageName = Objects.requireNonNull(imageName);
   }
 
+  /**
+   * Get the path of the file which this command loads the image from.
+   *
+   * @return the path of the file.
+   */
+  public String getImagePath() {
+    return this.imagePath;
+  }
+
   @Override
   public void apply(IAlbum album, ImageView view) {
     try {
@@ -30,4 +40,13 @@ public class LoadCommand implements ICommand {
     }
   }
 
+  @Override
+  public Set<String> getSourceNames() {
+    return Set.of();
+  }
+
+  @Override
+  public Set<String> getDestinationNames() {
+    return Set.of(this.imageName);
+  }
 }
@@ -2,8 +2,10 @@ package model.command;
 
 import java.util.Objects;
 
+import model.Histogram;
 import model.IImage;
-import model.Image;
+import model.ImageStorage;
+import model.LazyImage;
 import model.operation.IPixelOperation;
 
 /**
@@ -25,8 +27,35 @@ public class PixelOperationCommand extends AbstractCommand {
     this.operation = operation;
   }
 
+  /**
+   * Get the operation which this command applies to each pixel.
+   *
+   * @return the pixel operation.
+   */
+  public IPixelOperation getOperation() {
+    return this.operation;
+  }
+
   @Override
   protected IImage createImage(IImage original, String imageName) {
-    return new Image(original, this.operation, imageName);
+    return ImageStorage.getDefault().apply(original, this.operation, imageName);
+  }
+
+  @Override
+  protected Object getOperationDescriptor() {
+    // Operations with the same lookup table give the same results, however they were built
+    return this.operation.toLookupTable().<Object>map(table -> table).orElse(this.operation);
+  }
+
+  @Override
+  protected void resultCreated(IImage original, IImage result) {
+    // Lookup tables move histogram counts without needing to read the new pixels
+    Histogram.propagate(original, this.operation, result);
+  }
+
+  @Override
+  protected LazyImage deferImage(IImage original, String imageName) {
+    // Fuses with a deferred pixel operation on the original image
+    return LazyImage.defer(original, this.operation, imageName);
   }
 }
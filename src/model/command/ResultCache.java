@@ -0,0 +1,167 @@
+package model.command;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import model.IImage;
+import model.ImageStorage;
+
+/**
+ * Remembers the images created by commands, so that running the same operation on an image with
+ * the same contents again returns the image which was already created instead of computing it
+ * again. Results are keyed by the content hash of the original image (see
+ * {@link IImage#getContentHash()}), its size, the storage used for new images, and a descriptor of
+ * the operation, such as the operation itself for operations which compare by value. The names of
+ * the images do not matter; a result found under a different name is shared under the new one
+ * (see {@link IImage#withName(String)}).
+ *
+ * <p>The cache keeps the most recently used results whose memory footprints fit in its budget.
+ * Looking a result up hashes every pixel of the original image, and cached results are not
+ * counted by album memory budgets, so caching is disabled by default: the default cache uses the
+ * number of megabytes given by the {@code imageprocessing.cacheMemory} system property, or none.
+ * A budget of zero disables caching.
+ */
+public class ResultCache {
+  private static volatile ResultCache defaultCache = new ResultCache(defaultBudget());
+
+  private final long memoryBudget;
+  // In order of use, from least to most recent
+  private final Map<List<Object>, IImage> results;
+  private long usedBytes;
+  private long hits;
+  private long misses;
+
+  /**
+   * Constructs an empty cache.
+   *
+   * @param memoryBudget the memory, in bytes, which the cached images may use.
+   * @throws IllegalArgumentException if the budget is negative.
+   */
+  public ResultCache(long memoryBudget) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Memory budget must not be negative");
+    }
+    this.memoryBudget = memoryBudget;
+    this.results = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  private static long defaultBudget() {
+    return Math.max(0, Long.getLong("imageprocessing.cacheMemory", 0)) * 1024 * 1024;
+  }
+
+  /**
+   * Returns the cache used by commands.
+   *
+   * @return the default cache.
+   */
+  public static ResultCache getDefault() {
+    return defaultCache;
+  }
+
+  /**
+   * Sets the cache used by commands.
+   *
+   * @param cache the new default cache.
+   */
+  public static void setDefault(ResultCache cache) {
+    defaultCache = Objects.requireNonNull(cache);
+  }
+
+  /**
+   * Returns the image created by applying the described operation to the given image, creating
+   * it with the given function only if no image with the same contents has been cached for the
+   * same operation.
+   *
+   * @param original   the image the operation is applied to.
+   * @param descriptor the value which identifies the operation and all of its parameters, or null
+   *                   if the result should not be cached.
+   * @param imageName  the name of the new image.
+   * @param create     the function which creates the new image with a given name.
+   * @return the new image, with the given name.
+   */
+  public IImage apply(IImage original, Object descriptor, String imageName,
+                      Function<String, IImage> create) {
+    Objects.requireNonNull(original);
+    Objects.requireNonNull(imageName);
+    if (descriptor == null || this.memoryBudget == 0) {
+      return create.apply(imageName);
+    }
+
+    List<Object> key = List.of(descriptor, ImageStorage.getDefault(), original.getContentHash(),
+            original.getWidth(), original.getHeight());
+    IImage cached;
+    synchronized (this) {
+      cached = this.results.get(key);
+      if (cached != null) {
+        ++this.hits;
+      } else {
+        ++this.misses;
+      }
+    }
+    if (cached != null) {
+      return cached.withName(imageName);
+    }
+
+    IImage result = create.apply(imageName);
+    this.put(key, result);
+    return result;
+  }
+
+  /**
+   * Returns the number of results which were found in the cache.
+   *
+   * @return the number of hits.
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Returns the number of results which had to be created.
+   *
+   * @return the number of misses.
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Returns the estimated memory used by the cached images.
+   *
+   * @return the memory in bytes.
+   */
+  public synchronized long getUsedBytes() {
+    return this.usedBytes;
+  }
+
+  /**
+   * Removes every result from the cache.
+   */
+  public synchronized void clear() {
+    this.results.clear();
+    this.usedBytes = 0;
+  }
+
+  private synchronized void put(List<Object> key, IImage result) {
+    long footprint = result.getMemoryFootprint();
+    if (footprint > this.memoryBudget) {
+      return;
+    }
+
+    IImage previous = this.results.put(key, result);
+    if (previous != null) {
+      this.usedBytes -= previous.getMemoryFootprint();
+    }
+    this.usedBytes += footprint;
+
+    Iterator<IImage> iterator = this.results.values().iterator();
+    while (this.usedBytes > this.memoryBudget) {
+      this.usedBytes -= iterator.next().getMemoryFootprint();
+      iterator.remove();
+    }
+  }
+}
@@ -2,6 +2,7 @@ package model.command;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.Set;
 
 import control.ImageUtil;
 import model.IAlbum;
@@ -20,6 +21,15 @@ public class SaveCommand implements ICommand {
     this.imageName = Objects.requireNonNull(imageName);
   }
 
+  /**
+   * Get the path of the file which this command saves the image to.
+   *
+   * @return the path of the file.
+   */
+  public String getImagePath() {
+    return this.imagePath;
+  }
+
   @Override
   public void apply(IAlbum album, ImageView view) {
     IImage image;
@@ -36,4 +46,14 @@ public class SaveCommand implements ICommand {
       view.renderMessage("Could not write file: " + e.getMessage() + "\n");
     }
   }
+
+  @Override
+  public Set<String> getSourceNames() {
+    return Set.of(this.imageName);
+  }
+
+  @Override
+  public Set<String> getDestinationNames() {
+    return Set.of();
+  }
 }
@@ -0,0 +1,162 @@
+package model.operation;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+import model.IPixel;
+import model.Pixel;
+
+/**
+ * Represents a pixel operation which maps each component of a pixel independently of the other
+ * two, described by three tables of 256 entries (one for each of red, green, and blue). Any such
+ * operation can be applied with three array lookups per pixel, and two tables can be combined
+ * into one which has the same effect as applying them one after the other.
+ */
+public class ChannelLookupTable implements IPixelOperation {
+  private static final int SIZE = IPixel.MAX_VALUE + 1;
+
+  // Stored already shifted into position, so a pixel can be mapped by OR-ing three lookups
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+
+  /**
+   * Constructs a lookup table from the given component mappings. Entry {@code v} of each array
+   * is the new value of that component for a pixel whose original value is {@code v}.
+   *
+   * @param red   the mapping for the red component, with 256 entries in [0, 255].
+   * @param green the mapping for the green component, with 256 entries in [0, 255].
+   * @param blue  the mapping for the blue component, with 256 entries in [0, 255].
+   * @throws IllegalArgumentException if any mapping has the wrong length or an invalid value.
+   */
+  public ChannelLookupTable(int[] red, int[] green, int[] blue) {
+    this.red = shifted(red, 16);
+    this.green = shifted(green, 8);
+    this.blue = shifted(blue, 0);
+  }
+
+  /**
+   * Constructs a lookup table which applies the same mapping to each component.
+   *
+   * @param mapping the mapping for every component, with 256 entries in [0, 255].
+   * @throws IllegalArgumentException if the mapping has the wrong length or an invalid value.
+   */
+  public ChannelLookupTable(int[] mapping) {
+    this(mapping, mapping, mapping);
+  }
+
+  private static int[] shifted(int[] mapping, int shift) {
+    Objects.requireNonNull(mapping);
+    if (mapping.length != SIZE) {
+      throw new IllegalArgumentException("Lookup tables must have " + SIZE + " entries");
+    }
+
+    int[] result = new int[SIZE];
+    for (int i = 0; i < SIZE; ++i) {
+      if (mapping[i] < 0 || mapping[i] > IPixel.MAX_VALUE) {
+        throw new IllegalArgumentException("Invalid pixel value in lookup table");
+      }
+      result[i] = mapping[i] << shift;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the new red value for a pixel with the given red value.
+   *
+   * @param value the original red value.
+   * @return the mapped red value.
+   */
+  public int getRed(int value) {
+    return this.red[value] >> 16;
+  }
+
+  /**
+   * Returns the new green value for a pixel with the given green value.
+   *
+   * @param value the original green value.
+   * @return the mapped green value.
+   */
+  public int getGreen(int value) {
+    return this.green[value] >> 8;
+  }
+
+  /**
+   * Returns the new blue value for a pixel with the given blue value.
+   *
+   * @param value the original blue value.
+   * @return the mapped blue value.
+   */
+  public int getBlue(int value) {
+    return this.blue[value];
+  }
+
+  @Override
+  public IPixel apply(IPixel original) {
+    return Pixel.fromRgb(this.applyRgb(Pixel.toRgb(original)));
+  }
+
+  @Override
+  public int applyRgb(int rgb) {
+    return this.red[(rgb >> 16) & 0xFF] | this.green[(rgb >> 8) & 0xFF] | this.blue[rgb & 0xFF];
+  }
+
+  @Override
+  public void applyRgb(int[] data, int from, int to) {
+    int[] red = this.red;
+    int[] green = this.green;
+    int[] blue = this.blue;
+
+    for (int i = from; i < to; ++i) {
+      int rgb = data[i];
+      data[i] = red[(rgb >> 16) & 0xFF] | green[(rgb >> 8) & 0xFF] | blue[rgb & 0xFF];
+    }
+  }
+
+  @Override
+  public Optional<ChannelLookupTable> toLookupTable() {
+    return Optional.of(this);
+  }
+
+  /**
+   * Returns a lookup table which has the same effect as applying this table, then the given one.
+   *
+   * @param next the table to apply after this one.
+   * @return the combined table.
+   */
+  public ChannelLookupTable then(ChannelLookupTable next) {
+    Objects.requireNonNull(next);
+
+    int[] newRed = new int[SIZE];
+    int[] newGreen = new int[SIZE];
+    int[] newBlue = new int[SIZE];
+    for (int i = 0; i < SIZE; ++i) {
+      newRed[i] = next.getRed(this.getRed(i));
+      newGreen[i] = next.getGreen(this.getGreen(i));
+      newBlue[i] = next.getBlue(this.getBlue(i));
+    }
+    return new ChannelLookupTable(newRed, newGreen, newBlue);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ChannelLookupTable table = (ChannelLookupTable) o;
+    return Arrays.equals(red, table.red) && Arrays.equals(green, table.green)
+            && Arrays.equals(blue, table.blue);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Arrays.hashCode(red);
+    result = 31 * result + Arrays.hashCode(green);
+    result = 31 * result + Arrays.hashCode(blue);
+    return result;
+  }
+}
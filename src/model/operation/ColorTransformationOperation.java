@@ -1,5 +1,8 @@
 package model.operation;
 
+import java.util.Arrays;
+import java.util.Optional;
+
 import model.IPixel;
 import model.Pixel;
 
@@ -14,6 +17,7 @@ import model.Pixel;
  */
 public class ColorTransformationOperation implements IPixelOperation {
   private final double[][] transformation;
+  private final ChannelLookupTable table;
 
   /**
    * Construct a pixel operation which scales the red, green, and blue pixels
@@ -32,6 +36,8 @@ public class ColorTransformationOperation implements IPixelOperation {
       this.transformation[i][1] = greenScale;
       this.transformation[i][2] = blueScale;
     }
+
+    this.table = this.createLookupTable();
   }
 
   /**
@@ -54,21 +60,77 @@ public class ColorTransformationOperation implements IPixelOperation {
 
       System.arraycopy(transformation[i], 0, this.transformation[i], 0, 3);
     }
+
+    this.table = this.createLookupTable();
   }
 
-  private int getComponent(int row, IPixel original) {
-    double value = this.transformation[row][0] * original.getRed()
-            + this.transformation[row][1] * original.getGreen()
-            + this.transformation[row][2] * original.getBlue();
+  private int getComponent(int row, int red, int green, int blue) {
+    double value = this.transformation[row][0] * red
+            + this.transformation[row][1] * green
+            + this.transformation[row][2] * blue;
 
     return Math.max(0, Math.min(255, (int) value));
   }
 
+  @Override
+  public Optional<ChannelLookupTable> toLookupTable() {
+    return Optional.ofNullable(this.table);
+  }
+
+  /**
+   * Build the lookup table equivalent to this transformation, if it has one.
+   *
+   * @return the lookup table, or null if the transformation mixes components.
+   */
+  private ChannelLookupTable createLookupTable() {
+    for (int row = 0; row < 3; ++row) {
+      for (int column = 0; column < 3; ++column) {
+        if (row != column && this.transformation[row][column] != 0) {
+          return null;
+        }
+      }
+    }
+
+    // With a diagonal matrix, each component only depends on itself
+    int[] red = new int[IPixel.MAX_VALUE + 1];
+    int[] green = new int[IPixel.MAX_VALUE + 1];
+    int[] blue = new int[IPixel.MAX_VALUE + 1];
+    for (int i = 0; i <= IPixel.MAX_VALUE; ++i) {
+      red[i] = this.getComponent(0, i, 0, 0);
+      green[i] = this.getComponent(1, 0, i, 0);
+      blue[i] = this.getComponent(2, 0, 0, i);
+    }
+    return new ChannelLookupTable(red, green, blue);
+  }
+
   @Override
   public IPixel apply(IPixel original) {
-    int red = this.getComponent(0, original);
-    int green = this.getComponent(1, original);
-    int blue = this.getComponent(2, original);
-    return new Pixel(red, green, blue);
+    return Pixel.fromRgb(this.applyRgb(Pixel.toRgb(original)));
+  }
+
+  @Override
+  public int applyRgb(int rgb) {
+    int red = (rgb >> 16) & 0xFF;
+    int green = (rgb >> 8) & 0xFF;
+    int blue = rgb & 0xFF;
+    return (this.getComponent(0, red, green, blue) << 16)
+            | (this.getComponent(1, red, green, blue) << 8)
+            | this.getComponent(2, red, green, blue);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return Arrays.deepEquals(transformation, ((ColorTransformationOperation) o).transformation);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.deepHashCode(transformation);
   }
 }
@@ -0,0 +1,115 @@
+package model.operation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import model.IPixel;
+import model.Pixel;
+
+/**
+ * Represents a sequence of pixel operations which are applied one after the other in a single
+ * pass, without creating an image between each step. Consecutive steps which can be described as
+ * lookup tables are folded into a single table when the composite is created.
+ */
+public class CompositePixelOperation implements IPixelOperation {
+  // The number of colors each step is applied to at once, small enough to stay in cache
+  private static final int BLOCK_SIZE = 4096;
+
+  private final List<IPixelOperation> steps;
+
+  /**
+   * Constructs an operation which applies the given operations in order.
+   *
+   * @param operations the operations to apply, first to last.
+   * @throws IllegalArgumentException if no operations are given.
+   */
+  public CompositePixelOperation(List<IPixelOperation> operations) {
+    Objects.requireNonNull(operations);
+    if (operations.isEmpty()) {
+      throw new IllegalArgumentException("A composite operation needs at least one step");
+    }
+
+    List<IPixelOperation> folded = new ArrayList<>();
+    for (IPixelOperation operation : operations) {
+      Objects.requireNonNull(operation);
+
+      // Flatten nested composites so that their tables can be folded with their neighbors
+      List<IPixelOperation> parts = operation instanceof CompositePixelOperation
+              ? ((CompositePixelOperation) operation).steps : List.of(operation);
+
+      for (IPixelOperation part : parts) {
+        int last = folded.size() - 1;
+        Optional<ChannelLookupTable> table = part.toLookupTable();
+        Optional<ChannelLookupTable> previous = last >= 0
+                ? folded.get(last).toLookupTable() : Optional.empty();
+
+        if (table.isPresent() && previous.isPresent()) {
+          folded.set(last, previous.get().then(table.get()));
+        } else {
+          folded.add(part);
+        }
+      }
+    }
+
+    this.steps = Collections.unmodifiableList(folded);
+  }
+
+  /**
+   * Returns the steps this operation applies, after folding lookup tables together.
+   *
+   * @return the steps of this operation, first to last.
+   */
+  public List<IPixelOperation> getSteps() {
+    return this.steps;
+  }
+
+  @Override
+  public IPixel apply(IPixel original) {
+    return Pixel.fromRgb(this.applyRgb(Pixel.toRgb(original)));
+  }
+
+  @Override
+  public int applyRgb(int rgb) {
+    for (IPixelOperation step : this.steps) {
+      rgb = step.applyRgb(rgb);
+    }
+    return rgb;
+  }
+
+  @Override
+  public void applyRgb(int[] data, int from, int to) {
+    for (int start = from; start < to; start += BLOCK_SIZE) {
+      int end = Math.min(to, start + BLOCK_SIZE);
+      for (IPixelOperation step : this.steps) {
+        step.applyRgb(data, start, end);
+      }
+    }
+  }
+
+  @Override
+  public Optional<ChannelLookupTable> toLookupTable() {
+    if (this.steps.size() == 1) {
+      return this.steps.get(0).toLookupTable();
+    }
+    return Optional.empty();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return steps.equals(((CompositePixelOperation) o).steps);
+  }
+
+  @Override
+  public int hashCode() {
+    return steps.hashCode();
+  }
+}
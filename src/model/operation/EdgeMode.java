@@ -0,0 +1,63 @@
+package model.operation;
+
+/**
+ * Represents the ways in which a kernel operation can treat the taps of its kernel which fall
+ * outside of the image, by deciding which pixel of the image (if any) they read instead.
+ */
+public enum EdgeMode {
+  /**
+   * Treats every pixel outside of the image as black.
+   */
+  ZERO {
+    @Override
+    public int resolve(int index, int length) {
+      return index >= 0 && index < length ? index : -1;
+    }
+  },
+
+  /**
+   * Repeats the pixels on the edge of the image outwards.
+   */
+  CLAMP {
+    @Override
+    public int resolve(int index, int length) {
+      return Math.max(0, Math.min(length - 1, index));
+    }
+  },
+
+  /**
+   * Reflects the image about its edge pixels, so the pixel just outside the edge is the same as
+   * the pixel just inside it (the edge pixel itself is not repeated).
+   */
+  MIRROR {
+    @Override
+    public int resolve(int index, int length) {
+      if (length == 1) {
+        return 0;
+      }
+      int period = 2 * (length - 1);
+      int position = Math.floorMod(index, period);
+      return position < length ? position : period - position;
+    }
+  },
+
+  /**
+   * Tiles the image, so the pixel just outside one edge is the pixel on the opposite edge.
+   */
+  WRAP {
+    @Override
+    public int resolve(int index, int length) {
+      return Math.floorMod(index, length);
+    }
+  };
+
+  /**
+   * Returns the index of the pixel which is read in place of the given index along one axis of
+   * the image.
+   *
+   * @param index  the index of the tap, which may be outside of [0, length).
+   * @param length the size of the image along this axis, which must be positive.
+   * @return the index in [0, length) to read instead, or -1 if the tap reads as black.
+   */
+  public abstract int resolve(int index, int length);
+}
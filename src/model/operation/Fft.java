@@ -0,0 +1,162 @@
+package model.operation;
+
+/**
+ * Computes discrete Fourier transforms of complex data whose size is a power of two, using the
+ * iterative radix-2 Cooley-Tukey algorithm. Complex values are stored as separate arrays of real
+ * and imaginary parts. The inverse transforms are not scaled, so a forward transform followed by
+ * an inverse transform multiplies every value by the number of values.
+ */
+final class Fft {
+  private Fft() {
+    // Static utility class
+  }
+
+  /**
+   * Returns the smallest power of two which is at least the given value.
+   *
+   * @param value the minimum size, which must be positive.
+   * @return the size to use for a transform.
+   */
+  static int size(int value) {
+    int size = 1;
+    while (size < value) {
+      size <<= 1;
+    }
+    return size;
+  }
+
+  /**
+   * Transforms the given rows x columns array of complex values in place, stored in row-major
+   * order. Both dimensions must be powers of two.
+   *
+   * @param real    the real parts of the values.
+   * @param imag    the imaginary parts of the values.
+   * @param rows    the number of rows.
+   * @param columns the number of columns.
+   * @param inverse true for the inverse transform, false for the forward transform.
+   */
+  static void transform2d(double[] real, double[] imag, int rows, int columns, boolean inverse) {
+    double[] cos = twiddles(columns, true);
+    double[] sin = twiddles(columns, false);
+    for (int row = 0; row < rows; ++row) {
+      transform(real, imag, row * columns, 1, columns, cos, sin, inverse);
+    }
+
+    transformColumns(real, imag, rows, columns, twiddles(rows, true), twiddles(rows, false),
+            inverse);
+  }
+
+  /**
+   * Transforms every column of a row-major array at once. This is the same algorithm as
+   * {@link #transform}, but each step works on whole rows, so memory is read sequentially.
+   */
+  private static void transformColumns(double[] real, double[] imag, int rows, int columns,
+                                       double[] cos, double[] sin, boolean inverse) {
+    double[] temp = new double[columns];
+    for (int i = 1, j = 0; i < rows; ++i) {
+      int bit = rows >> 1;
+      while ((j & bit) != 0) {
+        j ^= bit;
+        bit >>= 1;
+      }
+      j |= bit;
+
+      if (i < j) {
+        swapRows(real, temp, i * columns, j * columns);
+        swapRows(imag, temp, i * columns, j * columns);
+      }
+    }
+
+    double sign = inverse ? 1 : -1;
+    for (int length = 2; length <= rows; length <<= 1) {
+      int half = length >> 1;
+      int step = rows / length;
+
+      for (int start = 0; start < rows; start += length) {
+        for (int k = 0; k < half; ++k) {
+          double wr = cos[k * step];
+          double wi = sign * sin[k * step];
+          int a = (start + k) * columns;
+          int b = a + half * columns;
+
+          for (int c = 0; c < columns; ++c) {
+            double br = real[b + c] * wr - imag[b + c] * wi;
+            double bi = real[b + c] * wi + imag[b + c] * wr;
+            real[b + c] = real[a + c] - br;
+            imag[b + c] = imag[a + c] - bi;
+            real[a + c] += br;
+            imag[a + c] += bi;
+          }
+        }
+      }
+    }
+  }
+
+  private static void swapRows(double[] values, double[] temp, int a, int b) {
+    System.arraycopy(values, a, temp, 0, temp.length);
+    System.arraycopy(values, b, values, a, temp.length);
+    System.arraycopy(temp, 0, values, b, temp.length);
+  }
+
+  /**
+   * Returns the cosines or sines of 2 * pi * i / n for i in [0, n / 2).
+   */
+  private static double[] twiddles(int n, boolean cosine) {
+    double[] result = new double[Math.max(1, n / 2)];
+    for (int i = 0; i < n / 2; ++i) {
+      double angle = 2 * Math.PI * i / n;
+      result[i] = cosine ? Math.cos(angle) : Math.sin(angle);
+    }
+    return result;
+  }
+
+  /**
+   * Transforms n complex values in place, which are stored starting at the given offset and
+   * spaced by the given stride.
+   */
+  private static void transform(double[] real, double[] imag, int offset, int stride, int n,
+                                double[] cos, double[] sin, boolean inverse) {
+    // Reorder the values into bit-reversed order
+    for (int i = 1, j = 0; i < n; ++i) {
+      int bit = n >> 1;
+      while ((j & bit) != 0) {
+        j ^= bit;
+        bit >>= 1;
+      }
+      j |= bit;
+
+      if (i < j) {
+        int a = offset + i * stride;
+        int b = offset + j * stride;
+        double t = real[a];
+        real[a] = real[b];
+        real[b] = t;
+        t = imag[a];
+        imag[a] = imag[b];
+        imag[b] = t;
+      }
+    }
+
+    double sign = inverse ? 1 : -1;
+    for (int length = 2; length <= n; length <<= 1) {
+      int half = length >> 1;
+      int step = n / length;
+
+      for (int start = 0; start < n; start += length) {
+        for (int k = 0; k < half; ++k) {
+          double wr = cos[k * step];
+          double wi = sign * sin[k * step];
+          int a = offset + (start + k) * stride;
+          int b = a + half * stride;
+
+          double br = real[b] * wr - imag[b] * wi;
+          double bi = real[b] * wi + imag[b] * wr;
+          real[b] = real[a] - br;
+          imag[b] = imag[a] - bi;
+          real[a] += br;
+          imag[a] += bi;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package model.operation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import model.IImage;
+import model.IPixel;
+
+/**
+ * A kernel operation which applies its kernel to whole blocks of rows by multiplying their Fourier
+ * transforms, which takes O(log N) work per pixel no matter how large the kernel is. This is much
+ * faster than {@code KernelOperation} for large kernels which are not separable, and gives the
+ * same results up to rounding (each component is within 1 of direct convolution).
+ *
+ * <p>The rows are processed in blocks several times taller than the kernel (but no taller than the
+ * band of rows being computed), each padded by the kernel radius using the edge mode. Since the
+ * kernel is real, two real images can be convolved at once as the real and imaginary parts of one
+ * complex image: blocks are processed in pairs, with each component of both blocks sharing one
+ * transform. The transform of the kernel is computed once for each block size.
+ */
+public class FftKernelOperation implements IKernelOperation {
+  // Results this close to an integer are rounded to it, so exact results survive rounding errors
+  private static final double SNAP_TOLERANCE = 1e-6;
+  // The minimum height of a block of rows, including the padding
+  private static final int MIN_BLOCK_SIZE = 64;
+  // How many sizes of kernel transforms to remember
+  private static final int TRANSFORM_CACHE_SIZE = 4;
+
+  private final double[][] kernelArray;
+  private final int size;
+  private final EdgeMode edgeMode;
+  // Used for single pixels, for which a transform would be wasted
+  private final KernelOperation direct;
+  // The transforms of the kernel for the most recently used block sizes, by rows and columns
+  private final Map<List<Integer>, double[][]> kernelTransforms;
+
+  /**
+   * A constructor for the {@code FftKernelOperation} which applies the given kernel. Taps outside
+   * of the image read as black.
+   *
+   * @param kernelArray the 2d array that will be applied to the image.
+   */
+  public FftKernelOperation(double[][] kernelArray) {
+    this(kernelArray, EdgeMode.ZERO);
+  }
+
+  /**
+   * A constructor for the {@code FftKernelOperation} which applies the given kernel, treating
+   * taps outside of the image according to the given edge mode.
+   *
+   * @param kernelArray the 2d array that will be applied to the image.
+   * @param edgeMode    how to treat taps which fall outside of the image.
+   */
+  public FftKernelOperation(double[][] kernelArray, EdgeMode edgeMode) {
+    this.direct = new KernelOperation(kernelArray, edgeMode);
+    this.edgeMode = edgeMode;
+    this.size = kernelArray.length;
+    this.kernelTransforms = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<Integer>, double[][]> eldest) {
+        return this.size() > TRANSFORM_CACHE_SIZE;
+      }
+    };
+
+    this.kernelArray = new double[this.size][];
+    for (int i = 0; i < this.size; ++i) {
+      this.kernelArray[i] = kernelArray[i].clone();
+    }
+  }
+
+  /**
+   * Returns how this operation treats taps which fall outside of the image.
+   *
+   * @return the edge mode of this operation.
+   */
+  public EdgeMode getEdgeMode() {
+    return this.edgeMode;
+  }
+
+  @Override
+  public IPixel apply(int x, int y, IImage image) {
+    return this.direct.apply(x, y, image);
+  }
+
+  @Override
+  public int applyRgb(int x, int y, IImage image) {
+    return this.direct.applyRgb(x, y, image);
+  }
+
+  @Override
+  public void applyRows(IImage image, int startY, int endY, int[] dst) {
+    Objects.requireNonNull(image);
+    int width = image.getWidth();
+    if (width == 0 || startY >= endY) {
+      return;
+    }
+
+    int radius = (this.size - 1) / 2;
+    int columns = Fft.size(width + 2 * radius);
+    // Blocks no taller than the band, split evenly, so that little of each block is padding
+    int maxBlockHeight = Fft.size(Math.max(MIN_BLOCK_SIZE, 8 * this.size)) - 2 * radius;
+    int bandHeight = endY - startY;
+    int blocks = (bandHeight + maxBlockHeight - 1) / maxBlockHeight;
+    if (blocks == 1 && bandHeight > 4 * radius) {
+      // Two blocks share three transforms, where one block alone needs two
+      blocks = 2;
+    }
+    int blockHeight = (bandHeight + blocks - 1) / blocks;
+    int rows = Fft.size(blockHeight + 2 * radius);
+    double[][] kernel = this.getKernelTransform(rows, columns);
+
+    double[][] first = new double[3][rows * columns];
+    double[][] second = new double[3][rows * columns];
+    int[] source = new int[width];
+    int[] padded = new int[width + 2 * radius];
+
+    for (int blockStart = startY; blockStart < endY; blockStart += 2 * blockHeight) {
+      int firstEnd = Math.min(endY, blockStart + blockHeight);
+      int secondEnd = Math.min(endY, firstEnd + blockHeight);
+      this.readBlock(image, blockStart, firstEnd, radius, columns, first, source, padded);
+
+      if (secondEnd > firstEnd) {
+        // Each transform holds one component of both blocks, as its real and imaginary parts
+        this.readBlock(image, firstEnd, secondEnd, radius, columns, second, source, padded);
+        for (int channel = 0; channel < 3; ++channel) {
+          this.convolve(first[channel], second[channel], kernel, rows, columns);
+        }
+        this.writeBlock(first, blockStart, firstEnd, width, radius, columns, rows, dst);
+        this.writeBlock(second, firstEnd, secondEnd, width, radius, columns, rows, dst);
+      } else {
+        // A lone block transforms red and green together, and blue with nothing
+        Arrays.fill(second[2], 0);
+        this.convolve(first[0], first[1], kernel, rows, columns);
+        this.convolve(first[2], second[2], kernel, rows, columns);
+        this.writeBlock(first, blockStart, firstEnd, width, radius, columns, rows, dst);
+      }
+    }
+  }
+
+  /**
+   * Returns the transform of the flipped kernel, padded to the given size, as its real and
+   * imaginary parts. The most recent transforms are remembered, since every block of every band
+   * of an image uses the same few sizes.
+   */
+  private double[][] getKernelTransform(int rows, int columns) {
+    List<Integer> key = List.of(rows, columns);
+    synchronized (this.kernelTransforms) {
+      double[][] transform = this.kernelTransforms.get(key);
+      if (transform != null) {
+        return transform;
+      }
+    }
+
+    double[] real = new double[rows * columns];
+    double[] imag = new double[rows * columns];
+    for (int ky = 0; ky < this.size; ++ky) {
+      for (int kx = 0; kx < this.size; ++kx) {
+        // Flipped, so that the convolution lines up each tap with the right pixel
+        real[ky * columns + kx] = this.kernelArray[this.size - 1 - ky][this.size - 1 - kx];
+      }
+    }
+    Fft.transform2d(real, imag, rows, columns, false);
+
+    double[][] transform = {real, imag};
+    synchronized (this.kernelTransforms) {
+      this.kernelTransforms.put(key, transform);
+    }
+    return transform;
+  }
+
+  /**
+   * Reads the rows [blockStart, blockEnd) of the image, padded by the kernel radius on every
+   * side, into the three component planes, and clears the rest of the planes.
+   */
+  private void readBlock(IImage image, int blockStart, int blockEnd, int radius, int columns,
+                         double[][] planes, int[] source, int[] padded) {
+    for (double[] plane : planes) {
+      Arrays.fill(plane, 0);
+    }
+    for (int py = 0; py < blockEnd - blockStart + 2 * radius; ++py) {
+      KernelOperation.readPaddedRow(image, blockStart - radius + py, radius, this.edgeMode,
+              source, padded);
+      for (int px = 0; px < padded.length; ++px) {
+        int rgb = padded[px];
+        planes[0][py * columns + px] = (rgb >> 16) & 0xFF;
+        planes[1][py * columns + px] = (rgb >> 8) & 0xFF;
+        planes[2][py * columns + px] = rgb & 0xFF;
+      }
+    }
+  }
+
+  /**
+   * Writes the convolved rows [blockStart, blockEnd) from the three component planes.
+   */
+  private void writeBlock(double[][] planes, int blockStart, int blockEnd, int width, int radius,
+                          int columns, int rows, int[] dst) {
+    double scale = 1.0 / ((double) rows * columns);
+    for (int y = blockStart; y < blockEnd; ++y) {
+      int offset = (y - blockStart + 2 * radius) * columns + 2 * radius;
+      for (int x = 0; x < width; ++x) {
+        int i = offset + x;
+        dst[y * width + x] = (this.clamp(planes[0][i] * scale) << 16)
+                | (this.clamp(planes[1][i] * scale) << 8)
+                | this.clamp(planes[2][i] * scale);
+      }
+    }
+  }
+
+  /**
+   * Replaces the given complex image with its (circular, unscaled) convolution with the kernel,
+   * given the transform of the kernel. Since the kernel is real, the real and imaginary parts are
+   * convolved independently.
+   */
+  private void convolve(double[] real, double[] imag, double[][] kernel, int rows, int columns) {
+    double[] kernelReal = kernel[0];
+    double[] kernelImag = kernel[1];
+    Fft.transform2d(real, imag, rows, columns, false);
+    for (int i = 0; i < real.length; ++i) {
+      double r = real[i] * kernelReal[i] - imag[i] * kernelImag[i];
+      double m = real[i] * kernelImag[i] + imag[i] * kernelReal[i];
+      real[i] = r;
+      imag[i] = m;
+    }
+    Fft.transform2d(real, imag, rows, columns, true);
+  }
+
+  private int clamp(double value) {
+    double nearest = Math.rint(value);
+    if (Math.abs(value - nearest) < SNAP_TOLERANCE) {
+      value = nearest;
+    }
+    return (int) Math.min(Math.max(value, 0), IPixel.MAX_VALUE);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    FftKernelOperation operation = (FftKernelOperation) o;
+    return edgeMode == operation.edgeMode
+            && Arrays.deepEquals(kernelArray, operation.kernelArray);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.deepHashCode(kernelArray) + edgeMode.hashCode();
+  }
+}
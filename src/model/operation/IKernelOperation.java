@@ -2,6 +2,7 @@ package model.operation;
 
 import model.IImage;
 import model.IPixel;
+import model.Pixel;
 
 /**
  * Represents an operation which can be used to create a new pixel from an original pixel that is
@@ -17,4 +18,37 @@ public interface IKernelOperation {
    * @return the resulting pixel.
    */
   IPixel apply(int x, int y, IImage image);
+
+  /**
+   * Apply the kernel operation to the given pixel, and return the resulting color packed as
+   * 0xRRGGBB. Operations should override this to avoid creating intermediate pixels.
+   *
+   * @param x     the x value of the middle of the kernel.
+   * @param y     the y value of the middle of the kernel.
+   * @param image the original image to apply the operation to.
+   * @return the resulting packed color.
+   */
+  default int applyRgb(int x, int y, IImage image) {
+    return Pixel.toRgb(this.apply(x, y, image));
+  }
+
+  /**
+   * Apply the kernel operation to every pixel in the given rows of the image, writing the
+   * resulting packed colors into the given array. The array holds the whole output image in
+   * row-major order, and only the entries for rows in [startY, endY) are written. Operations
+   * should override this to read the image in bulk rather than pixel by pixel.
+   *
+   * @param image  the original image to apply the operation to.
+   * @param startY the first row to compute, inclusive.
+   * @param endY   the last row to compute, exclusive.
+   * @param dst    the array to write the resulting colors into.
+   */
+  default void applyRows(IImage image, int startY, int endY, int[] dst) {
+    int width = image.getWidth();
+    for (int y = startY; y < endY; ++y) {
+      for (int x = 0; x < width; ++x) {
+        dst[y * width + x] = this.applyRgb(x, y, image);
+      }
+    }
+  }
 }
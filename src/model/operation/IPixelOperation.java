@@ -1,6 +1,10 @@
 package model.operation;
 
+import java.util.List;
+import java.util.Optional;
+
 import model.IPixel;
+import model.Pixel;
 
 /**
  * Represents an operation which can be used to create a new pixel from
@@ -14,4 +18,61 @@ public interface IPixelOperation {
    * @return the resulting pixel.
    */
   IPixel apply(IPixel original);
+
+  /**
+   * Apply the operation to the given color packed as 0xRRGGBB, and return the resulting packed
+   * color. Operations should override this to work on the packed value directly.
+   *
+   * @param rgb the packed color to apply the operation to.
+   * @return the resulting packed color.
+   */
+  default int applyRgb(int rgb) {
+    return Pixel.toRgb(this.apply(Pixel.fromRgb(rgb)));
+  }
+
+  /**
+   * Apply the operation, in place, to every packed color in the given range of the array. If the
+   * operation can be described as a lookup table, the table is used; otherwise each color is
+   * passed to {@code applyRgb}.
+   *
+   * @param data the packed colors to apply the operation to.
+   * @param from the first index to apply the operation to, inclusive.
+   * @param to   the last index to apply the operation to, exclusive.
+   */
+  default void applyRgb(int[] data, int from, int to) {
+    Optional<ChannelLookupTable> table = this.toLookupTable();
+    if (table.isPresent()) {
+      table.get().applyRgb(data, from, to);
+      return;
+    }
+
+    for (int i = from; i < to; ++i) {
+      data[i] = this.applyRgb(data[i]);
+    }
+  }
+
+  /**
+   * Describe this operation as a lookup table, if each component of the resulting pixel depends
+   * only on the same component of the original pixel.
+   *
+   * @return the equivalent lookup table, or an empty optional if there is none.
+   */
+  default Optional<ChannelLookupTable> toLookupTable() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns an operation which applies this operation, then the given one, in a single pass.
+   * If both operations are lookup tables, the result is a single combined table.
+   *
+   * @param next the operation to apply after this one.
+   * @return the combined operation.
+   */
+  default IPixelOperation andThen(IPixelOperation next) {
+    CompositePixelOperation composite = new CompositePixelOperation(List.of(this, next));
+    if (composite.getSteps().size() == 1) {
+      return composite.getSteps().get(0);
+    }
+    return composite;
+  }
 }
@@ -1,6 +1,8 @@
 package model.operation;
 
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.Optional;
 
 import model.IImage;
 import model.IPixel;
@@ -9,19 +11,66 @@ import model.Pixel;
 /**
  * A class that implements the methods of {@code IKernelOperation}. The methods here will be able
  * to filter images through the use of 2d arrays.
+ *
+ * <p>If the kernel is separable (it is the outer product of a column vector and a row vector, like
+ * a Gaussian blur), it can be applied as a horizontal pass followed by a vertical pass, which takes
+ * 2k rather than k * k multiplications per pixel for a k by k kernel. Since the two passes add up
+ * the products in a different order, they only give exactly the same result as the full kernel
+ * when no sum is rounded, so a kernel given as a 2d array is only applied in two passes if its
+ * vectors are exact binary fractions (like the 1/16, 1/8, 1/4 blur) small enough for every sum to
+ * be exact. Other separable kernels can be given directly as their two vectors, in which case each
+ * component may differ by 1 from the full kernel, like with {@code FftKernelOperation}.
+ *
+ * <p>Taps which fall outside of the image are handled according to an {@code EdgeMode}, which is
+ * zero (black) by default. Each source row is copied once into a row padded by k / 2 pixels on
+ * either side using the edge mode, so the kernel itself runs without any per-tap bounds checks.
+ *
+ * <p>Large kernels which are not separable are better applied with {@code FftKernelOperation};
+ * {@link #create(double[][], EdgeMode)} chooses between the two by the size of the kernel.
  */
 public class KernelOperation implements IKernelOperation {
+  /**
+   * The default kernel size at and above which non-separable kernels are applied with an FFT.
+   */
+  public static final int DEFAULT_FFT_THRESHOLD = 15;
+
+  // Relative tolerance when checking whether a kernel is the product of two vectors
+  private static final double SEPARABLE_TOLERANCE = 1e-12;
+  // The bits of a double's significand, within which sums of integers are exact
+  private static final int SIGNIFICAND_BITS = 53;
+  // The bits of a component value
+  private static final int COMPONENT_BITS = 8;
+
+  private static volatile int fftThreshold = Integer.getInteger("imageprocessing.fftThreshold",
+          DEFAULT_FFT_THRESHOLD);
+
   private final double[][] kernelArray;
   private final int size;
+  // The vectors whose outer product is the kernel, or null if it is not separable
+  private final double[] columnVector;
+  private final double[] rowVector;
+  private final EdgeMode edgeMode;
 
   /**
    * A constructor for the {@code KernelOperation} that initializes the size as the length of the
-   * array (the kernel is a square) and a kernel array.
+   * array (the kernel is a square) and a kernel array. Taps outside of the image read as black.
    *
    * @param kernelArray the 2d array that will be applied to the image.
    */
   public KernelOperation(double[][] kernelArray) {
+    this(kernelArray, EdgeMode.ZERO);
+  }
+
+  /**
+   * A constructor for the {@code KernelOperation} that initializes the size as the length of the
+   * array (the kernel is a square), a kernel array, and the way to treat taps outside the image.
+   *
+   * @param kernelArray the 2d array that will be applied to the image.
+   * @param edgeMode    how to treat taps which fall outside of the image.
+   */
+  public KernelOperation(double[][] kernelArray, EdgeMode edgeMode) {
     Objects.requireNonNull(kernelArray);
+    this.edgeMode = Objects.requireNonNull(edgeMode);
 
     if (kernelArray.length % 2 != 1) {
       throw new IllegalArgumentException("The kernel size must be a positive, odd number");
@@ -37,34 +86,546 @@ public class KernelOperation implements IKernelOperation {
 
       System.arraycopy(kernelArray[i], 0, this.kernelArray[i], 0, this.size);
     }
+
+    double[][] factors = factor(this.kernelArray);
+    if (factors != null && !isExact(this.kernelArray, factors[0], factors[1])) {
+      // Two passes would round differently from the full kernel
+      factors = null;
+    }
+    this.columnVector = factors == null ? null : factors[0];
+    this.rowVector = factors == null ? null : factors[1];
+  }
+
+  /**
+   * A constructor for a separable {@code KernelOperation}, whose kernel is the outer product of
+   * the given column and row vectors. Entry (kx, ky) of the kernel is
+   * {@code columnVector[ky] * rowVector[kx]}. The kernel is always applied in two passes, so each
+   * component may differ by 1 from the full kernel. Taps outside of the image read as black.
+   *
+   * @param columnVector the vertical factor of the kernel.
+   * @param rowVector    the horizontal factor of the kernel.
+   */
+  public KernelOperation(double[] columnVector, double[] rowVector) {
+    this(columnVector, rowVector, EdgeMode.ZERO);
+  }
+
+  /**
+   * A constructor for a separable {@code KernelOperation}, whose kernel is the outer product of
+   * the given column and row vectors, with the given way to treat taps outside the image. The
+   * kernel is always applied in two passes, so each component may differ by 1 from the full
+   * kernel.
+   *
+   * @param columnVector the vertical factor of the kernel.
+   * @param rowVector    the horizontal factor of the kernel.
+   * @param edgeMode     how to treat taps which fall outside of the image.
+   */
+  public KernelOperation(double[] columnVector, double[] rowVector, EdgeMode edgeMode) {
+    Objects.requireNonNull(columnVector);
+    this.edgeMode = Objects.requireNonNull(edgeMode);
+    Objects.requireNonNull(rowVector);
+
+    if (columnVector.length % 2 != 1) {
+      throw new IllegalArgumentException("The kernel size must be a positive, odd number");
+    }
+    if (rowVector.length != columnVector.length) {
+      throw new IllegalArgumentException("Kernel arrays must be square!");
+    }
+    this.size = columnVector.length;
+
+    this.columnVector = columnVector.clone();
+    this.rowVector = rowVector.clone();
+    this.kernelArray = new double[this.size][this.size];
+    for (int ky = 0; ky < this.size; ++ky) {
+      for (int kx = 0; kx < this.size; ++kx) {
+        this.kernelArray[ky][kx] = this.columnVector[ky] * this.rowVector[kx];
+      }
+    }
+  }
+
+  /**
+   * Creates an operation which applies the given kernel. Kernels smaller than the FFT threshold
+   * are applied exactly as the full kernel, in two passes only if that gives the same result (see
+   * {@link #KernelOperation(double[][], EdgeMode)}). Larger kernels are applied in two passes if
+   * they are separable at all, and with an FFT otherwise, so each component may differ by 1 from
+   * the full kernel.
+   *
+   * @param kernelArray the 2d array that will be applied to the image.
+   * @param edgeMode    how to treat taps which fall outside of the image.
+   * @return the operation which applies the kernel.
+   */
+  public static IKernelOperation create(double[][] kernelArray, EdgeMode edgeMode) {
+    KernelOperation direct = new KernelOperation(kernelArray, edgeMode);
+    if (direct.isSeparable() || direct.size < fftThreshold) {
+      return direct;
+    }
+    double[][] factors = factor(direct.kernelArray);
+    if (factors != null) {
+      return new KernelOperation(factors[0], factors[1], edgeMode);
+    }
+    return new FftKernelOperation(kernelArray, edgeMode);
+  }
+
+  /**
+   * Returns the kernel size at and above which {@link #create(double[][], EdgeMode)} uses an FFT
+   * for non-separable kernels.
+   *
+   * @return the current FFT threshold.
+   */
+  public static int getFftThreshold() {
+    return fftThreshold;
+  }
+
+  /**
+   * Sets the kernel size at and above which {@link #create(double[][], EdgeMode)} uses an FFT
+   * for non-separable kernels. The default can also be set with the
+   * {@code imageprocessing.fftThreshold} system property.
+   *
+   * @param threshold the new FFT threshold.
+   * @throws IllegalArgumentException if the threshold is not positive.
+   */
+  public static void setFftThreshold(int threshold) {
+    if (threshold < 1) {
+      throw new IllegalArgumentException("FFT threshold must be positive");
+    }
+    fftThreshold = threshold;
+  }
+
+  /**
+   * Find a column vector and a row vector whose outer product is the given kernel.
+   *
+   * @param kernel the square kernel to factor.
+   * @return the column and row vectors, or null if the kernel is not separable.
+   */
+  private static double[][] factor(double[][] kernel) {
+    int size = kernel.length;
+
+    // Use the largest entry as the pivot, to keep the division well-conditioned
+    int pivotRow = 0;
+    int pivotColumn = 0;
+    for (int ky = 0; ky < size; ++ky) {
+      for (int kx = 0; kx < size; ++kx) {
+        if (Math.abs(kernel[ky][kx]) > Math.abs(kernel[pivotRow][pivotColumn])) {
+          pivotRow = ky;
+          pivotColumn = kx;
+        }
+      }
+    }
+
+    double pivot = kernel[pivotRow][pivotColumn];
+    if (pivot == 0 || size == 1) {
+      return null;
+    }
+
+    double[] column = new double[size];
+    double[] row = new double[size];
+    for (int i = 0; i < size; ++i) {
+      column[i] = kernel[i][pivotColumn];
+      row[i] = kernel[pivotRow][i] / pivot;
+    }
+
+    double tolerance = Math.abs(pivot) * SEPARABLE_TOLERANCE;
+    for (int ky = 0; ky < size; ++ky) {
+      for (int kx = 0; kx < size; ++kx) {
+        if (Math.abs(column[ky] * row[kx] - kernel[ky][kx]) > tolerance) {
+          return null;
+        }
+      }
+    }
+    return new double[][]{column, row};
+  }
+
+  /**
+   * Determines whether applying the given vectors in two passes gives exactly the same result as
+   * the given kernel. That is the case when their products are exactly the kernel, every entry is
+   * a binary fraction, and the sum of the products of any components with the kernel, scaled to
+   * integers, fits in a double, so that neither way of adding them up rounds.
+   *
+   * @param kernel the square kernel.
+   * @param column the vertical factor of the kernel.
+   * @param row    the horizontal factor of the kernel.
+   * @return true if the two passes are exact.
+   */
+  private static boolean isExact(double[][] kernel, double[] column, double[] row) {
+    int columnBits = integerBits(column);
+    int rowBits = integerBits(row);
+    if (columnBits < 0 || rowBits < 0) {
+      return false;
+    }
+    int taps = column.length * row.length;
+    int tapBits = Integer.SIZE - Integer.numberOfLeadingZeros(taps - 1);
+    if (COMPONENT_BITS + columnBits + rowBits + tapBits > SIGNIFICAND_BITS) {
+      return false;
+    }
+
+    for (int ky = 0; ky < column.length; ++ky) {
+      for (int kx = 0; kx < row.length; ++kx) {
+        // The product is exact by the bound above
+        if (column[ky] * row[kx] != kernel[ky][kx]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns how many bits the entries of the given vector need once they are all scaled by the
+   * same power of two to integers.
+   *
+   * @param vector the entries to scale.
+   * @return the bits of the largest scaled entry, or -1 if the entries are not all binary
+   *         fractions of at most a double's precision.
+   */
+  private static int integerBits(double[] vector) {
+    int scale = 0;
+    for (double value : vector) {
+      if (!Double.isFinite(value)) {
+        return -1;
+      }
+      while (scale <= SIGNIFICAND_BITS && Math.scalb(value, scale) != Math.rint(
+              Math.scalb(value, scale))) {
+        ++scale;
+      }
+      if (scale > SIGNIFICAND_BITS) {
+        return -1;
+      }
+    }
+
+    double largest = 0;
+    for (double value : vector) {
+      largest = Math.max(largest, Math.abs(Math.scalb(value, scale)));
+    }
+    return largest == 0 ? 0 : Math.getExponent(largest) + 1;
+  }
+
+  /**
+   * Determines whether this kernel is applied as two one-dimensional passes.
+   *
+   * @return true if the kernel is separable, false otherwise.
+   */
+  public boolean isSeparable() {
+    return this.columnVector != null;
+  }
+
+  /**
+   * Returns how this operation treats taps which fall outside of the image.
+   *
+   * @return the edge mode of this operation.
+   */
+  public EdgeMode getEdgeMode() {
+    return this.edgeMode;
   }
 
   @Override
   public IPixel apply(int x, int y, IImage image) {
+    return Pixel.fromRgb(this.applyRgb(x, y, image));
+  }
+
+  @Override
+  public int applyRgb(int x, int y, IImage image) {
     double red = 0;
     double green = 0;
     double blue = 0;
+    int radius = (this.size - 1) / 2;
 
     for (int ky = 0; ky < this.size; ++ky) {
+      int iy = this.edgeMode.resolve(y - radius + ky, image.getHeight());
+      if (iy < 0) {
+        continue;
+      }
+
+      double rowRed = 0;
+      double rowGreen = 0;
+      double rowBlue = 0;
+
       for (int kx = 0; kx < this.size; ++kx) {
-        int ix = x - ((this.size - 1) / 2) + kx;
-        int iy = y - ((this.size - 1) / 2) + ky;
+        int ix = this.edgeMode.resolve(x - radius + kx, image.getWidth());
+
+        if (ix >= 0) {
+          int rgb = image.getRgb(ix, iy);
+          double scalar = this.isSeparable() ? this.rowVector[kx] : this.kernelArray[ky][kx];
+
+          if (this.isSeparable()) {
+            rowRed += ((rgb >> 16) & 0xFF) * scalar;
+            rowGreen += ((rgb >> 8) & 0xFF) * scalar;
+            rowBlue += (rgb & 0xFF) * scalar;
+          } else {
+            red += ((rgb >> 16) & 0xFF) * scalar;
+            green += ((rgb >> 8) & 0xFF) * scalar;
+            blue += (rgb & 0xFF) * scalar;
+          }
+        }
+      }
+
+      if (this.isSeparable()) {
+        red += rowRed * this.columnVector[ky];
+        green += rowGreen * this.columnVector[ky];
+        blue += rowBlue * this.columnVector[ky];
+      }
+    }
+
+    return (this.clamp(red) << 16) | (this.clamp(green) << 8) | this.clamp(blue);
+  }
+
+  @Override
+  public void applyRows(IImage image, int startY, int endY, int[] dst) {
+    Optional<VectorEngine> engine = VectorEngine.get();
+    if (image.getWidth() == 0) {
+      return;
+    } else if (engine.isPresent()) {
+      this.applyVectorRows(engine.get(), image, startY, endY, dst);
+    } else if (this.isSeparable()) {
+      this.applySeparableRows(image, startY, endY, dst);
+    } else {
+      this.applyDirectRows(image, startY, endY, dst);
+    }
+  }
+
+  /**
+   * Apply the full two-dimensional kernel to every pixel in the given rows.
+   */
+  private void applyDirectRows(IImage image, int startY, int endY, int[] dst) {
+    int width = image.getWidth();
+    int radius = (this.size - 1) / 2;
+
+    // Padded source rows are kept in a ring indexed by (unresolved) row number, so each is
+    // built only once
+    int[][] rows = new int[this.size][width + 2 * radius];
+    long[] rowNumbers = this.emptyRowNumbers();
+    int[] source = new int[width];
+
+    for (int y = startY; y < endY; ++y) {
+      for (int ky = 0; ky < this.size; ++ky) {
+        int iy = y - radius + ky;
+        int slot = Math.floorMod(iy, this.size);
+        if (rowNumbers[slot] != iy) {
+          readPaddedRow(image, iy, radius, this.edgeMode, source, rows[slot]);
+          rowNumbers[slot] = iy;
+        }
+      }
+
+      for (int x = 0; x < width; ++x) {
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+
+        for (int ky = 0; ky < this.size; ++ky) {
+          int[] row = rows[Math.floorMod(y - radius + ky, this.size)];
+          double[] kernelRow = this.kernelArray[ky];
+
+          for (int kx = 0; kx < this.size; ++kx) {
+            int rgb = row[x + kx];
+            double scalar = kernelRow[kx];
+
+            red += ((rgb >> 16) & 0xFF) * scalar;
+            green += ((rgb >> 8) & 0xFF) * scalar;
+            blue += (rgb & 0xFF) * scalar;
+          }
+        }
+
+        dst[y * width + x] = (this.clamp(red) << 16) | (this.clamp(green) << 8) | this.clamp(blue);
+      }
+    }
+  }
+
+  /**
+   * Apply the kernel to every pixel in the given rows with the vector engine. The rows are split
+   * into one array of doubles per component, and the sums are computed in the same order as the
+   * scalar loops, so the results are the same.
+   */
+  private void applyVectorRows(VectorEngine engine, IImage image, int startY, int endY,
+                               int[] dst) {
+    int width = image.getWidth();
+    int radius = (this.size - 1) / 2;
+    int paddedWidth = width + 2 * radius;
+    boolean separable = this.isSeparable();
+
+    // The ring holds horizontally filtered rows for separable kernels, otherwise padded rows
+    double[][][] ring = new double[3][this.size][separable ? width : paddedWidth];
+    long[] rowNumbers = this.emptyRowNumbers();
+    int[] source = new int[width];
+    int[] padded = new int[paddedWidth];
+    double[][] components = new double[3][paddedWidth];
+    // Each component as the single row the horizontal pass reads
+    double[][][] componentRows = {{components[0]}, {components[1]}, {components[2]}};
+
+    double[][] rowWeights = {this.rowVector};
+    double[][] weights = this.kernelArray;
+    if (separable) {
+      weights = new double[this.size][];
+      for (int ky = 0; ky < this.size; ++ky) {
+        weights[ky] = new double[]{this.columnVector[ky]};
+      }
+    }
 
-        if (ix >= 0 && ix < image.getWidth() && iy >= 0 && iy < image.getHeight()) {
-          IPixel pixel = image.getPixel(ix, iy);
-          double scalar = this.kernelArray[ky][kx];
+    double[][][] window = new double[3][this.size][];
+    double[][] sums = new double[3][width];
 
-          red += pixel.getRed() * scalar;
-          green += pixel.getGreen() * scalar;
-          blue += pixel.getBlue() * scalar;
+    for (int y = startY; y < endY; ++y) {
+      for (int ky = 0; ky < this.size; ++ky) {
+        int iy = y - radius + ky;
+        int slot = Math.floorMod(iy, this.size);
+        if (rowNumbers[slot] != iy) {
+          readPaddedRow(image, iy, radius, this.edgeMode, source, padded);
+          for (int c = 0; c < 3; ++c) {
+            double[] component = separable ? components[c] : ring[c][slot];
+            int shift = 16 - 8 * c;
+            for (int x = 0; x < paddedWidth; ++x) {
+              component[x] = (padded[x] >> shift) & 0xFF;
+            }
+            if (separable) {
+              engine.convolve(rowWeights, componentRows[c], ring[c][slot], width);
+            }
+          }
+          rowNumbers[slot] = iy;
         }
+
+        for (int c = 0; c < 3; ++c) {
+          window[c][ky] = ring[c][slot];
+        }
+      }
+
+      for (int c = 0; c < 3; ++c) {
+        engine.convolve(weights, window[c], sums[c], width);
+      }
+      for (int x = 0; x < width; ++x) {
+        dst[y * width + x] = (this.clamp(sums[0][x]) << 16) | (this.clamp(sums[1][x]) << 8)
+                | this.clamp(sums[2][x]);
+      }
+    }
+  }
+
+  /**
+   * Apply the kernel to every pixel in the given rows as a horizontal pass with the row vector,
+   * followed by a vertical pass with the column vector.
+   */
+  private void applySeparableRows(IImage image, int startY, int endY, int[] dst) {
+    int width = image.getWidth();
+    int radius = (this.size - 1) / 2;
+
+    // Horizontally filtered rows are kept in a ring indexed by (unresolved) row number
+    double[][] rowRed = new double[this.size][width];
+    double[][] rowGreen = new double[this.size][width];
+    double[][] rowBlue = new double[this.size][width];
+    long[] rowNumbers = this.emptyRowNumbers();
+    int[] source = new int[width];
+    int[] padded = new int[width + 2 * radius];
+
+    for (int y = startY; y < endY; ++y) {
+      for (int ky = 0; ky < this.size; ++ky) {
+        int iy = y - radius + ky;
+        int slot = Math.floorMod(iy, this.size);
+        if (rowNumbers[slot] != iy) {
+          readPaddedRow(image, iy, radius, this.edgeMode, source, padded);
+          this.filterRow(padded, rowRed[slot], rowGreen[slot], rowBlue[slot]);
+          rowNumbers[slot] = iy;
+        }
+      }
+
+      for (int x = 0; x < width; ++x) {
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+
+        for (int ky = 0; ky < this.size; ++ky) {
+          int slot = Math.floorMod(y - radius + ky, this.size);
+          double scalar = this.columnVector[ky];
+
+          red += rowRed[slot][x] * scalar;
+          green += rowGreen[slot][x] * scalar;
+          blue += rowBlue[slot][x] * scalar;
+        }
+
+        dst[y * width + x] = (this.clamp(red) << 16) | (this.clamp(green) << 8) | this.clamp(blue);
+      }
+    }
+  }
+
+  /**
+   * Apply the row vector to every pixel of a single padded source row.
+   */
+  private void filterRow(int[] padded, double[] red, double[] green, double[] blue) {
+    for (int x = 0; x < red.length; ++x) {
+      double sumRed = 0;
+      double sumGreen = 0;
+      double sumBlue = 0;
+
+      for (int kx = 0; kx < this.size; ++kx) {
+        int rgb = padded[x + kx];
+        double scalar = this.rowVector[kx];
+
+        sumRed += ((rgb >> 16) & 0xFF) * scalar;
+        sumGreen += ((rgb >> 8) & 0xFF) * scalar;
+        sumBlue += (rgb & 0xFF) * scalar;
       }
+
+      red[x] = sumRed;
+      green[x] = sumGreen;
+      blue[x] = sumBlue;
+    }
+  }
+
+  /**
+   * Read the given row of the image into a row which is padded by the kernel radius on either
+   * side, using the edge mode for the padding (and for rows outside of the image). Padding which
+   * reads as black adds nothing to the sums, so this gives the same result as skipping those taps.
+   *
+   * @param image    the image to read from.
+   * @param y        the row to read, which may be outside of the image.
+   * @param radius   the number of pixels of padding on either side.
+   * @param edgeMode how to treat pixels outside of the image.
+   * @param source   a buffer for the row, as wide as the image.
+   * @param padded   the array to write the padded row into.
+   */
+  static void readPaddedRow(IImage image, int y, int radius, EdgeMode edgeMode, int[] source,
+                            int[] padded) {
+    int width = source.length;
+    int iy = edgeMode.resolve(y, image.getHeight());
+
+    if (iy < 0) {
+      Arrays.fill(padded, 0);
+      return;
+    }
+
+    image.readRow(iy, source);
+    System.arraycopy(source, 0, padded, radius, width);
+    for (int p = 0; p < radius; ++p) {
+      int left = edgeMode.resolve(p - radius, width);
+      int right = edgeMode.resolve(width + p, width);
+      padded[p] = left < 0 ? 0 : source[left];
+      padded[radius + width + p] = right < 0 ? 0 : source[right];
     }
+  }
 
-    return new Pixel(this.clamp(red), this.clamp(green), this.clamp(blue));
+  private long[] emptyRowNumbers() {
+    // Row numbers can be negative, so use a value no row can have
+    long[] rowNumbers = new long[this.size];
+    Arrays.fill(rowNumbers, Long.MIN_VALUE);
+    return rowNumbers;
   }
 
   private int clamp(double value) {
     return (int) Math.min(Math.max(value, 0), IPixel.MAX_VALUE);
   }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    KernelOperation operation = (KernelOperation) o;
+    // The vectors of separable kernels decide how they are rounded, so they must match too
+    return edgeMode == operation.edgeMode
+            && Arrays.deepEquals(kernelArray, operation.kernelArray)
+            && Arrays.equals(columnVector, operation.columnVector)
+            && Arrays.equals(rowVector, operation.rowVector);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.deepHashCode(kernelArray) + edgeMode.hashCode();
+  }
 }
@@ -1,5 +1,7 @@
 package model.operation;
 
+import java.util.Optional;
+
 import model.IPixel;
 import model.Pixel;
 
@@ -9,6 +11,7 @@ import model.Pixel;
  */
 public class OffsetOperation implements IPixelOperation {
   private final int offset;
+  private final ChannelLookupTable table;
 
   /**
    * Constructs an operation that applies the given offset to each component of a pixel.
@@ -17,13 +20,27 @@ public class OffsetOperation implements IPixelOperation {
    */
   public OffsetOperation(int offset) {
     this.offset = offset;
+
+    int[] mapping = new int[IPixel.MAX_VALUE + 1];
+    for (int i = 0; i < mapping.length; ++i) {
+      mapping[i] = this.addOffsetAndClamp(i, offset);
+    }
+    this.table = new ChannelLookupTable(mapping);
   }
 
   @Override
   public IPixel apply(IPixel original) {
-    return new Pixel(this.addOffsetAndClamp(original.getRed(), this.offset),
-            this.addOffsetAndClamp(original.getGreen(), this.offset),
-            this.addOffsetAndClamp(original.getBlue(), this.offset));
+    return Pixel.fromRgb(this.applyRgb(Pixel.toRgb(original)));
+  }
+
+  @Override
+  public int applyRgb(int rgb) {
+    return this.table.applyRgb(rgb);
+  }
+
+  @Override
+  public Optional<ChannelLookupTable> toLookupTable() {
+    return Optional.of(this.table);
   }
 
   /**
@@ -37,4 +54,20 @@ public class OffsetOperation implements IPixelOperation {
     int result = value + offset;
     return Math.min(Math.max(result, 0), IPixel.MAX_VALUE);
   }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return offset == ((OffsetOperation) o).offset;
+  }
+
+  @Override
+  public int hashCode() {
+    return Integer.hashCode(offset);
+  }
 }
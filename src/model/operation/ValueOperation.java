@@ -15,4 +15,27 @@ public class ValueOperation implements IPixelOperation {
     int max = Math.max(Math.max(original.getRed(), original.getGreen()), original.getBlue());
     return new Pixel(max, max, max);
   }
+
+  @Override
+  public int applyRgb(int rgb) {
+    int max = Math.max(Math.max((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF), rgb & 0xFF);
+    return (max << 16) | (max << 8) | max;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    // Every value operation does the same thing
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return ValueOperation.class.hashCode();
+  }
 }
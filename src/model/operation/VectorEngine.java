@@ -0,0 +1,64 @@
+package model.operation;
+
+import java.util.Optional;
+
+/**
+ * Bulk loops over pixels which can be run with SIMD instructions. The implementation uses the
+ * incubating {@code jdk.incubator.vector} module, so it lives in the separate {@code vector}
+ * source root and is only loaded if it has been compiled and the module is available at runtime
+ * (with {@code --add-modules jdk.incubator.vector}). Otherwise {@link #get()} is empty and
+ * operations run their scalar loops instead.
+ *
+ * <p>Every method works on many pixels at once but keeps the order of the arithmetic for each
+ * pixel the same as the scalar loops, so the results are exactly the same.
+ */
+interface VectorEngine {
+  /**
+   * Returns the vector engine, if it can be used. It can be disabled by setting the
+   * {@code imageprocessing.vector} system property to false.
+   *
+   * @return the vector engine, or empty if operations should use their scalar loops.
+   */
+  static Optional<VectorEngine> get() {
+    return Holder.ENGINE;
+  }
+
+  /**
+   * Computes {@code dst[x]} as the sum over i and j of {@code weights[i][j] * rows[i][x + j]},
+   * for x in [0, length). The products are added in order of i, then j, starting from zero. Each
+   * row must have at least {@code length + weights[i].length - 1} entries.
+   *
+   * @param weights the weights for each row.
+   * @param rows    the rows of values to weight.
+   * @param dst     the array to write the sums into.
+   * @param length  the number of sums to compute.
+   */
+  void convolve(double[][] weights, double[][] rows, double[] dst, int length);
+
+  /**
+   * Loads the vector engine once, the first time it is needed.
+   */
+  final class Holder {
+    private static final String IMPLEMENTATION = "model.operation.IncubatorVectorEngine";
+
+    static final Optional<VectorEngine> ENGINE = load();
+
+    private Holder() {
+      // Holds the engine only
+    }
+
+    private static Optional<VectorEngine> load() {
+      if (!Boolean.parseBoolean(System.getProperty("imageprocessing.vector", "true"))) {
+        return Optional.empty();
+      }
+
+      try {
+        return Optional.of((VectorEngine) Class.forName(IMPLEMENTATION)
+                .getDeclaredConstructor().newInstance());
+      } catch (ReflectiveOperationException | LinkageError e) {
+        // Not compiled, or the incubator module is not available
+        return Optional.empty();
+      }
+    }
+  }
+}
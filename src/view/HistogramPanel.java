@@ -6,19 +6,28 @@ import java.awt.Dimension;
 import java.util.Objects;
 
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import model.Histogram;
 import model.IAlbumState;
+import model.IImage;
 
 /**
- * A panel which shows the histogram of the current image.
+ * A panel which shows the histogram of the current image. The histogram of a large image is
+ * first estimated from a sample of its pixels (see {@code Histogram.approximate}), and replaced
+ * with the exact histogram once it has been counted in the background.
  */
 public class HistogramPanel extends JPanel {
   private static final double X_SCALE = 1; // how many horizontal pixels each item on the graph is
   private static final int Y_PAD = 20;
+  // Images with at most this many times the sample budget in pixels are counted right away
+  private static final int APPROXIMATE_FACTOR = 16;
 
   private final IAlbumState album;
   private final ViewModel viewModel;
+  // The approximate histogram shown until the exact one of the same image is counted
+  private IImage previewImage;
+  private Histogram preview;
 
   /**
    * Construct a histogram panel using the given album and view model.
@@ -39,12 +48,14 @@ public class HistogramPanel extends JPanel {
   public void paintComponent(Graphics g) {
     super.paintComponent(g);
 
-    if (!this.viewModel.isImagePresent()) {
+    // The active image may still be being created
+    if (!this.viewModel.isImagePresent()
+            || !this.album.getImageNames().contains(this.viewModel.getActiveImage())) {
       return;
     }
 
-    Histogram histogram;
-    histogram = new Histogram(this.album.getImage(this.viewModel.getActiveImage()));
+    Histogram histogram = this.getHistogram(
+            this.album.getImage(this.viewModel.getActiveImage()));
 
     int graphStart = (this.getWidth() - (int)(X_SCALE * 256)) / 2;
 
@@ -85,6 +96,30 @@ public class HistogramPanel extends JPanel {
     g.drawPolyline(xAxis, blueLine, 256);
     g.setColor(Color.BLACK);
     g.drawPolyline(xAxis, intensityLine, 256);
+
+    if (!histogram.isExact()) {
+      g.setColor(Color.GRAY);
+      g.drawString("Approximate", graphStart, Y_PAD);
+    }
+  }
+
+  private Histogram getHistogram(IImage image) {
+    // Reused across repaints until the active image changes
+    Histogram exact = Histogram.getCached(image).orElse(null);
+    if (exact != null) {
+      return exact;
+    }
+    int budget = Histogram.getSampleBudget();
+    if ((long) image.getWidth() * image.getHeight() <= (long) APPROXIMATE_FACTOR * budget) {
+      return Histogram.of(image);
+    }
+
+    if (this.previewImage != image) {
+      this.previewImage = image;
+      this.preview = Histogram.approximate(image, budget);
+      Histogram.ofAsync(image).thenRun(() -> SwingUtilities.invokeLater(this::repaint));
+    }
+    return this.preview;
   }
 
   /**
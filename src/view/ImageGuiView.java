@@ -3,7 +3,8 @@ package view;
 import control.ControllerFeatures;
 
 /**
- * A view which uses the asynchronous controller (e.g. by outputting to a GUI).
+ * A view which uses the asynchronous controller (e.g. by outputting to a GUI). The controller runs
+ * commands in the background, so the methods of this view may be called from any thread.
  */
 public interface ImageGuiView extends ImageView {
   /**
@@ -16,4 +17,17 @@ public interface ImageGuiView extends ImageView {
    * Refresh this view to make sure it is displaying the most current state of the album.
    */
   void refresh();
+
+  /**
+   * Show whether commands are running in the background, and so can be cancelled.
+   * @param busy True while any command is running or waiting to run.
+   */
+  void setBusy(boolean busy);
+
+  /**
+   * Show the progress of the command which is running.
+   * @param done The number of rows of the current pass over an image which have finished.
+   * @param total The number of rows in the current pass.
+   */
+  void renderProgress(long done, long total);
 }
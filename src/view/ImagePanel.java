@@ -1,24 +1,58 @@
 package view;
 
 import java.awt.Color;
-import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import javax.swing.ImageIcon;
-import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
 
-import control.ImageUtil;
 import model.IAlbumState;
 import model.IImage;
 
 /**
- * A panel which shows the current image.
+ * A panel which shows the current image, which can be zoomed by scrolling the mouse wheel with
+ * the control key held down. Only the tiles of the image which are visible are drawn, from the
+ * level of a {@code TilePyramid} which matches the zoom, so large images can be panned and zoomed
+ * out without converting the whole image. Tiles which have not been converted yet are created on
+ * a background thread, and drawn from a coarser level in the meantime.
  */
 public class ImagePanel extends JPanel {
+  // The memory which the converted tiles of the current image may use
+  private static final long TILE_MEMORY = 64L * 1024 * 1024;
+  private static final double MIN_ZOOM = 1.0 / 64;
+  private static final double MAX_ZOOM = 16;
+  // How much one notch of the mouse wheel zooms in or out
+  private static final double ZOOM_STEP = 1.25;
+
+  private static final ExecutorService TILES = Executors.newSingleThreadExecutor(task -> {
+    Thread thread = new Thread(task, "tiles");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   private final IAlbumState album;
   private final ViewModel viewModel;
-  private final JLabel label;
+  // The tiles which have been asked for and not created yet
+  private final Set<List<Integer>> pending;
+  // The tiles which could not be created, which are not asked for again
+  private final Set<List<Integer>> failed;
+  private volatile TilePyramid pyramid;
+  private volatile int level;
+  private double zoom;
 
   /**
    * Construct an image panel with the given album and view model.
@@ -29,26 +63,224 @@ public class ImagePanel extends JPanel {
     super();
     this.album = Objects.requireNonNull(album);
     this.viewModel = Objects.requireNonNull(viewModel);
+    this.pending = new HashSet<>();
+    this.failed = new HashSet<>();
+    this.zoom = 1;
 
     this.setBackground(Color.BLACK);
-    this.setLayout(new BorderLayout());
-
-    this.label = new JLabel();
-    this.label.setHorizontalAlignment(JLabel.CENTER);
-    this.label.setVerticalAlignment(JLabel.CENTER);
-
-    this.add(label, BorderLayout.CENTER);
+    this.addMouseWheelListener(this::mouseWheelMoved);
 
     this.refresh();
   }
 
   /**
-   * Refresh this view to update the drawn image, in case the active image changed.
+   * Refresh this view to update the drawn image, in case the active image changed. Nothing
+   * changes while the active image is still being created.
    */
   public void refresh() {
-    if (this.viewModel.isImagePresent()) {
+    if (this.viewModel.isImagePresent()
+            && this.album.getImageNames().contains(this.viewModel.getActiveImage())) {
       IImage image = this.album.getImage(this.viewModel.getActiveImage());
-      this.label.setIcon(new ImageIcon(ImageUtil.imageToBufferedImage(image)));
+      if (this.pyramid == null || this.pyramid.getImage() != image) {
+        this.pyramid = new TilePyramid(image, TILE_MEMORY);
+        this.pending.clear();
+        this.failed.clear();
+        this.revalidate();
+        this.repaint();
+      }
+    }
+  }
+
+  /**
+   * Get how many times larger than the image it is drawn.
+   * @return The zoom factor.
+   */
+  public double getZoom() {
+    return this.zoom;
+  }
+
+  /**
+   * Zoom the image by the given factor, keeping the given point of the panel over the same point
+   * of the image. The zoom is limited to between 1/64 and 16.
+   * @param factor How many times larger to draw the image than it is drawn now.
+   * @param center The point of this panel which stays in place.
+   */
+  public void zoomBy(double factor, Point center) {
+    double zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, this.zoom * factor));
+    if (zoom == this.zoom || this.pyramid == null) {
+      return;
+    }
+
+    double imageX = (center.x - this.getOriginX()) / this.zoom;
+    double imageY = (center.y - this.getOriginY()) / this.zoom;
+    JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+    this.zoom = zoom;
+
+    if (viewport == null) {
+      this.revalidate();
+    } else {
+      Point position = viewport.getViewPosition();
+      Dimension extent = viewport.getExtentSize();
+      Dimension size = this.getPreferredSize();
+      this.setSize(Math.max(size.width, extent.width), Math.max(size.height, extent.height));
+      int x = (int) Math.round(this.getOriginX() + imageX * zoom) - (center.x - position.x);
+      int y = (int) Math.round(this.getOriginY() + imageY * zoom) - (center.y - position.y);
+      viewport.setViewPosition(new Point(
+              Math.max(0, Math.min(x, this.getWidth() - extent.width)),
+              Math.max(0, Math.min(y, this.getHeight() - extent.height))));
+      viewport.revalidate();
+    }
+    this.repaint();
+  }
+
+  private void mouseWheelMoved(MouseWheelEvent e) {
+    if (e.isControlDown()) {
+      this.zoomBy(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getPoint());
+      e.consume();
+    } else if (this.getParent() != null) {
+      // Let the scroll pane scroll as usual
+      this.getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, this.getParent()));
+    }
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    TilePyramid pyramid = this.pyramid;
+    if (pyramid == null || this.isPreferredSizeSet()) {
+      return super.getPreferredSize();
+    }
+    IImage image = pyramid.getImage();
+    return new Dimension((int) Math.ceil(image.getWidth() * this.zoom),
+            (int) Math.ceil(image.getHeight() * this.zoom));
+  }
+
+  // The image is centered when it is smaller than the panel
+  private int getOriginX() {
+    return Math.max(0, (this.getWidth() - this.getPreferredSize().width) / 2);
+  }
+
+  private int getOriginY() {
+    return Math.max(0, (this.getHeight() - this.getPreferredSize().height) / 2);
+  }
+
+  @Override
+  public void paintComponent(Graphics g) {
+    super.paintComponent(g);
+
+    TilePyramid pyramid = this.pyramid;
+    if (pyramid == null) {
+      return;
+    }
+
+    // The coarsest level with at least one pixel for each pixel drawn
+    int level = 0;
+    while (level + 1 < pyramid.getLevels() && this.zoom * (1 << (level + 1)) <= 1) {
+      ++level;
+    }
+    this.level = level;
+
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(0, 0, this.getWidth(), this.getHeight());
+    }
+    int originX = this.getOriginX();
+    int originY = this.getOriginY();
+    // The size of each tile of this level on the screen
+    double tileSize = TilePyramid.TILE_SIZE * this.zoom * (1 << level);
+    int firstColumn = Math.max(0, (int) Math.floor((clip.x - originX) / tileSize));
+    int lastColumn = Math.min(pyramid.getColumns(level) - 1,
+            (int) Math.floor((clip.x + clip.width - originX) / tileSize));
+    int firstRow = Math.max(0, (int) Math.floor((clip.y - originY) / tileSize));
+    int lastRow = Math.min(pyramid.getRows(level) - 1,
+            (int) Math.floor((clip.y + clip.height - originY) / tileSize));
+
+    Graphics2D g2 = (Graphics2D) g.create();
+    g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, this.zoom < 1
+            ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+            : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+    for (int row = firstRow; row <= lastRow; ++row) {
+      for (int column = firstColumn; column <= lastColumn; ++column) {
+        this.paintTile(g2, pyramid, level, column, row, originX, originY);
+      }
+    }
+    g2.dispose();
+  }
+
+  private void paintTile(Graphics2D g, TilePyramid pyramid, int level, int column, int row,
+                         int originX, int originY) {
+    int size = TilePyramid.TILE_SIZE;
+    int startX = column * size;
+    int startY = row * size;
+    int endX = Math.min(pyramid.getLevelWidth(level), startX + size);
+    int endY = Math.min(pyramid.getLevelHeight(level), startY + size);
+
+    IImage image = pyramid.getImage();
+    int x1 = originX + this.toScreen(startX, level, image.getWidth());
+    int y1 = originY + this.toScreen(startY, level, image.getHeight());
+    int x2 = originX + this.toScreen(endX, level, image.getWidth());
+    int y2 = originY + this.toScreen(endY, level, image.getHeight());
+
+    BufferedImage tile = pyramid.getCachedTile(level, column, row);
+    if (tile != null) {
+      g.drawImage(tile, x1, y1, x2, y2, 0, 0, tile.getWidth(), tile.getHeight(), null);
+      return;
+    }
+    this.requestTile(pyramid, level, column, row);
+
+    // Until the tile is ready, draw the part of a coarser tile which covers it
+    for (int above = level + 1; above < pyramid.getLevels(); ++above) {
+      int shift = above - level;
+      int coarseColumn = (startX >> shift) / size;
+      int coarseRow = (startY >> shift) / size;
+      BufferedImage coarse = pyramid.getCachedTile(above, coarseColumn, coarseRow);
+      if (coarse != null) {
+        int round = (1 << shift) - 1;
+        g.drawImage(coarse, x1, y1, x2, y2,
+                (startX >> shift) - coarseColumn * size, (startY >> shift) - coarseRow * size,
+                ((endX + round) >> shift) - coarseColumn * size,
+                ((endY + round) >> shift) - coarseRow * size, null);
+        return;
+      }
+    }
+  }
+
+  // The position on the screen of a pixel coordinate of the given level, relative to the origin
+  private int toScreen(int coordinate, int level, int imageSize) {
+    return (int) Math.round(Math.min(imageSize, (long) coordinate << level) * this.zoom);
+  }
+
+  private void requestTile(TilePyramid pyramid, int level, int column, int row) {
+    List<Integer> key = List.of(level, column, row);
+    if (this.failed.contains(key) || !this.pending.add(key)) {
+      return;
+    }
+
+    TILES.execute(() -> {
+      boolean created = this.createTile(pyramid, level, column, row);
+      SwingUtilities.invokeLater(() -> {
+        if (this.pyramid == pyramid) {
+          this.pending.remove(key);
+          if (created) {
+            this.repaint();
+          } else {
+            this.failed.add(key);
+          }
+        }
+      });
+    });
+  }
+
+  // Returns false if the tile could not be created, such as when a deferred image fails to compute
+  // or a spilled image cannot be read back, since it would fail again on every repaint
+  private boolean createTile(TilePyramid pyramid, int level, int column, int row) {
+    try {
+      // Skip tiles which are no longer needed by the time their turn comes
+      if (this.pyramid == pyramid && this.level == level) {
+        pyramid.getTile(level, column, row);
+      }
+      return true;
+    } catch (RuntimeException e) {
+      return false;
     }
   }
 }
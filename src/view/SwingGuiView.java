@@ -1,9 +1,12 @@
 package view;
 
+import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 
 import java.awt.BorderLayout;
@@ -16,13 +19,16 @@ import control.ControllerFeatures;
 import model.IAlbumState;
 
 /**
- * A GUI view for the image processing implemented in Swing.
+ * A GUI view for the image processing implemented in Swing. Calls from other threads, such as the
+ * controller's background thread, are passed on to the event dispatch thread.
  */
 public class SwingGuiView extends JFrame implements ImageGuiView {
   private final TabPanel tabPanel;
   private final ImagePanel imagePanel;
   private final HistogramPanel histogramPanel;
   private final CommandPanel commandPanel;
+  private final JProgressBar progressBar;
+  private final JButton cancelButton;
 
   /**
    * Construct an image view using the specified album.
@@ -56,21 +62,54 @@ public class SwingGuiView extends JFrame implements ImageGuiView {
     scrollFrame.setPreferredSize(new Dimension(600, 400));
     this.add(scrollFrame, BorderLayout.CENTER);
 
+    JPanel statusPanel = new JPanel();
+    statusPanel.setLayout(new BorderLayout());
+    this.progressBar = new JProgressBar(0, 100);
+    this.progressBar.setStringPainted(true);
+    this.progressBar.setVisible(false);
+    statusPanel.add(this.progressBar, BorderLayout.CENTER);
+    this.cancelButton = new JButton("Cancel");
+    this.cancelButton.setEnabled(false);
+    statusPanel.add(this.cancelButton, BorderLayout.LINE_END);
+    this.add(statusPanel, BorderLayout.PAGE_END);
+
     this.pack();
     this.setVisible(true);
   }
 
   @Override
   public void refresh() {
+    if (!SwingUtilities.isEventDispatchThread()) {
+      SwingUtilities.invokeLater(this::refresh);
+      return;
+    }
+
     this.tabPanel.refresh();
     this.imagePanel.refresh();
     this.histogramPanel.refresh();
     this.commandPanel.refresh();
   }
 
+  @Override
+  public void setBusy(boolean busy) {
+    // Always queued, so that the busy state changes in the order the controller reports it
+    SwingUtilities.invokeLater(() -> {
+      this.progressBar.setValue(0);
+      this.progressBar.setVisible(busy);
+      this.cancelButton.setEnabled(busy);
+    });
+  }
+
+  @Override
+  public void renderProgress(long done, long total) {
+    int percent = total == 0 ? 100 : (int) (100 * done / total);
+    SwingUtilities.invokeLater(() -> this.progressBar.setValue(percent));
+  }
+
   @Override
   public void useFeatures(ControllerFeatures features) {
     this.commandPanel.useFeatures(features);
+    this.cancelButton.addActionListener((e) -> features.cancelCommands());
   }
 
   @Override
@@ -80,6 +119,11 @@ public class SwingGuiView extends JFrame implements ImageGuiView {
 
   @Override
   public void renderMessage(String message) {
+    if (!SwingUtilities.isEventDispatchThread()) {
+      SwingUtilities.invokeLater(() -> this.renderMessage(message));
+      return;
+    }
+
     JOptionPane.showMessageDialog(null, message);
   }
 }
@@ -0,0 +1,230 @@
+package view;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import model.IImage;
+
+/**
+ * A resolution pyramid of an image, split into square tiles which are converted to
+ * {@code BufferedImage}s only when they are needed. Level 0 is the image itself, and each level
+ * above it has half the width and height of the level below (rounded up), each pixel averaging a
+ * 2x2 block of the level below, up to the first level which fits in a single tile.
+ *
+ * <p>Tiles are created on demand, from the image for level 0 and from the four tiles below them
+ * for the other levels, and the most recently used tiles are kept within a memory budget. Tiles
+ * may be created on one thread while another thread looks up the cached tiles.
+ */
+class TilePyramid {
+  /**
+   * The width and height of every tile, except for the tiles on the right and bottom edges of
+   * each level, which may be smaller.
+   */
+  static final int TILE_SIZE = 256;
+
+  private final IImage image;
+  private final int levels;
+  private final long memoryBudget;
+  // In order of use, from least to most recent
+  private final Map<List<Integer>, BufferedImage> tiles;
+  private long usedBytes;
+
+  /**
+   * Construct an empty pyramid of the given image.
+   * @param image The image at level 0.
+   * @param memoryBudget The memory, in bytes, which the cached tiles may use.
+   * @throws IllegalArgumentException if the budget is negative.
+   */
+  TilePyramid(IImage image, long memoryBudget) {
+    if (memoryBudget < 0) {
+      throw new IllegalArgumentException("Memory budget must not be negative");
+    }
+    this.image = Objects.requireNonNull(image);
+    this.memoryBudget = memoryBudget;
+    this.tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    int level = 0;
+    while (this.getLevelWidth(level) > TILE_SIZE || this.getLevelHeight(level) > TILE_SIZE) {
+      ++level;
+    }
+    this.levels = level + 1;
+  }
+
+  /**
+   * Get the image at level 0 of this pyramid.
+   * @return The image.
+   */
+  IImage getImage() {
+    return this.image;
+  }
+
+  /**
+   * Get the number of levels in this pyramid, the last of which fits in a single tile.
+   * @return The number of levels.
+   */
+  int getLevels() {
+    return this.levels;
+  }
+
+  /**
+   * Get the width of the given level.
+   * @param level The level, where 0 is the full image.
+   * @return The width of the level, in pixels.
+   */
+  int getLevelWidth(int level) {
+    return (int) (((long) this.image.getWidth() + (1L << level) - 1) >> level);
+  }
+
+  /**
+   * Get the height of the given level.
+   * @param level The level, where 0 is the full image.
+   * @return The height of the level, in pixels.
+   */
+  int getLevelHeight(int level) {
+    return (int) (((long) this.image.getHeight() + (1L << level) - 1) >> level);
+  }
+
+  /**
+   * Get the number of columns of tiles in the given level.
+   * @param level The level, where 0 is the full image.
+   * @return The number of columns.
+   */
+  int getColumns(int level) {
+    return (this.getLevelWidth(level) + TILE_SIZE - 1) / TILE_SIZE;
+  }
+
+  /**
+   * Get the number of rows of tiles in the given level.
+   * @param level The level, where 0 is the full image.
+   * @return The number of rows.
+   */
+  int getRows(int level) {
+    return (this.getLevelHeight(level) + TILE_SIZE - 1) / TILE_SIZE;
+  }
+
+  /**
+   * Get the estimated memory used by the cached tiles.
+   * @return The memory in bytes.
+   */
+  synchronized long getUsedBytes() {
+    return this.usedBytes;
+  }
+
+  /**
+   * Get the given tile if it is cached, without creating it.
+   * @param level The level of the tile.
+   * @param column The column of the tile in its level.
+   * @param row The row of the tile in its level.
+   * @return The tile, or null if it is not cached.
+   */
+  synchronized BufferedImage getCachedTile(int level, int column, int row) {
+    return this.tiles.get(List.of(level, column, row));
+  }
+
+  /**
+   * Get the given tile, creating it (and any tiles below it which are needed) if it is not
+   * cached.
+   * @param level The level of the tile.
+   * @param column The column of the tile in its level.
+   * @param row The row of the tile in its level.
+   * @return The tile.
+   * @throws IllegalArgumentException if there is no such tile.
+   */
+  BufferedImage getTile(int level, int column, int row) {
+    if (level < 0 || level >= this.levels || column < 0 || column >= this.getColumns(level)
+            || row < 0 || row >= this.getRows(level)) {
+      throw new IllegalArgumentException("Invalid tile");
+    }
+
+    BufferedImage tile = this.getCachedTile(level, column, row);
+    if (tile == null) {
+      tile = level == 0 ? this.readTile(column, row) : this.downsampleTile(level, column, row);
+      this.put(List.of(level, column, row), tile);
+    }
+    return tile;
+  }
+
+  private BufferedImage readTile(int column, int row) {
+    int x = column * TILE_SIZE;
+    int y = row * TILE_SIZE;
+    int width = Math.min(TILE_SIZE, this.getLevelWidth(0) - x);
+    int height = Math.min(TILE_SIZE, this.getLevelHeight(0) - y);
+
+    BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    this.image.readRegion(x, y, width, height, getData(tile));
+    return tile;
+  }
+
+  private BufferedImage downsampleTile(int level, int column, int row) {
+    int width = Math.min(TILE_SIZE, this.getLevelWidth(level) - column * TILE_SIZE);
+    int height = Math.min(TILE_SIZE, this.getLevelHeight(level) - row * TILE_SIZE);
+
+    // The block of the level below which this tile covers, made of up to 2x2 tiles
+    int blockWidth = Math.min(2 * TILE_SIZE,
+            this.getLevelWidth(level - 1) - 2 * column * TILE_SIZE);
+    int blockHeight = Math.min(2 * TILE_SIZE,
+            this.getLevelHeight(level - 1) - 2 * row * TILE_SIZE);
+    int[] block = new int[blockWidth * blockHeight];
+    for (int j = 0; j * TILE_SIZE < blockHeight; ++j) {
+      for (int i = 0; i * TILE_SIZE < blockWidth; ++i) {
+        BufferedImage below = this.getTile(level - 1, 2 * column + i, 2 * row + j);
+        int[] data = getData(below);
+        for (int y = 0; y < below.getHeight(); ++y) {
+          System.arraycopy(data, y * below.getWidth(), block,
+                  (j * TILE_SIZE + y) * blockWidth + i * TILE_SIZE, below.getWidth());
+        }
+      }
+    }
+
+    BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] data = getData(tile);
+    for (int y = 0; y < height; ++y) {
+      int top = 2 * y * blockWidth;
+      // An odd last row or column is averaged with itself
+      int bottom = Math.min(2 * y + 1, blockHeight - 1) * blockWidth;
+      for (int x = 0; x < width; ++x) {
+        int left = 2 * x;
+        int right = Math.min(2 * x + 1, blockWidth - 1);
+        data[y * width + x] = average(block[top + left], block[top + right],
+                block[bottom + left], block[bottom + right]);
+      }
+    }
+    return tile;
+  }
+
+  private static int average(int a, int b, int c, int d) {
+    int red = (((a >> 16) & 0xFF) + ((b >> 16) & 0xFF) + ((c >> 16) & 0xFF)
+            + ((d >> 16) & 0xFF) + 2) >> 2;
+    int green = (((a >> 8) & 0xFF) + ((b >> 8) & 0xFF) + ((c >> 8) & 0xFF)
+            + ((d >> 8) & 0xFF) + 2) >> 2;
+    int blue = ((a & 0xFF) + (b & 0xFF) + (c & 0xFF) + (d & 0xFF) + 2) >> 2;
+    return (red << 16) | (green << 8) | blue;
+  }
+
+  private static int[] getData(BufferedImage tile) {
+    // A new TYPE_INT_RGB image stores exactly the packed colors, in one row-major array
+    return ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+  }
+
+  private synchronized void put(List<Integer> key, BufferedImage tile) {
+    long footprint = 4L * tile.getWidth() * tile.getHeight();
+    BufferedImage previous = this.tiles.put(key, tile);
+    if (previous != null) {
+      this.usedBytes -= 4L * previous.getWidth() * previous.getHeight();
+    }
+    this.usedBytes += footprint;
+
+    // Never evicts the new tile, which is the most recently used
+    Iterator<BufferedImage> iterator = this.tiles.values().iterator();
+    while (this.usedBytes > this.memoryBudget && this.tiles.size() > 1) {
+      BufferedImage evicted = iterator.next();
+      this.usedBytes -= 4L * evicted.getWidth() * evicted.getHeight();
+      iterator.remove();
+    }
+  }
+}
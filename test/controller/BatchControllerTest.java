@@ -0,0 +1,127 @@
+package controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import control.BatchController;
+import control.ImageUtil;
+import model.IImage;
+import model.ImageBuilder;
+import view.ImageTextView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the batch controller, which runs a script template on every matching file in a
+ * directory.
+ */
+public class BatchControllerTest {
+  Path directory;
+  Path output;
+
+  @Before
+  public void initFiles() throws IOException {
+    this.directory = Files.createTempDirectory("batch");
+    this.output = Files.createDirectory(this.directory.resolve("out"));
+
+    for (int i = 0; i < 5; ++i) {
+      ImageBuilder builder = new ImageBuilder(4, 3);
+      builder.writeRow(0, new int[]{i, 0x102030, 0x405060, 0x708090});
+      ImageUtil.savePPM(this.directory.resolve("image" + i + ".ppm").toString(),
+              builder.build("image"));
+    }
+    Files.write(this.directory.resolve("broken.ppm"), "P3 1 1 255 0 0".getBytes());
+    Files.write(this.directory.resolve("notes.txt"), "not an image".getBytes());
+  }
+
+  @After
+  public void deleteFiles() throws IOException {
+    try (Stream<Path> files = Files.walk(this.directory)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  private String template() {
+    return "load {file} image\n"
+            + "brighten 10 image bright\n"
+            + "save " + this.output + File.separator + "{name}-bright.png bright\n";
+  }
+
+  @Test
+  public void testBatch() throws IOException {
+    StringBuilder log = new StringBuilder();
+    BatchController controller = new BatchController(new ImageTextView(log), this.directory,
+            "*.ppm", this.template(), 3, 1 << 20);
+    controller.run();
+
+    List<BatchController.Result> results = controller.getResults();
+    assertEquals(6, results.size());
+    assertEquals("broken.ppm", results.get(0).getFile().getFileName().toString());
+    assertFalse(results.get(0).isSuccess());
+    assertTrue(results.get(0).getError().contains("Not enough pixel values"));
+
+    for (int i = 0; i < 5; ++i) {
+      BatchController.Result result = results.get(i + 1);
+      assertTrue(result.isSuccess());
+      assertEquals("image" + i + ".ppm", result.getFile().getFileName().toString());
+
+      IImage saved = ImageUtil.loadImage(
+              this.output.resolve("image" + i + "-bright.png").toString(), "saved");
+      assertEquals(i + 0x0A0A0A, saved.getRgb(0, 0));
+      assertEquals(0x1A2A3A, saved.getRgb(1, 0));
+    }
+
+    assertTrue(log.toString().contains("FAILED " + this.directory.resolve("broken.ppm")));
+    assertTrue(log.toString().contains("OK     " + this.directory.resolve("image3.ppm")));
+    assertTrue(log.toString().matches(
+            "(?s).*\nProcessed 6 files in \\d+ ms: 5 succeeded, 1 failed\n"));
+  }
+
+  @Test
+  public void testSmallMemoryBudget() {
+    // Every file needs more than the whole budget, so they run one at a time
+    BatchController controller = new BatchController(new ImageTextView(new StringBuilder()),
+            this.directory, "image*.ppm", this.template(), 4, 1);
+    controller.run();
+
+    assertEquals(5, controller.getResults().size());
+    assertTrue(controller.getResults().stream().allMatch(BatchController.Result::isSuccess));
+  }
+
+  @Test
+  public void testScriptErrors() {
+    BatchController controller = new BatchController(new ImageTextView(new StringBuilder()),
+            this.directory, "image0.ppm", "load {file} image\nfrobnicate image\n", 1, 1 << 20);
+    controller.run();
+
+    assertEquals(1, controller.getResults().size());
+    assertEquals("Command not found!",
+            controller.getResults().get(0).getError().split("; ")[0]);
+  }
+
+  @Test
+  public void testMissingDirectory() {
+    StringBuilder log = new StringBuilder();
+    new BatchController(new ImageTextView(log), this.directory.resolve("missing"), "*",
+            this.template(), 1, 1 << 20).run();
+
+    assertTrue(log.toString().startsWith("Could not list files: "));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    new BatchController(new ImageTextView(new StringBuilder()), this.directory, "*",
+            this.template(), 0, 1 << 20);
+  }
+}
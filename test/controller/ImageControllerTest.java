@@ -6,6 +6,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.StringReader;
 import java.util.Arrays;
+import java.util.Set;
 
 import control.ImageController;
 import control.ImageControllerImpl;
@@ -14,6 +15,7 @@ import model.IAlbum;
 import view.ImageTextView;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -62,6 +64,7 @@ public class ImageControllerTest {
             "sharpen\n" +
             "grayscale\n" +
             "sepia\n" +
+            "kernel\n" +
             "Enter command:\n";
 
     assertEquals(expected, output.toString());
@@ -95,6 +98,7 @@ public class ImageControllerTest {
             "sharpen\n" +
             "grayscale\n" +
             "sepia\n" +
+            "kernel\n" +
             "Enter command:\n";
 
     assertTrue(output.toString().startsWith(expected));
@@ -193,4 +197,75 @@ public class ImageControllerTest {
     // The command following the invalid commands should still be executed
     assertNotNull(album.getImage("red-rocks"));
   }
+
+  @Test
+  public void testPipelineMode() {
+    Appendable output = new StringBuffer();
+    IAlbum album = new Album();
+    IAlbum pipelineAlbum = new Album();
+
+    String commands = "load res/rocks.ppm rocks  brighten 10 rocks bright  "
+            + "sepia bright sepia  luma sepia luma  red-component bright red";
+
+    new ImageControllerImpl(album, new ImageTextView(output), new StringReader(commands)).run();
+    new ImageControllerImpl(pipelineAlbum, new ImageTextView(output),
+            new StringReader(commands), true).run();
+
+    assertEquals(album.getImage("luma"), pipelineAlbum.getImage("luma"));
+    assertEquals(album.getImage("red"), pipelineAlbum.getImage("red"));
+    // bright is used by a later command, but sepia is only an intermediate
+    assertTrue(pipelineAlbum.getImageNames().contains("bright"));
+    assertFalse(pipelineAlbum.getImageNames().contains("sepia"));
+  }
+
+  @Test
+  public void testCustomKernel() {
+    Appendable output = new StringBuffer();
+    IAlbum album = new Album();
+
+    String commands = "load res/rocks.ppm rocks  blur rocks blurred  "
+            + "kernel 3 0.0625 0.125 0.0625 0.125 0.25 0.125 0.0625 0.125 0.0625 rocks custom";
+
+    new ImageControllerImpl(album, new ImageTextView(output), new StringReader(commands)).run();
+
+    assertEquals(album.getImage("blurred"), album.getImage("custom"));
+  }
+
+  @Test
+  public void testMalformedLineSkipped() {
+    Appendable output = new StringBuffer();
+    IAlbum album = new Album();
+
+    String commands = "load res/rocks.ppm rocks\n"
+            + "brighten abc rocks bad\n"
+            + "brighten 10 rocks bright\n"
+            + "darken 10";
+
+    new ImageControllerImpl(album, new ImageTextView(output), new StringReader(commands), true)
+            .run();
+
+    // The valid commands still ran, before and after the malformed lines
+    assertTrue(album.getImageNames().contains("bright"));
+    assertFalse(album.getImageNames().contains("bad"));
+    assertTrue(output.toString().contains("Invalid arguments for brighten!\n"));
+    assertTrue(output.toString().contains("Invalid arguments for darken!\n"));
+    assertFalse(output.toString().contains("Command not found!"));
+  }
+
+  @Test
+  public void testInvalidKernelSize() {
+    Appendable output = new StringBuffer();
+    IAlbum album = new Album();
+
+    String commands = "load res/rocks.ppm rocks\n"
+            + "kernel 0 rocks zero\n"
+            + "kernel 2 1 1 1 1 rocks even\n"
+            + "kernel 1 1 rocks copy\n";
+
+    new ImageControllerImpl(album, new ImageTextView(output), new StringReader(commands)).run();
+
+    assertEquals(Set.of("rocks", "copy"), album.getImageNames());
+    assertEquals(2, output.toString().split(
+            "The kernel size must be a positive, odd number\n", -1).length - 1);
+  }
 }
@@ -3,16 +3,27 @@ package controller;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import control.ControllerFeatures;
 import control.ImageGuiController;
 import model.Album;
 import model.IAlbum;
+import model.ImageExecutor;
+import model.LazyImage;
 import model.command.FlipCommand;
+import model.command.ICommand;
 import model.command.LoadCommand;
+import model.command.PixelOperationCommand;
+import model.operation.OffsetOperation;
 import view.ImageGuiView;
+import view.ImageView;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -24,8 +35,11 @@ import static org.junit.Assert.assertTrue;
  */
 public class ImageGuiControllerTest {
   private static class MockGuiView implements ImageGuiView {
-    private int refreshCount = 0;
-    private final List<String> messages = new ArrayList<>();
+    private volatile int refreshCount = 0;
+    private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+    private final List<Boolean> busy = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> progress = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch idle = new CountDownLatch(1);
     private boolean hasFeatures = false;
 
     @Override
@@ -46,6 +60,31 @@ public class ImageGuiControllerTest {
       return this.refreshCount;
     }
 
+    @Override
+    public void setBusy(boolean busy) {
+      this.busy.add(busy);
+      if (!busy) {
+        this.idle.countDown();
+      }
+    }
+
+    public List<Boolean> getBusy() {
+      return this.busy;
+    }
+
+    public void awaitIdle() throws InterruptedException {
+      assertTrue(this.idle.await(10, TimeUnit.SECONDS));
+    }
+
+    @Override
+    public void renderProgress(long done, long total) {
+      this.progress.add(done);
+    }
+
+    public List<Long> getProgress() {
+      return this.progress;
+    }
+
     @Override
     public void renderCommands(Set<String> commands) {
       // Unused in the unit tests that follow
@@ -91,7 +130,7 @@ public class ImageGuiControllerTest {
   public void testRunCommand() {
     IAlbum album = new Album();
     MockGuiView view = new MockGuiView();
-    ImageGuiController controller = new ImageGuiController(album, view);
+    ImageGuiController controller = new ImageGuiController(album, view, Runnable::run);
 
     // the command is applied to the stored album
     controller.runCommand(new LoadCommand("res/rocks.ppm", "rocks"));
@@ -114,6 +153,119 @@ public class ImageGuiControllerTest {
     controller.runCommand(new FlipCommand("flipped", "two-flips", true));
     assertEquals(3, album.getImageNames().size());
     assertEquals(album.getImage("rocks"), album.getImage("two-flips"));
+    assertEquals(List.of(true, false, true, false, true, false, true, false), view.getBusy());
+  }
+
+  /**
+   * A command which works on the bands of a tall image, one at a time, and waits to be released
+   * after starting its first band.
+   */
+  private static class BandCommand implements ICommand {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+    private final AtomicInteger bands = new AtomicInteger();
+
+    @Override
+    public void apply(IAlbum album, ImageView view) {
+      new ImageExecutor(1, 0).forEachBand(1, 160, (startY, endY) -> {
+        this.bands.incrementAndGet();
+        this.started.countDown();
+        try {
+          this.released.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+
+    @Override
+    public Set<String> getSourceNames() {
+      return Set.of();
+    }
+
+    @Override
+    public Set<String> getDestinationNames() {
+      return Set.of();
+    }
+  }
+
+  @Test
+  public void testRunInBackground() throws InterruptedException {
+    MockGuiView view = new MockGuiView();
+    ImageGuiController controller = new ImageGuiController(new Album(), view);
+    BandCommand command = new BandCommand();
+
+    // runCommand returns while the command is still running
+    controller.runCommand(command);
+    assertTrue(command.started.await(10, TimeUnit.SECONDS));
+    assertEquals(List.of(true), view.getBusy());
+    assertEquals(0, view.getRefreshCount());
+
+    command.released.countDown();
+    view.awaitIdle();
+    assertEquals(List.of(true, false), view.getBusy());
+    assertEquals(1, view.getRefreshCount());
+    assertEquals(16, command.bands.get());
+    assertEquals(16, view.getProgress().size());
+    assertEquals(160, (long) view.getProgress().get(15));
+    assertEquals(0, view.getMessages().size());
+  }
+
+  @Test
+  public void testCancel() throws InterruptedException {
+    MockGuiView view = new MockGuiView();
+    IAlbum album = new Album();
+    ImageGuiController controller = new ImageGuiController(album, view);
+    BandCommand command = new BandCommand();
+
+    controller.runCommand(command);
+    controller.runCommand(new LoadCommand("res/rocks.ppm", "rocks"));
+    assertTrue(command.started.await(10, TimeUnit.SECONDS));
+    controller.cancelCommands();
+    command.released.countDown();
+    view.awaitIdle();
+
+    // the running band finished, but no more were started, and the queued command never ran
+    assertEquals(1, command.bands.get());
+    assertEquals(List.of("Command cancelled\n", "Command cancelled\n"), view.getMessages());
+    assertEquals(0, album.getImageNames().size());
+    assertEquals(List.of(true, false), view.getBusy());
+
+    // later commands run as usual
+    controller.runCommand(new LoadCommand("res/rocks.ppm", "rocks"));
+    long deadline = System.currentTimeMillis() + 10000;
+    while (view.getRefreshCount() < 3 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, album.getImageNames().size());
+  }
+
+  @Test
+  public void testCancelLazyCommand() {
+    IAlbum album = new Album();
+    AtomicReference<ImageGuiController> controller = new AtomicReference<>();
+    // Cancels the command as soon as it has made some progress
+    MockGuiView view = new MockGuiView() {
+      @Override
+      public void renderProgress(long done, long total) {
+        super.renderProgress(done, total);
+        controller.get().cancelCommands();
+      }
+    };
+    controller.set(new ImageGuiController(album, view, Runnable::run));
+    controller.get().runCommand(new LoadCommand("res/rocks.ppm", "rocks"));
+
+    LazyImage.setEnabled(true);
+    try {
+      controller.get().runCommand(new PixelOperationCommand("rocks", "bright",
+              new OffsetOperation(20)));
+    } finally {
+      LazyImage.setEnabled(false);
+    }
+
+    // the command stopped, and left no deferred image to be computed by the view
+    assertEquals(List.of("Command cancelled\n"), view.getMessages());
+    assertEquals(Set.of("rocks"), album.getImageNames());
   }
 
   @Test(expected = NullPointerException.class)
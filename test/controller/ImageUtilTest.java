@@ -2,18 +2,31 @@ package controller;
 
 import org.junit.Test;
 
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Random;
 
+import javax.imageio.ImageIO;
+
 import control.ImageUtil;
+import control.NetpbmEncoding;
+import model.ByteBufferImage;
 import model.IImage;
 import model.IPixel;
 import model.Image;
+import model.ImageBuilder;
 import model.Pixel;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -262,6 +275,373 @@ public class ImageUtilTest {
     }
   }
 
+  @Test
+  public void testReadEmptyLinesAndInlineComments() throws IOException {
+    String shortPPM = "\n"
+            + "P3 # plain PPM\n"
+            + "\n"
+            + "3#width\n"
+            + "2 # height\r\n"
+            + "255\n"
+            + "\n"
+            + "255 0 0 255 127 0\n"
+            + "\t255 255 0#yellow\n"
+            + "\n"
+            + "0 255 0 0 0 255\r\n"
+            + "255 0 255";
+
+    IImage image = ImageUtil.readPPM(new StringReader(shortPPM), "small-image");
+
+    assertEquals(3, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertEquals(0xFF7F00, image.getRgb(1, 0));
+    assertEquals(0xFFFF00, image.getRgb(2, 0));
+    assertEquals(0xFF00FF, image.getRgb(2, 1));
+  }
+
+  @Test
+  public void testReadFile() throws IOException {
+    File file = File.createTempFile("image-util", ".ppm");
+    try {
+      Files.write(file.toPath(), "P3\n# comment\n2 1\n255\n1 2 3\n4 5 6\n".getBytes());
+
+      IImage image = ImageUtil.readPPM(file.getPath(), "file-image");
+
+      assertEquals(2, image.getWidth());
+      assertEquals(0x010203, image.getRgb(0, 0));
+      assertEquals(0x040506, image.getRgb(1, 0));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testReadInvalidPPM() {
+    String[][] cases = {
+        {"", "Invalid PPM file: plain RAW file should begin with P3"},
+        {"P6 1 1 255 0 0 0", "Invalid PPM file: plain RAW file should begin with P3"},
+        {"P33 1 1 255 0 0 0", "Invalid PPM file: plain RAW file should begin with P3"},
+        {"P3 1", "Invalid PPM file: missing image size"},
+        {"P3 1 1", "Invalid PPM file: missing maximum value"},
+        {"P3 1 x 255 0 0 0", "Invalid PPM file: expected a number"},
+        {"P3 1 1 255 0 1a 0", "Invalid PPM file: expected a number"},
+        {"P3 1 1 255 0 0", "Not enough pixel values"},
+        {"P3 1 1 255 0 -1 0", "Invalid pixel value"},
+        {"P3 1 1 255 0 99999999999999 0", "Invalid pixel value"},
+        {"P3 99999 99999 255", "Invalid image dimensions"}
+    };
+
+    for (String[] test : cases) {
+      try {
+        ImageUtil.readPPM(new StringReader(test[0]), "invalid-image");
+        fail("No exception thrown for " + test[0]);
+      } catch (ImageUtil.InvalidImageException e) {
+        assertEquals(test[1], e.getMessage());
+      }
+    }
+  }
+
+  private static IImage randomImage(Random random, int width, int height) {
+    ImageBuilder builder = new ImageBuilder(width, height);
+    int[] row = new int[width];
+    for (int y = 0; y < height; ++y) {
+      for (int x = 0; x < width; ++x) {
+        row[x] = random.nextInt(0x1000000);
+      }
+      builder.writeRow(y, row);
+    }
+    return builder.build("random-image");
+  }
+
+  private static IImage loadBytes(byte[] bytes, String suffix) throws IOException {
+    File file = File.createTempFile("image-util", suffix);
+    try {
+      Files.write(file.toPath(), bytes);
+      return ImageUtil.loadImage(file.getPath(), "loaded-image");
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSavePPMEncodings() throws IOException {
+    // Large enough that the writer and reader both refill their buffers
+    IImage image = randomImage(new Random(1), 301, 97);
+    File file = File.createTempFile("image-util", ".ppm");
+
+    try {
+      ImageUtil.savePPM(file.getPath(), image, NetpbmEncoding.BINARY);
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      assertEquals("P6\n301 97\n255\n".length() + 3 * 301 * 97, bytes.length);
+      assertEquals(image, ImageUtil.loadImage(file.getPath(), "random-image"));
+      assertEquals(image, ImageUtil.readPPM(file.getPath(), "random-image"));
+
+      // The plain file is exactly what is written to an Appendable
+      ImageUtil.savePPM(file.getPath(), image);
+      StringBuilder expected = new StringBuilder();
+      ImageUtil.savePPM(expected, image);
+      assertEquals(expected.toString(),
+              new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII));
+      assertEquals(image, ImageUtil.loadImage(file.getPath(), "random-image"));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSavePGM() throws IOException {
+    ImageBuilder builder = new ImageBuilder(3, 1);
+    builder.writeRow(0, new int[]{0x000000, 0x7F7F7F, 0xFF8000});
+    IImage image = builder.build("gray-image");
+    File file = File.createTempFile("image-util", ".pgm");
+
+    try {
+      ImageUtil.savePGM(file.getPath(), image, NetpbmEncoding.PLAIN);
+      assertEquals("P2\n3 1\n255\n0\n127\n145\n",
+              new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII));
+      IImage plain = ImageUtil.loadImage(file.getPath(), "gray-image");
+
+      ImageUtil.savePGM(file.getPath(), image, NetpbmEncoding.BINARY);
+      assertEquals("P5\n3 1\n255\n".length() + 3, Files.size(file.toPath()));
+      IImage binary = ImageUtil.loadImage(file.getPath(), "gray-image");
+
+      for (IImage loaded : new IImage[]{plain, binary}) {
+        assertEquals(0x000000, loaded.getRgb(0, 0));
+        assertEquals(0x7F7F7F, loaded.getRgb(1, 0));
+        assertEquals(0x919191, loaded.getRgb(2, 0));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSaveImageEncoding() throws IOException {
+    IImage image = randomImage(new Random(2), 4, 3);
+    File ppm = File.createTempFile("image-util", ".ppm");
+    File pgm = File.createTempFile("image-util", ".pgm");
+
+    try {
+      assertEquals(NetpbmEncoding.PLAIN, ImageUtil.getNetpbmEncoding());
+      ImageUtil.saveImage(ppm.getPath(), image);
+      assertEquals("P3", new String(Files.readAllBytes(ppm.toPath()), 0, 2,
+              StandardCharsets.US_ASCII));
+
+      ImageUtil.setNetpbmEncoding(NetpbmEncoding.BINARY);
+      ImageUtil.saveImage(ppm.getPath(), image);
+      ImageUtil.saveImage(pgm.getPath(), image);
+      assertEquals("P6", new String(Files.readAllBytes(ppm.toPath()), 0, 2,
+              StandardCharsets.US_ASCII));
+      assertEquals("P5", new String(Files.readAllBytes(pgm.toPath()), 0, 2,
+              StandardCharsets.US_ASCII));
+      assertEquals(image, ImageUtil.loadImage(ppm.getPath(), "random-image"));
+    } finally {
+      ImageUtil.setNetpbmEncoding(NetpbmEncoding.PLAIN);
+      ppm.delete();
+      pgm.delete();
+    }
+  }
+
+  @Test
+  public void testLoadBinaryWithComments() throws IOException {
+    byte[] header = "P6 # binary\n2 # width\n1\n255\n".getBytes(StandardCharsets.US_ASCII);
+    // The raster starts right after the single whitespace byte, even with '#' and '\n' values
+    byte[] raster = {'#', '\n', 3, (byte) 200, 0, ' '};
+    byte[] bytes = new byte[header.length + raster.length];
+    System.arraycopy(header, 0, bytes, 0, header.length);
+    System.arraycopy(raster, 0, bytes, header.length, raster.length);
+
+    IImage image = loadBytes(bytes, ".ppm");
+
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertEquals(0x230A03, image.getRgb(0, 0));
+    assertEquals(0xC80020, image.getRgb(1, 0));
+  }
+
+  @Test
+  public void testLoadInvalidNetpbm() throws IOException {
+    String[][] cases = {
+        {"P4 1 1\n\0", "Invalid Netpbm file: should begin with P2, P3, P5, or P6"},
+        {"P6 2 1 255\nabc", "Not enough pixel values"},
+        {"P5 1 1 65535\n\0\0", "Unsupported maximum PPM value"},
+        {"P5 1 1 255", "Invalid PPM file: expected a number"},
+        {"P2 1 1 255 256", "Invalid pixel value"}
+    };
+
+    for (String[] test : cases) {
+      try {
+        loadBytes(test[0].getBytes(StandardCharsets.US_ASCII), ".pnm");
+        fail("No exception thrown for " + test[0]);
+      } catch (ImageUtil.InvalidImageException e) {
+        assertEquals(test[1], e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testMapImage() throws IOException {
+    IImage image = randomImage(new Random(3), 53, 41);
+    File ppm = File.createTempFile("image-util", ".ppm");
+    File pgm = File.createTempFile("image-util", ".pgm");
+
+    try {
+      ImageUtil.savePPM(ppm.getPath(), image, NetpbmEncoding.BINARY);
+      IImage mapped = ImageUtil.mapImage(ppm.getPath(), "mapped-image");
+      assertTrue(mapped instanceof ByteBufferImage);
+      int[] expected = new int[53 * 41];
+      int[] actual = new int[53 * 41];
+      image.readRegion(0, 0, 53, 41, expected);
+      mapped.readRegion(0, 0, 53, 41, actual);
+      assertArrayEquals(expected, actual);
+
+      ImageUtil.savePGM(pgm.getPath(), image, NetpbmEncoding.BINARY);
+      IImage gray = ImageUtil.loadImage(pgm.getPath(), "gray-image");
+      IImage mappedGray = ImageUtil.mapImage(pgm.getPath(), "gray-image");
+      assertEquals(gray.getRgb(10, 20), mappedGray.getRgb(10, 20));
+
+      // Plain files are read as usual when mapping is enabled, and rejected by mapImage
+      ImageUtil.setMemoryMapping(true);
+      assertTrue(ImageUtil.loadImage(ppm.getPath(), "mapped-image") instanceof ByteBufferImage);
+      ImageUtil.savePPM(ppm.getPath(), image);
+      assertEquals(image, ImageUtil.loadImage(ppm.getPath(), "random-image"));
+      try {
+        ImageUtil.mapImage(ppm.getPath(), "mapped-image");
+        fail("No exception thrown for a plain file");
+      } catch (ImageUtil.InvalidImageException e) {
+        assertEquals("Only binary PPM and PGM files can be memory-mapped", e.getMessage());
+      }
+    } finally {
+      ImageUtil.setMemoryMapping(false);
+      ppm.delete();
+      pgm.delete();
+    }
+  }
+
+  @Test
+  public void testMapRawRgb() throws IOException {
+    File file = File.createTempFile("image-util", ".rgb");
+
+    try {
+      Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+      IImage image = ImageUtil.mapRawRgb(file.getPath(), 2, 2, "raw-image");
+      assertEquals(0x010203, image.getRgb(0, 0));
+      assertEquals(0x0A0B0C, image.getRgb(1, 1));
+
+      try {
+        ImageUtil.mapRawRgb(file.getPath(), 3, 2, "raw-image");
+        fail("No exception thrown for a short file");
+      } catch (ImageUtil.InvalidImageException e) {
+        assertEquals("Not enough pixel values", e.getMessage());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testBufferedImageToImage() {
+    Random random = new Random(4);
+    int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_INT_BGR,
+        BufferedImage.TYPE_USHORT_565_RGB};
+
+    for (int type : types) {
+      BufferedImage source = new BufferedImage(13, 9, type);
+      for (int y = 0; y < 9; ++y) {
+        for (int x = 0; x < 13; ++x) {
+          source.setRGB(x, y, random.nextInt());
+        }
+      }
+
+      // Subimages share the data buffer of the whole image, starting part way through it
+      for (BufferedImage buffered : new BufferedImage[]{source, source.getSubimage(3, 2, 7, 5)}) {
+        IImage image = ImageUtil.bufferedImageToImage(buffered, "converted-image");
+        assertEquals(buffered.getWidth(), image.getWidth());
+        assertEquals(buffered.getHeight(), image.getHeight());
+
+        for (int y = 0; y < buffered.getHeight(); ++y) {
+          for (int x = 0; x < buffered.getWidth(); ++x) {
+            assertEquals(buffered.getRGB(x, y) & 0xFFFFFF, image.getRgb(x, y));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBufferedImageIsCopied() {
+    BufferedImage buffered = new BufferedImage(2, 1, BufferedImage.TYPE_INT_RGB);
+    buffered.setRGB(0, 0, 0x123456);
+    IImage image = ImageUtil.bufferedImageToImage(buffered, "copied-image");
+    buffered.setRGB(0, 0, 0x654321);
+
+    assertEquals(0x123456, image.getRgb(0, 0));
+  }
+
+  @Test
+  public void testImageToBufferedImage() {
+    IImage image = randomImage(new Random(5), 11, 7);
+    BufferedImage buffered = ImageUtil.imageToBufferedImage(image);
+
+    assertEquals(BufferedImage.TYPE_INT_RGB, buffered.getType());
+    for (int y = 0; y < 7; ++y) {
+      for (int x = 0; x < 11; ++x) {
+        assertEquals(image.getRgb(x, y), buffered.getRGB(x, y) & 0xFFFFFF);
+      }
+    }
+    assertEquals(image, ImageUtil.bufferedImageToImage(buffered, "random-image"));
+  }
+
+  @Test
+  public void testSaveImageFormats() throws IOException {
+    IImage image = randomImage(new Random(6), 17, 5);
+
+    for (String extension : new String[]{".png", ".BMP", ".ppm", ".pnm"}) {
+      File file = File.createTempFile("image-util", extension);
+      try {
+        ImageUtil.saveImage(file.getPath(), image);
+        IImage saved = extension.endsWith("m")
+                ? ImageUtil.readPPM(file.getPath(), "random-image")
+                : ImageUtil.bufferedImageToImage(ImageIO.read(file), "random-image");
+        assertEquals(image, saved);
+      } finally {
+        file.delete();
+      }
+    }
+  }
+
+  @Test
+  public void testSaveUnsupportedFormat() throws IOException {
+    File directory = Files.createTempDirectory("image-util").toFile();
+    File file = new File(directory, "image.unknown");
+
+    try {
+      ImageUtil.saveImage(file.getPath(), randomImage(new Random(7), 2, 2));
+      fail("No exception thrown for an unsupported format");
+    } catch (IOException e) {
+      assertEquals("Unsupported image format: unknown", e.getMessage());
+      assertFalse(file.exists());
+    } finally {
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void testRegisterEncoder() throws IOException {
+    assertFalse(ImageUtil.getEncoder("size").isPresent());
+    ImageUtil.registerEncoder("SIZE", (image, output) -> output.write(ByteBuffer.wrap(
+            (image.getWidth() + "x" + image.getHeight()).getBytes(StandardCharsets.US_ASCII))));
+    File file = File.createTempFile("image-util", ".size");
+
+    try {
+      ImageUtil.saveImage(file.getPath(), randomImage(new Random(8), 3, 4));
+      assertEquals("3x4", new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII));
+    } finally {
+      file.delete();
+    }
+  }
+
   static class NotAppendable implements Appendable {
 
     @Override
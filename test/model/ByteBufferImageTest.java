@@ -0,0 +1,124 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import model.operation.KernelOperation;
+import model.operation.OffsetOperation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the ByteBufferImage class, which reads the pixels of an image directly from a buffer of
+ * RGB or gray samples.
+ */
+public class ByteBufferImageTest {
+  int[] data;
+  ByteBuffer rgb;
+
+  @Before
+  public void initData() {
+    this.data = new int[]{0xFF0000, 0xFF7F00, 0xFFFF00, 0x00FF00, 0x0000FF, 0xFF00FF};
+    // Two bytes of header before the samples, which the image should skip
+    this.rgb = ByteBuffer.allocateDirect(2 + 3 * this.data.length);
+    this.rgb.put((byte) 'P').put((byte) '6');
+    for (int value : this.data) {
+      this.rgb.put((byte) (value >> 16)).put((byte) (value >> 8)).put((byte) value);
+    }
+    this.rgb.position(2);
+  }
+
+  @Test
+  public void testRgb() {
+    IImage image = new ByteBufferImage(3, 2, 3, this.rgb, "buffer-image");
+
+    assertEquals("buffer-image", image.getImageName());
+    assertEquals(3, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertEquals(0xFF7F00, image.getRgb(1, 0));
+    assertEquals(new Pixel(255, 0, 255), image.getPixel(2, 1));
+
+    int[] region = new int[4];
+    image.readRegion(1, 0, 2, 2, region);
+    assertArrayEquals(new int[]{0xFF7F00, 0xFFFF00, 0x0000FF, 0xFF00FF}, region);
+
+    // Moving the buffer afterwards does not move the image
+    this.rgb.position(0);
+    int[] all = new int[6];
+    image.readRegion(0, 0, 3, 2, all);
+    assertArrayEquals(this.data, all);
+  }
+
+  @Test
+  public void testGray() {
+    ByteBuffer gray = ByteBuffer.wrap(new byte[]{0, 127, (byte) 255, 1});
+    IImage image = new ByteBufferImage(2, 2, 1, gray, "gray-image");
+
+    assertEquals(0x7F7F7F, image.getRgb(1, 0));
+    int[] row = new int[2];
+    image.readRow(1, row);
+    assertArrayEquals(new int[]{0xFFFFFF, 0x010101}, row);
+  }
+
+  @Test
+  public void testMatchesPackedImage() {
+    IImage buffer = new ByteBufferImage(3, 2, 3, this.rgb, "buffer-image");
+    IImage packed = new PackedImage(3, 2, this.data, "packed-image");
+    KernelOperation blur = new KernelOperation(new double[][]{
+        {0.0625, 0.125, 0.0625},
+        {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}
+    });
+
+    assertEquals(new PackedImage(packed, blur, "blur"), new PackedImage(buffer, blur, "blur"));
+    assertEquals(new PackedImage(packed, new OffsetOperation(30), "bright"),
+            new PackedImage(buffer, new OffsetOperation(30), "bright"));
+    assertEquals(new Image(packed, blur, "blur"), new Image(buffer, blur, "blur"));
+
+    Histogram expected = new Histogram(packed);
+    Histogram actual = new Histogram(buffer);
+    for (int value = 0; value < 256; ++value) {
+      assertEquals(expected.getRedAt(value), actual.getRedAt(value));
+      assertEquals(expected.getIntensityAt(value), actual.getIntensityAt(value));
+    }
+  }
+
+  @Test
+  public void testGetPixelOutOfBounds() {
+    IImage image = new ByteBufferImage(3, 2, 3, this.rgb, "buffer-image");
+
+    try {
+      image.getRgb(3, 0);
+      fail("exception not thrown!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Pixel (3, 0) out of bounds! Image size: (3, 2)", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    Object[][] cases = {
+        {-1, 2, 3, "Invalid image dimensions"},
+        {3, 2, 2, "Images must have 1 or 3 channels"},
+        {3, 3, 3, "Buffer is too small to hold an image of size 3x3"}
+    };
+
+    for (Object[] test : cases) {
+      try {
+        new ByteBufferImage((int) test[0], (int) test[1], (int) test[2], this.rgb, "invalid");
+        fail("exception not thrown!");
+      } catch (IllegalArgumentException e) {
+        assertEquals(test[3], e.getMessage());
+      }
+    }
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullBuffer() {
+    new ByteBufferImage(3, 2, 3, null, "null-buffer");
+  }
+}
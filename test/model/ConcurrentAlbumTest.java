@@ -0,0 +1,144 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the {@code ConcurrentAlbum}, which can be shared by several threads and lets readers wait
+ * for images which are still being computed.
+ */
+public class ConcurrentAlbumTest {
+  private static IImage image(String name, int rgb) {
+    return new PackedImage(1, 1, new int[]{rgb}, name);
+  }
+
+  @Test
+  public void testAddGetImage() {
+    ConcurrentAlbum album = new ConcurrentAlbum();
+    IImage first = image("a", 1);
+    IImage second = image("a", 2);
+
+    album.addImage(first);
+    assertSame(first, album.getImage("a"));
+    assertTrue(album.isAvailable("a"));
+
+    album.addImage(second);
+    assertSame(second, album.getImage("a"));
+  }
+
+  @Test
+  public void testNamesAreSnapshot() {
+    ConcurrentAlbum album = new ConcurrentAlbum();
+    album.addImage(image("a", 1));
+
+    Set<String> names = album.getImageNames();
+    album.addImage(image("b", 2));
+
+    assertEquals(Set.of("a"), names);
+    assertEquals(Set.of("a", "b"), album.getImageNames());
+  }
+
+  @Test
+  public void testReadersWaitForReservedImage() throws Exception {
+    ConcurrentAlbum album = new ConcurrentAlbum();
+    album.addImage(image("a", 1));
+    album.reserve("a");
+    album.reserve("b");
+    assertFalse(album.isAvailable("a"));
+    assertEquals(Set.of("a", "b"), album.getImageNames());
+
+    ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      Future<IImage> a = pool.submit(() -> album.getImage("a"));
+      CompletableFuture<IImage> b = album.getImageAsync("b");
+      assertFalse(a.isDone());
+      assertFalse(b.isDone());
+
+      IImage replacement = image("a", 3);
+      album.addImage(replacement);
+      album.addImage(image("b", 4));
+
+      assertSame(replacement, a.get(10, TimeUnit.SECONDS));
+      assertEquals(4, b.get(10, TimeUnit.SECONDS).getRgb(0, 0));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testFailedImage() throws Exception {
+    ConcurrentAlbum album = new ConcurrentAlbum();
+    album.reserve("a");
+    CompletableFuture<IImage> reader = album.getImageAsync("a");
+
+    album.fail("a", new IllegalArgumentException("Invalid kernel"));
+    try {
+      reader.get(10, TimeUnit.SECONDS);
+      fail("Expected an exception");
+    } catch (ExecutionException e) {
+      assertEquals("Invalid kernel", e.getCause().getMessage());
+    }
+    assertEquals(Set.of(), album.getImageNames());
+  }
+
+  @Test
+  public void testConcurrentWriters() throws Exception {
+    ConcurrentAlbum album = new ConcurrentAlbum();
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+
+    try {
+      for (int t = 0; t < 8; ++t) {
+        int thread = t;
+        futures.add(pool.submit(() -> {
+          start.await();
+          for (int i = 0; i < 500; ++i) {
+            album.addImage(image("image" + thread + "-" + i, i));
+            album.getImageNames();
+            assertEquals(i, album.getImage("image" + thread + "-" + i).getRgb(0, 0));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    assertEquals(8 * 500, album.getImageNames().size());
+  }
+
+  @Test
+  public void testGetMissingImage() {
+    try {
+      new ConcurrentAlbum().getImage("missing");
+      fail("Expected an exception");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image missing not found!", e.getMessage());
+    }
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testAddNullImage() {
+    new ConcurrentAlbum().addImage(null);
+  }
+}
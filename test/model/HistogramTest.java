@@ -2,7 +2,19 @@ package model;
 
 import org.junit.Test;
 
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import model.command.PixelOperationCommand;
+import model.operation.ChannelLookupTable;
+import model.operation.OffsetOperation;
+import view.ImageTextView;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests the Histogram class, which is responsible for generating and representing
@@ -61,4 +73,177 @@ public class HistogramTest {
     assertEquals(0, this.histogram.getIntensityAt(0));
     assertEquals(0, this.histogram.getIntensityAt(207));
   }
+
+  private static IImage randomImage(int width, int height, boolean gray, long seed) {
+    Random random = new Random(seed);
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = gray ? random.nextInt(256) * 0x010101 : random.nextInt(0x1000000);
+    }
+    return new PackedImage(width, height, data, "random");
+  }
+
+  private static void assertSameCounts(Histogram expected, Histogram actual) {
+    for (int i = 0; i < 256; ++i) {
+      assertEquals(expected.getRedAt(i), actual.getRedAt(i));
+      assertEquals(expected.getGreenAt(i), actual.getGreenAt(i));
+      assertEquals(expected.getBlueAt(i), actual.getBlueAt(i));
+      assertEquals(expected.getIntensityAt(i), actual.getIntensityAt(i));
+    }
+  }
+
+  @Test
+  public void testParallel() {
+    IImage random = randomImage(123, 77, false, 1);
+    ImageExecutor previous = ImageExecutor.getDefault();
+    Histogram sequential;
+    Histogram parallel;
+    try {
+      ImageExecutor.setDefault(new ImageExecutor(1, 0));
+      sequential = new Histogram(random);
+      ImageExecutor.setDefault(new ImageExecutor(4, 0));
+      parallel = new Histogram(random);
+    } finally {
+      ImageExecutor.setDefault(previous);
+    }
+
+    assertSameCounts(sequential, parallel);
+    int total = 0;
+    for (int i = 0; i < 256; ++i) {
+      total += parallel.getIntensityAt(i);
+    }
+    assertEquals(123 * 77, total);
+  }
+
+  @Test
+  public void testCached() {
+    Histogram first = Histogram.of(this.image);
+    assertSame(first, Histogram.of(this.image));
+    assertSameCounts(this.histogram, first);
+
+    // Equal images are still different images
+    IImage copy = new Image(2, 2, new IPixel[][]{
+        { new Pixel(207, 60, 3), new Pixel(212, 213, 3) },
+        { new Pixel(1, 2, 3), new Pixel(0, 47, 50) }
+    }, "test-image");
+    assertNotSame(first, Histogram.of(copy));
+  }
+
+  @Test
+  public void testDerive() {
+    IImage gray = randomImage(40, 30, true, 2);
+    int[] inverted = new int[256];
+    int[] halved = new int[256];
+    int[] identity = new int[256];
+    for (int i = 0; i < 256; ++i) {
+      inverted[i] = 255 - i;
+      halved[i] = i / 2;
+      identity[i] = i;
+    }
+    ChannelLookupTable table = new ChannelLookupTable(inverted, halved, identity);
+    ChannelLookupTable brighten = new OffsetOperation(-30).toLookupTable().get();
+
+    IImage color = randomImage(40, 30, false, 6);
+    for (IImage image : new IImage[]{gray, color}) {
+      for (ChannelLookupTable lookup : new ChannelLookupTable[]{table, brighten}) {
+        Histogram derived = Histogram.derive(new Histogram(image), image, lookup).get();
+        assertSameCounts(new Histogram(new PackedImage(image, lookup, "result")), derived);
+      }
+    }
+  }
+
+  @Test
+  public void testPropagate() {
+    IImage gray = randomImage(40, 30, true, 3);
+    IAlbum album = new Album();
+    album.addImage(gray);
+    Histogram.of(gray);
+
+    LazyImage.setEnabled(true);
+    try {
+      new PixelOperationCommand("random", "bright", new OffsetOperation(25))
+              .apply(album, new ImageTextView(new StringBuilder()));
+    } finally {
+      LazyImage.setEnabled(false);
+    }
+    LazyImage bright = (LazyImage) album.getImage("bright");
+
+    // The histogram was derived without computing the image
+    Histogram derived = Histogram.of(bright);
+    assertFalse(bright.isEvaluated());
+    assertSameCounts(new Histogram(bright), derived);
+  }
+
+  @Test
+  public void testPropagateColorChain() {
+    IImage color = randomImage(40, 30, false, 7);
+    IAlbum album = new Album();
+    album.addImage(color);
+    Histogram.of(color);
+
+    LazyImage.setEnabled(true);
+    try {
+      ImageTextView view = new ImageTextView(new StringBuilder());
+      new PixelOperationCommand("random", "a", new OffsetOperation(25)).apply(album, view);
+      new PixelOperationCommand("a", "b", new OffsetOperation(-60)).apply(album, view);
+      new PixelOperationCommand("b", "c", new OffsetOperation(10)).apply(album, view);
+    } finally {
+      LazyImage.setEnabled(false);
+    }
+
+    // Neither the histograms nor their intensities computed any image of the chain
+    Histogram derived = Histogram.of(album.getImage("c"));
+    derived.getMaximum();
+    for (String name : new String[]{"a", "b", "c"}) {
+      assertFalse(name, ((LazyImage) album.getImage(name)).isEvaluated());
+    }
+    assertSameCounts(new Histogram(album.getImage("c")), derived);
+  }
+
+  @Test
+  public void testApproximate() {
+    IImage random = randomImage(1000, 800, false, 4);
+    Histogram exact = new Histogram(random);
+    Histogram approximate = Histogram.approximate(random, 10000);
+
+    assertTrue(exact.isExact());
+    assertEquals(0, exact.getErrorBound());
+    assertFalse(approximate.isExact());
+    // 1.96 * 0.5 / sqrt(89 * 112) of 800000 pixels, from a grid of 89 rows by 112 columns
+    assertEquals(7853, approximate.getErrorBound());
+    for (int i = 0; i < 256; ++i) {
+      int bound = approximate.getErrorBound();
+      assertEquals(exact.getRedAt(i), approximate.getRedAt(i), bound);
+      assertEquals(exact.getGreenAt(i), approximate.getGreenAt(i), bound);
+      assertEquals(exact.getBlueAt(i), approximate.getBlueAt(i), bound);
+      assertEquals(exact.getIntensityAt(i), approximate.getIntensityAt(i), bound);
+    }
+
+    IImage gray = randomImage(1000, 800, true, 5);
+    assertFalse(Histogram.derive(Histogram.approximate(gray, 100), gray,
+            new OffsetOperation(10).toLookupTable().get()).isPresent());
+  }
+
+  @Test
+  public void testApproximateSmallImage() {
+    Histogram approximate = Histogram.approximate(this.image, 4);
+    assertTrue(approximate.isExact());
+    assertSameCounts(this.histogram, approximate);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSampleBudget() {
+    Histogram.approximate(this.image, 0);
+  }
+
+  @Test
+  public void testOfAsync() throws Exception {
+    IImage random = randomImage(300, 200, false, 6);
+    assertFalse(Histogram.getCached(random).isPresent());
+
+    Histogram histogram = Histogram.ofAsync(random).get(10, TimeUnit.SECONDS);
+    assertSameCounts(new Histogram(random), histogram);
+    assertSame(histogram, Histogram.getCached(random).get());
+    assertSame(histogram, Histogram.ofAsync(random).get());
+  }
 }
@@ -0,0 +1,68 @@
+package model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the ImageBuilder class, which is used to fill in the pixels of a new image in bulk.
+ */
+public class ImageBuilderTest {
+  @Test
+  public void testWriteAndBuild() {
+    ImageBuilder builder = new ImageBuilder(3, 2);
+    assertEquals(3, builder.getWidth());
+    assertEquals(2, builder.getHeight());
+
+    builder.writeRow(0, new int[]{0xFF0000, 0xFF7F00, 0xFFFF00});
+    builder.writeRegion(1, 1, 2, 1, new int[]{0x0000FF, 0xFF00FF});
+    builder.setRgb(0, 1, 0x00FF00);
+
+    IImage image = builder.build("built-image");
+
+    assertEquals("built-image", image.getImageName());
+    assertEquals(3, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertEquals(new Pixel(255, 127, 0), image.getPixel(1, 0));
+    assertEquals(new Pixel(0, 255, 0), image.getPixel(0, 1));
+    assertEquals(new Pixel(255, 0, 255), image.getPixel(2, 1));
+  }
+
+  @Test
+  public void testDefaultsToBlack() {
+    IImage image = new ImageBuilder(2, 2).build("black");
+    assertEquals(new Pixel(0, 0, 0), image.getPixel(1, 1));
+  }
+
+  @Test
+  public void testWriteOutOfBounds() {
+    ImageBuilder builder = new ImageBuilder(3, 2);
+
+    try {
+      builder.writeRow(2, new int[3]);
+      fail("exception not thrown!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Region (0, 2, 3, 1) out of bounds! Image size: (3, 2)", e.getMessage());
+    }
+
+    try {
+      builder.setRgb(3, 0, 0);
+      fail("exception not thrown!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Pixel (3, 0) out of bounds! Image size: (3, 2)", e.getMessage());
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUseAfterBuild() {
+    ImageBuilder builder = new ImageBuilder(3, 2);
+    builder.build("built-image");
+    builder.setRgb(0, 0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSize() {
+    new ImageBuilder(-1, 2);
+  }
+}
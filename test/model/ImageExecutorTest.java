@@ -0,0 +1,165 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import control.ImageUtil;
+import model.operation.ColorTransformationOperation;
+import model.operation.KernelOperation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that the ImageExecutor covers every row exactly once, and that images built in parallel
+ * are identical to images built sequentially.
+ */
+public class ImageExecutorTest {
+  ImageExecutor originalDefault;
+  IImage rocks;
+
+  @Before
+  public void initData() throws IOException {
+    this.originalDefault = ImageExecutor.getDefault();
+    this.rocks = ImageUtil.readPPM("res/rocks.ppm", "rocks");
+  }
+
+  @After
+  public void restoreDefault() {
+    ImageExecutor.setDefault(this.originalDefault);
+  }
+
+  @Test
+  public void testCoversEveryRow() {
+    ImageExecutor executor = new ImageExecutor(4, 0);
+    int[] counts = new int[157];
+    AtomicInteger bands = new AtomicInteger();
+
+    executor.forEachBand(10, counts.length, (startY, endY) -> {
+      bands.incrementAndGet();
+      for (int y = startY; y < endY; ++y) {
+        counts[y] += 1;
+      }
+    });
+
+    for (int count : counts) {
+      assertEquals(1, count);
+    }
+    assertTrue(bands.get() > 1);
+  }
+
+  @Test
+  public void testSmallImagesRunSequentially() {
+    ImageExecutor executor = new ImageExecutor(4, 1000);
+    AtomicInteger bands = new AtomicInteger();
+
+    executor.forEachBand(10, 10, (startY, endY) -> {
+      bands.incrementAndGet();
+      assertEquals(0, startY);
+      assertEquals(10, endY);
+    });
+
+    assertEquals(1, bands.get());
+  }
+
+  @Test
+  public void testRethrowsExceptions() {
+    ImageExecutor executor = new ImageExecutor(4, 0);
+
+    try {
+      executor.forEachBand(10, 100, (startY, endY) -> {
+        throw new IllegalStateException("band failed");
+      });
+      fail("exception not thrown!");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().contains("band failed"));
+    }
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    KernelOperation blur = new KernelOperation(new double[][]{
+        {1.0 / 16, 1.0 / 8, 1.0 / 16},
+        {1.0 / 8, 1.0 / 4, 1.0 / 8},
+        {1.0 / 16, 1.0 / 8, 1.0 / 16}
+    });
+    ColorTransformationOperation sepia = new ColorTransformationOperation(new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}
+    });
+
+    ImageExecutor.setDefault(new ImageExecutor(1, 0));
+    IImage sequentialBlur = new PackedImage(this.rocks, blur, "blur");
+    IImage sequentialSepia = new PackedImage(this.rocks, sepia, "sepia");
+    IImage sequentialArrayBlur = new Image(this.rocks, blur, "blur");
+
+    ImageExecutor.setDefault(new ImageExecutor(8, 0));
+    assertEquals(sequentialBlur, new PackedImage(this.rocks, blur, "blur"));
+    assertEquals(sequentialSepia, new PackedImage(this.rocks, sepia, "sepia"));
+    assertEquals(sequentialArrayBlur, new Image(this.rocks, blur, "blur"));
+  }
+
+  @Test
+  public void testReplacedDefaultStillUsable() {
+    ImageExecutor executor = new ImageExecutor(4, 0);
+    ImageExecutor.setDefault(executor);
+    AtomicInteger rows = new AtomicInteger();
+    executor.forEachBand(10, 100, (startY, endY) -> rows.addAndGet(endY - startY));
+
+    // Replacing the default shuts it down, but it starts new threads if it is used again
+    ImageExecutor.setDefault(new ImageExecutor(2, 0));
+    executor.forEachBand(10, 100, (startY, endY) -> rows.addAndGet(endY - startY));
+    executor.shutdown();
+    executor.shutdown();
+    assertEquals(200, rows.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    new ImageExecutor(0, 0);
+  }
+
+  @Test
+  public void testMonitoredProgress() {
+    ImageExecutor executor = new ImageExecutor(4, 0);
+    AtomicInteger reports = new AtomicInteger();
+    AtomicLong maxDone = new AtomicLong();
+    TaskMonitor monitor = new TaskMonitor((done, total) -> {
+      assertEquals(157, total);
+      reports.incrementAndGet();
+      maxDone.accumulateAndGet(done, Math::max);
+    });
+
+    AtomicInteger bands = new AtomicInteger();
+    monitor.run(() -> executor.forEachBand(10, 157, (startY, endY) -> bands.incrementAndGet()));
+    assertEquals(bands.get(), reports.get());
+    assertEquals(157, maxDone.get());
+    assertEquals(null, TaskMonitor.current());
+  }
+
+  @Test
+  public void testMonitoredCancel() {
+    ImageExecutor executor = new ImageExecutor(4, 0);
+    TaskMonitor monitor = new TaskMonitor((done, total) -> { });
+    AtomicInteger bands = new AtomicInteger();
+
+    try {
+      monitor.run(() -> {
+        executor.forEachBand(10, 100, (startY, endY) -> bands.incrementAndGet());
+        monitor.cancel();
+        executor.forEachBand(10, 100, (startY, endY) -> bands.incrementAndGet());
+      });
+      fail("The cancelled task should have stopped");
+    } catch (CancellationException e) {
+      assertEquals(16, bands.get());
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package model;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.command.FlipCommand;
+import model.command.ICommand;
+import model.command.KernelOperationCommand;
+import model.command.PixelOperationCommand;
+import model.operation.ColorTransformationOperation;
+import model.operation.OffsetOperation;
+import view.ImageTextView;
+import view.ImageView;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a {@code LazyImage} is only computed when its pixels are read, and that commands
+ * defer their images when lazy evaluation is enabled.
+ */
+public class LazyImageTest {
+  IImage original = new PackedImage(3, 2, new int[]{
+      0x000000, 0x102030, 0x405060,
+      0x708090, 0xA0B0C0, 0xFFFFFF}, "original");
+
+  @After
+  public void disableLazyEvaluation() {
+    LazyImage.setEnabled(false);
+  }
+
+  @Test
+  public void testComputedOnFirstRead() {
+    AtomicInteger computed = new AtomicInteger();
+    LazyImage image = LazyImage.defer(3, 2, "lazy", () -> {
+      computed.incrementAndGet();
+      return this.original;
+    });
+
+    assertEquals("lazy", image.getImageName());
+    assertEquals(3, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertEquals(0, image.getMemoryFootprint());
+    assertFalse(image.isEvaluated());
+    assertEquals(0, computed.get());
+
+    assertEquals(0x102030, image.getRgb(1, 0));
+    int[] row = new int[3];
+    image.readRow(1, row);
+    assertEquals(0xFFFFFF, row[2]);
+    assertTrue(image.isEvaluated());
+    assertEquals(1, computed.get());
+    assertEquals(this.original.getMemoryFootprint(), image.getMemoryFootprint());
+  }
+
+  @Test
+  public void testFusePixelOperations() {
+    LazyImage bright = LazyImage.defer(this.original, new OffsetOperation(10), "bright");
+    LazyImage brighter = LazyImage.defer(bright, new OffsetOperation(20), "brighter");
+
+    assertEquals(new PackedImage(this.original, new OffsetOperation(30), "brighter"),
+            brighter.evaluate());
+    // The intermediate image was skipped
+    assertFalse(bright.isEvaluated());
+
+    assertEquals(new PackedImage(this.original, new OffsetOperation(10), "bright"),
+            bright.evaluate());
+  }
+
+  @Test
+  public void testDeferredCommands() {
+    LazyImage.setEnabled(true);
+    IAlbum album = new Album();
+    album.addImage(this.original);
+    ImageView view = new ImageTextView(new StringBuilder());
+
+    ICommand[] commands = {
+        new PixelOperationCommand("original", "bright", new OffsetOperation(10)),
+        new PixelOperationCommand("bright", "sepia", new ColorTransformationOperation(
+                new double[][]{{0.393, 0.769, 0.189}, {0.349, 0.686, 0.168},
+                    {0.272, 0.534, 0.131}})),
+        new FlipCommand("bright", "flipped", true),
+        new KernelOperationCommand("flipped", "blurred", new double[][]{
+            {1.0 / 16, 1.0 / 8, 1.0 / 16},
+            {1.0 / 8, 1.0 / 4, 1.0 / 8},
+            {1.0 / 16, 1.0 / 8, 1.0 / 16}})
+    };
+    for (ICommand command : commands) {
+      command.apply(album, view);
+    }
+    for (String name : new String[]{"bright", "sepia", "flipped", "blurred"}) {
+      assertFalse(((LazyImage) album.getImage(name)).isEvaluated());
+    }
+
+    IImage blurred = album.getImage("blurred");
+    IAlbum eager = new Album();
+    eager.addImage(this.original);
+    LazyImage.setEnabled(false);
+    for (ICommand command : commands) {
+      command.apply(eager, view);
+    }
+
+    int[] expected = new int[6];
+    int[] actual = new int[6];
+    eager.getImage("blurred").readRegion(0, 0, 3, 2, expected);
+    blurred.readRegion(0, 0, 3, 2, actual);
+    assertArrayEquals(expected, actual);
+
+    // Reading the blurred image needed bright and flipped, but nothing read sepia
+    assertTrue(((LazyImage) album.getImage("bright")).isEvaluated());
+    assertTrue(((LazyImage) album.getImage("flipped")).isEvaluated());
+    assertFalse(((LazyImage) album.getImage("sepia")).isEvaluated());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDimensions() {
+    LazyImage.defer(-1, 2, "lazy", () -> this.original);
+  }
+}
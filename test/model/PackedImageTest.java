@@ -0,0 +1,199 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.operation.ColorTransformationOperation;
+import model.operation.KernelOperation;
+import model.operation.OffsetOperation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the PackedImage class, which represents an image as an array of packed integers, and
+ * checks that it produces the same results as the pixel array backed Image.
+ */
+public class PackedImageTest {
+  IPixel[][] pixels;
+  int[] data;
+
+  @Before
+  public void initData() {
+    this.pixels = new IPixel[][]{
+      {
+        new Pixel(255, 0, 0),
+        new Pixel(255, 127, 0),
+        new Pixel(255, 255, 0)
+      },
+      {
+        new Pixel(0, 255, 0),
+        new Pixel(0, 0, 255),
+        new Pixel(255, 0, 255)
+      }
+    };
+    this.data = new int[]{0xFF0000, 0xFF7F00, 0xFFFF00, 0x00FF00, 0x0000FF, 0xFF00FF};
+  }
+
+  @Test
+  public void testConstructor() {
+    IImage image = new PackedImage(3, 2, this.data, "packed-image");
+
+    assertEquals("packed-image", image.getImageName());
+    assertEquals(3, image.getWidth());
+    assertEquals(2, image.getHeight());
+
+    assertEquals(127, image.getPixel(1, 0).getGreen());
+    assertEquals(255, image.getPixel(2, 1).getRed());
+    assertEquals(0, image.getPixel(0, 1).getBlue());
+    assertEquals(new Pixel(255, 0, 255), image.getPixel(2, 1));
+    assertEquals(0xFF7F00, image.getRgb(1, 0));
+  }
+
+  @Test
+  public void testConstructorCopiesArray() {
+    IImage image = new PackedImage(3, 2, this.data, "packed-image");
+    this.data[0] = 0;
+
+    assertEquals(0xFF0000, image.getRgb(0, 0));
+  }
+
+  @Test
+  public void testWrapIgnoresAlpha() {
+    this.data[0] = 0xFFFF0000;
+    IImage image = PackedImage.wrap(3, 2, this.data, "packed-image");
+
+    assertEquals(0xFF0000, image.getRgb(0, 0));
+    assertEquals(new Pixel(255, 0, 0), image.getPixel(0, 0));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullData() {
+    new PackedImage(3, 2, null, "null-array");
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullImageName() {
+    new PackedImage(3, 2, this.data, null);
+  }
+
+  @Test
+  public void testWrongLength() {
+    try {
+      new PackedImage(3, 3, this.data, "too-short-array");
+      fail("exception not thrown!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Array length does not match provided size 3x3", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testGetPixelOutOfBounds() {
+    IImage image = new PackedImage(3, 2, this.data, "packed-image");
+
+    try {
+      image.getPixel(0, 3);
+      fail("exception not thrown!");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Pixel (0, 3) out of bounds! Image size: (3, 2)", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testReadRowAndRegion() {
+    IImage packed = new PackedImage(3, 2, this.data, "packed-image");
+    IImage array = new Image(3, 2, this.pixels, "array-image");
+
+    for (IImage image : new IImage[]{packed, array}) {
+      int[] row = new int[3];
+      image.readRow(1, row);
+      assertArrayEquals(new int[]{0x00FF00, 0x0000FF, 0xFF00FF}, row);
+
+      int[] region = new int[4];
+      image.readRegion(1, 0, 2, 2, region);
+      assertArrayEquals(new int[]{0xFF7F00, 0xFFFF00, 0x0000FF, 0xFF00FF}, region);
+
+      try {
+        image.readRegion(2, 0, 2, 2, region);
+        fail("exception not thrown!");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Region (2, 0, 2, 2) out of bounds! Image size: (3, 2)", e.getMessage());
+      }
+
+      try {
+        image.readRow(0, new int[2]);
+        fail("exception not thrown!");
+      } catch (IllegalArgumentException e) {
+        assertEquals("Array is too small to hold region of size 3x1", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testEquals() {
+    IImage image = new PackedImage(3, 2, this.data, "packed-image");
+
+    assertEquals(image, new PackedImage(3, 2, this.data, "other-name"));
+    assertNotEquals(image, new PackedImage(2, 3, this.data, "packed-image"));
+  }
+
+  @Test
+  public void testMatchesPixelArrayImage() {
+    IImage packed = new PackedImage(3, 2, this.data, "packed-image");
+    IImage array = new Image(3, 2, this.pixels, "array-image");
+
+    IImage packedSepia = new PackedImage(packed, new ColorTransformationOperation(new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}}), "packed-sepia");
+    IImage arraySepia = new Image(array, new ColorTransformationOperation(new double[][]{
+        {0.393, 0.769, 0.189},
+        {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}}), "array-sepia");
+
+    IImage packedBright = new PackedImage(packed, new OffsetOperation(30), "packed-bright");
+    IImage arrayBright = new Image(array, new OffsetOperation(30), "array-bright");
+
+    KernelOperation blur = new KernelOperation(new double[][]{
+        {1.0 / 16, 1.0 / 8, 1.0 / 16},
+        {1.0 / 8, 1.0 / 4, 1.0 / 8},
+        {1.0 / 16, 1.0 / 8, 1.0 / 16}
+    });
+    IImage packedBlur = new PackedImage(packed, blur, "packed-blur");
+    IImage arrayBlur = new Image(array, blur, "array-blur");
+
+    for (int y = 0; y < 2; ++y) {
+      for (int x = 0; x < 3; ++x) {
+        assertEquals(array.getPixel(x, y), packed.getPixel(x, y));
+        assertEquals(arraySepia.getPixel(x, y), packedSepia.getPixel(x, y));
+        assertEquals(arrayBright.getPixel(x, y), packedBright.getPixel(x, y));
+        assertEquals(arrayBlur.getPixel(x, y), packedBlur.getPixel(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void testImageStorage() {
+    IImage packed = ImageStorage.PACKED.create(3, 2, this.data, "packed-image");
+    IImage array = ImageStorage.PIXEL_ARRAY.create(3, 2, this.data, "array-image");
+
+    assertEquals(PackedImage.class, packed.getClass());
+    assertEquals(Image.class, array.getClass());
+    assertEquals(new Image(3, 2, this.pixels, "array-image"), array);
+    assertEquals(ImageStorage.PACKED, ImageStorage.getDefault());
+  }
+
+  @Test
+  public void testWithName() {
+    IImage image = new PackedImage(3, 2, this.data, "packed-image");
+    IImage renamed = image.withName("renamed");
+
+    assertSame(image, image.withName("packed-image"));
+    assertEquals("renamed", renamed.getImageName());
+    assertEquals(new PackedImage(3, 2, this.data, "renamed"), renamed);
+    assertEquals(image.getContentHash(), renamed.getContentHash());
+  }
+}
@@ -0,0 +1,191 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@code SpillingAlbum}, which spills the least recently used images to disk when its
+ * images use more memory than its budget.
+ */
+public class SpillingAlbumTest {
+  Path directory;
+
+  @Before
+  public void createDirectory() throws IOException {
+    this.directory = Files.createTempDirectory("spilling-album");
+  }
+
+  @After
+  public void deleteDirectory() throws IOException {
+    try (Stream<Path> files = Files.list(this.directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(this.directory);
+  }
+
+  private static IImage image(String name, int seed) {
+    int[] data = new int[10 * 10];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = (seed * 0x010203 + i * 0x0F0E0D) & 0xFFFFFF;
+    }
+    return new PackedImage(10, 10, data, name);
+  }
+
+  private long countFiles() throws IOException {
+    try (Stream<Path> files = Files.list(this.directory)) {
+      return files.count();
+    }
+  }
+
+  @Test
+  public void testFootprints() {
+    assertEquals(416, image("a", 1).getMemoryFootprint());
+    assertEquals(28 * 6 + 16 * 3, new Image(3, 2, new IPixel[][]{
+        {new Pixel(0, 0, 0), new Pixel(0, 0, 0), new Pixel(0, 0, 0)},
+        {new Pixel(0, 0, 0), new Pixel(0, 0, 0), new Pixel(0, 0, 0)}
+    }, "pixels").getMemoryFootprint());
+  }
+
+  @Test
+  public void testSpillLeastRecentlyUsed() throws IOException {
+    // Room for two 10x10 packed images
+    SpillingAlbum album = new SpillingAlbum(1000, this.directory);
+
+    album.addImage(image("a", 1));
+    album.addImage(image("b", 2));
+    assertEquals(0, countFiles());
+
+    album.getImage("a");
+    album.addImage(image("c", 3));
+
+    assertEquals(Set.of("a", "b", "c"), album.getImageNames());
+    assertTrue(album.isResident("a"));
+    assertFalse(album.isResident("b"));
+    assertTrue(album.isResident("c"));
+    assertEquals(832, album.getResidentBytes());
+    assertEquals(1, countFiles());
+
+    // Reading b back spills a, which is now the least recently used
+    assertEquals(image("b", 2), album.getImage("b"));
+    assertEquals("b", album.getImage("b").getImageName());
+    assertFalse(album.isResident("a"));
+    assertTrue(album.isResident("b"));
+    assertEquals(2, countFiles());
+
+    assertEquals(image("a", 1), album.getImage("a"));
+    assertFalse(album.isResident("c"));
+    assertEquals(3, countFiles());
+
+    // b was already written, so dropping it again writes nothing new
+    assertEquals(image("c", 3), album.getImage("c"));
+    assertFalse(album.isResident("b"));
+    assertEquals(3, countFiles());
+
+    album.close();
+    assertEquals(0, countFiles());
+  }
+
+  @Test
+  public void testReplaceImage() throws IOException {
+    SpillingAlbum album = new SpillingAlbum(500, this.directory);
+
+    album.addImage(image("a", 1));
+    album.addImage(image("b", 2));
+    assertEquals(1, countFiles());
+
+    // Replacing a spilled image deletes its file
+    album.addImage(image("a", 3));
+    assertEquals(image("a", 3), album.getImage("a"));
+    assertEquals(416, album.getResidentBytes());
+    assertEquals(1, countFiles());
+    album.close();
+  }
+
+  @Test
+  public void testMostRecentImageIsKept() throws IOException {
+    SpillingAlbum album = new SpillingAlbum(0, this.directory);
+
+    album.addImage(image("a", 1));
+    assertTrue(album.isResident("a"));
+    album.addImage(image("b", 2));
+    assertFalse(album.isResident("a"));
+    assertTrue(album.isResident("b"));
+    album.close();
+  }
+
+  @Test
+  public void testTemporaryDirectory() throws IOException {
+    SpillingAlbum album = new SpillingAlbum(0);
+    album.addImage(image("a", 1));
+    album.addImage(image("b", 2));
+
+    assertEquals(image("a", 1), album.getImage("a"));
+    album.close();
+  }
+
+  @Test
+  public void testImageNamesSnapshot() throws IOException {
+    SpillingAlbum album = new SpillingAlbum(1000, this.directory);
+    album.addImage(image("a", 1));
+    album.addImage(image("b", 2));
+    album.addImage(image("c", 3));
+
+    // Looking images up while going through the names reorders the album, but not the names
+    int count = 0;
+    for (String name : album.getImageNames()) {
+      album.getImage(name);
+      album.getImage("a");
+      ++count;
+    }
+    assertEquals(3, count);
+    album.close();
+  }
+
+  @Test
+  public void testDeferredImagesCountedOnceComputed() throws IOException {
+    // Room for two 10x10 packed images
+    SpillingAlbum album = new SpillingAlbum(1000, this.directory);
+    for (String name : new String[]{"a", "b", "c"}) {
+      album.addImage(LazyImage.defer(10, 10, name, () -> image(name, 1)));
+    }
+    assertEquals(0, album.getResidentBytes());
+
+    for (String name : new String[]{"a", "b", "c"}) {
+      ((LazyImage) album.getImage(name)).evaluate();
+    }
+    album.getImage("c");
+    assertEquals(832, album.getResidentBytes());
+    assertFalse(album.isResident("a"));
+    assertEquals(1, countFiles());
+    assertEquals(image("a", 1), album.getImage("a"));
+    album.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetMissingImage() {
+    new SpillingAlbum(0, this.directory).getImage("missing");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    new SpillingAlbum(-1, this.directory);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testAddNullImage() {
+    new SpillingAlbum(0, this.directory).addImage(null);
+  }
+}
@@ -0,0 +1,86 @@
+package model.command;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import control.ImageUtil;
+import model.Album;
+import model.IAlbum;
+import model.IImage;
+import model.operation.ColorTransformationOperation;
+import model.operation.OffsetOperation;
+import view.ImageTextView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that the CommandPipeline fuses chains of pixel operations only when the intermediate
+ * images are unused, and that fused commands produce the same images.
+ */
+public class CommandPipelineTest {
+  ICommand brighten = new PixelOperationCommand("rocks", "bright", new OffsetOperation(20));
+  ICommand sepia = new PixelOperationCommand("bright", "sepia",
+          new ColorTransformationOperation(new double[][]{
+              {0.393, 0.769, 0.189},
+              {0.349, 0.686, 0.168},
+              {0.272, 0.534, 0.131}}));
+  ICommand luma = new PixelOperationCommand("sepia", "luma",
+          new ColorTransformationOperation(0.2126, 0.7152, 0.0722));
+
+  @Test
+  public void testFuseChain() {
+    List<ICommand> fused = CommandPipeline.fuse(List.of(this.brighten, this.sepia, this.luma));
+
+    assertEquals(1, fused.size());
+    PixelOperationCommand command = (PixelOperationCommand) fused.get(0);
+    assertEquals("rocks", command.getOriginalName());
+    assertEquals("luma", command.getDestinationName());
+  }
+
+  @Test
+  public void testKeepReferencedIntermediate() {
+    ICommand save = new SaveCommand("res/sepia.png", "sepia");
+    List<ICommand> fused = CommandPipeline.fuse(
+            List.of(this.brighten, this.sepia, this.luma, save));
+
+    assertEquals(3, fused.size());
+    assertEquals("sepia", ((PixelOperationCommand) fused.get(0)).getDestinationName());
+    assertSame(this.luma, fused.get(1));
+    assertSame(save, fused.get(2));
+  }
+
+  @Test
+  public void testDoNotFuseOtherCommands() {
+    ICommand flip = new FlipCommand("bright", "sepia", true);
+    List<ICommand> commands = List.of(this.brighten, flip, this.luma);
+
+    assertEquals(commands, CommandPipeline.fuse(commands));
+  }
+
+  @Test
+  public void testFusedResultMatches() throws IOException {
+    IImage rocks = ImageUtil.readPPM("res/rocks.ppm", "rocks");
+
+    IAlbum separate = new Album();
+    separate.addImage(rocks);
+    IAlbum fused = new Album();
+    fused.addImage(rocks);
+
+    ImageTextView view = new ImageTextView(new StringBuilder());
+    List<ICommand> commands = List.of(this.brighten, this.sepia, this.luma);
+    for (ICommand command : commands) {
+      command.apply(separate, view);
+    }
+    for (ICommand command : CommandPipeline.fuse(commands)) {
+      command.apply(fused, view);
+    }
+
+    assertEquals(separate.getImage("luma"), fused.getImage("luma"));
+    assertFalse(fused.getImageNames().contains("bright"));
+    assertFalse(fused.getImageNames().contains("sepia"));
+  }
+}
@@ -0,0 +1,202 @@
+package model.command;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import model.Album;
+import model.ConcurrentAlbum;
+import model.IAlbum;
+import model.operation.ColorTransformationOperation;
+import model.operation.OffsetOperation;
+import view.ImageTextView;
+import view.ImageView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that the CommandScheduler finds the dependencies between commands, runs independent
+ * commands at the same time, and produces the same images as running the commands in order.
+ */
+public class CommandSchedulerTest {
+
+  /**
+   * A command which runs some code, reading and writing the given names.
+   */
+  private static class TestCommand implements ICommand {
+    private final Set<String> sources;
+    private final Set<String> destinations;
+    private final Runnable action;
+
+    TestCommand(Set<String> sources, Set<String> destinations, Runnable action) {
+      this.sources = sources;
+      this.destinations = destinations;
+      this.action = action;
+    }
+
+    @Override
+    public void apply(IAlbum album, ImageView view) {
+      this.action.run();
+    }
+
+    @Override
+    public Set<String> getSourceNames() {
+      return this.sources;
+    }
+
+    @Override
+    public Set<String> getDestinationNames() {
+      return this.destinations;
+    }
+  }
+
+  @Test
+  public void testDependencies() {
+    List<ICommand> script = List.of(
+            new LoadCommand("res/rocks.ppm", "a"),
+            new LoadCommand("res/rocks.ppm", "b"),
+            new PixelOperationCommand("a", "a-bright", new OffsetOperation(10)),
+            new FlipCommand("b", "b-flip", true),
+            new SaveCommand("out.ppm", "a-bright"),
+            new LoadCommand("out.ppm", "c"),
+            new PixelOperationCommand("b-flip", "a", new OffsetOperation(10)),
+            new SaveCommand("./out.ppm", "a"));
+
+    assertEquals(List.of(
+            Set.of(),
+            Set.of(),
+            Set.of(0),
+            Set.of(1),
+            Set.of(2),
+            // Reads the file saved just before
+            Set.of(4),
+            // Replaces an image which an earlier command read
+            Set.of(0, 2, 3),
+            // Overwrites a file which was saved and loaded before
+            Set.of(4, 5, 6)), CommandScheduler.dependencies(script));
+  }
+
+  @Test
+  public void testRunsIndependentCommandsTogether() {
+    // Both commands must be running at once to get past the barrier
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    Runnable await = () -> {
+      try {
+        barrier.await(10, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    };
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    new CommandScheduler(2).run(List.of(
+            new TestCommand(Set.of(), Set.of("a"), await),
+            new TestCommand(Set.of(), Set.of("b"), await),
+            new TestCommand(Set.of("a", "b"), Set.of("c"), () -> order.add("c"))),
+            new ConcurrentAlbum(), new ImageTextView(new StringBuilder()));
+
+    assertEquals(List.of("c"), order);
+  }
+
+  @Test
+  public void testSameImagesAsSequential() {
+    String script = "load res/rocks.ppm rocks\n"
+            + "load res/red.ppm red\n"
+            + "blur rocks rocks-blur\n"
+            + "sharpen red red-sharp\n"
+            + "brighten 20 rocks-blur rocks\n"
+            + "vertical-flip red-sharp red\n"
+            + "sepia rocks rocks-sepia\n";
+    List<ICommand> commands = new ArrayList<>();
+    IAlbum sequential = new Album();
+    for (String line : script.split("\n")) {
+      String[] words = line.split(" ");
+      switch (words[0]) {
+        case "load":
+          commands.add(new LoadCommand(words[1], words[2]));
+          break;
+        case "blur":
+          commands.add(new KernelOperationCommand(words[1], words[2], new double[][]{
+                  {1.0 / 16, 1.0 / 8, 1.0 / 16},
+                  {1.0 / 8, 1.0 / 4, 1.0 / 8},
+                  {1.0 / 16, 1.0 / 8, 1.0 / 16}}));
+          break;
+        case "sharpen":
+          commands.add(new KernelOperationCommand(words[1], words[2], new double[][]{
+                  {-1.0 / 8, 1.0 / 4, -1.0 / 8},
+                  {1.0 / 4, 1.0, 1.0 / 4},
+                  {-1.0 / 8, 1.0 / 4, -1.0 / 8}}));
+          break;
+        case "brighten":
+          commands.add(new PixelOperationCommand(words[2], words[3],
+                  new OffsetOperation(Integer.parseInt(words[1]))));
+          break;
+        case "vertical-flip":
+          commands.add(new FlipCommand(words[1], words[2], true));
+          break;
+        default:
+          commands.add(new PixelOperationCommand(words[1], words[2],
+                  new ColorTransformationOperation(new double[][]{
+                      {0.393, 0.769, 0.189},
+                      {0.349, 0.686, 0.168},
+                      {0.272, 0.534, 0.131}})));
+      }
+    }
+    ImageView view = new ImageTextView(new StringBuilder());
+    for (ICommand command : commands) {
+      command.apply(sequential, view);
+    }
+
+    IAlbum concurrent = new ConcurrentAlbum();
+    IAlbum synchronizedAlbum = new Album();
+    new CommandScheduler(4).run(commands, concurrent, view);
+    new CommandScheduler(4).run(commands, synchronizedAlbum, view);
+
+    for (String name : sequential.getImageNames()) {
+      assertEquals(sequential.getImage(name), concurrent.getImage(name));
+      assertEquals(sequential.getImage(name), synchronizedAlbum.getImage(name));
+    }
+    assertEquals(sequential.getImageNames(), concurrent.getImageNames());
+  }
+
+  @Test
+  public void testFailureSkipsDependents() {
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    List<ICommand> script = List.of(
+            new TestCommand(Set.of(), Set.of("a"), () -> {
+              throw new IllegalStateException("Out of memory");
+            }),
+            new TestCommand(Set.of("a"), Set.of("b"), () -> order.add("b")),
+            new TestCommand(Set.of(), Set.of("c"), () -> order.add("c")));
+
+    try {
+      new CommandScheduler(2).run(script, new ConcurrentAlbum(),
+              new ImageTextView(new StringBuilder()));
+      fail("Expected an exception");
+    } catch (IllegalStateException e) {
+      assertEquals("Out of memory", e.getMessage());
+    }
+    assertEquals(List.of("c"), order);
+  }
+
+  @Test
+  public void testMissingImageIsReported() {
+    StringBuilder log = new StringBuilder();
+    new CommandScheduler(2).run(List.of(new FlipCommand("missing", "flipped", true)),
+            new ConcurrentAlbum(), new ImageTextView(log));
+
+    assertTrue(log.toString().contains("Image missing not found!"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    new CommandScheduler(0);
+  }
+}
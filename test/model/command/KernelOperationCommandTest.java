@@ -9,6 +9,8 @@ import model.IImage;
 import model.IPixel;
 import model.Image;
 import model.Pixel;
+import model.operation.EdgeMode;
+import model.operation.KernelOperation;
 import view.ImageTextView;
 import view.ImageView;
 
@@ -182,4 +184,24 @@ public class KernelOperationCommandTest {
 
     assertEquals(expectedRed, actualRed);
   }
+
+  @Test
+  public void testEdgeMode() {
+    double[][] blur = {
+            {1.0 / 16, 1.0 / 8, 1.0 / 16},
+            {1.0 / 8, 1.0 / 4, 1.0 / 8},
+            {1.0 / 16, 1.0 / 8, 1.0 / 16}
+    };
+    ICommand command = new KernelOperationCommand("testing", "blurred", blur, EdgeMode.MIRROR);
+
+    command.apply(album, view);
+    IImage blurred = album.getImage("blurred");
+    KernelOperation operation = new KernelOperation(blur, EdgeMode.MIRROR);
+
+    for (int y = 0; y < 5; ++y) {
+      for (int x = 0; x < 5; ++x) {
+        assertEquals(operation.apply(x, y, this.image), blurred.getPixel(x, y));
+      }
+    }
+  }
 }
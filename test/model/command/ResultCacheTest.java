@@ -0,0 +1,139 @@
+package model.command;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.Album;
+import model.IAlbum;
+import model.IImage;
+import model.IPixel;
+import model.Image;
+import model.PackedImage;
+import model.Pixel;
+import model.operation.OffsetOperation;
+import view.ImageTextView;
+import view.ImageView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that the ResultCache returns earlier results for the same operation on images with the
+ * same contents, and that commands use it.
+ */
+public class ResultCacheTest {
+  ResultCache previous;
+  ResultCache cache;
+  IImage original = new PackedImage(2, 2, new int[]{0x000000, 0x102030, 0x405060, 0xFFFFFF},
+          "original");
+
+  @Before
+  public void setCache() {
+    this.previous = ResultCache.getDefault();
+    this.cache = new ResultCache(1 << 20);
+    ResultCache.setDefault(this.cache);
+  }
+
+  @After
+  public void restoreCache() {
+    ResultCache.setDefault(this.previous);
+  }
+
+  private IImage brighten(ResultCache cache, IImage image, int offset, String name,
+                          AtomicInteger created) {
+    return cache.apply(image, new OffsetOperation(offset), name, n -> {
+      created.incrementAndGet();
+      return new PackedImage(image, new OffsetOperation(offset), n);
+    });
+  }
+
+  @Test
+  public void testContentHash() {
+    IImage pixels = new Image(2, 2, new IPixel[][]{
+        {new Pixel(0, 0, 0), new Pixel(0x10, 0x20, 0x30)},
+        {new Pixel(0x40, 0x50, 0x60), new Pixel(255, 255, 255)}}, "pixels");
+
+    assertEquals(this.original.getContentHash(), pixels.getContentHash());
+    assertNotEquals(this.original.getContentHash(),
+            new PackedImage(4, 1, new int[]{0x000000, 0x102030, 0x405060, 0xFFFFFF}, "wide")
+                    .getContentHash());
+    assertNotEquals(this.original.getContentHash(),
+            new PackedImage(2, 2, new int[]{0x000000, 0x102030, 0x405060, 0xFFFFFE}, "other")
+                    .getContentHash());
+  }
+
+  @Test
+  public void testReuseResult() {
+    AtomicInteger created = new AtomicInteger();
+    IImage first = this.brighten(this.cache, this.original, 10, "bright", created);
+    IImage same = this.brighten(this.cache, this.original, 10, "bright", created);
+    IImage renamed = this.brighten(this.cache, this.original, 10, "bright2", created);
+
+    assertEquals(1, created.get());
+    assertSame(first, same);
+    assertEquals("bright2", renamed.getImageName());
+    assertEquals(new PackedImage(this.original, new OffsetOperation(10), "bright2"), renamed);
+    assertEquals(2, this.cache.getHits());
+    assertEquals(1, this.cache.getMisses());
+
+    // Same contents under another name
+    IImage copy = new PackedImage(2, 2, new int[]{0x000000, 0x102030, 0x405060, 0xFFFFFF},
+            "copy");
+    this.brighten(this.cache, copy, 10, "bright", created);
+    assertEquals(1, created.get());
+
+    this.brighten(this.cache, this.original, 20, "bright", created);
+    assertEquals(2, created.get());
+  }
+
+  @Test
+  public void testEviction() {
+    // Room for one 2x2 packed image
+    ResultCache small = new ResultCache(40);
+    AtomicInteger created = new AtomicInteger();
+
+    this.brighten(small, this.original, 10, "a", created);
+    this.brighten(small, this.original, 20, "b", created);
+    assertEquals(32, small.getUsedBytes());
+    this.brighten(small, this.original, 20, "b", created);
+    assertEquals(2, created.get());
+    this.brighten(small, this.original, 10, "a", created);
+    assertEquals(3, created.get());
+
+    ResultCache disabled = new ResultCache(0);
+    this.brighten(disabled, this.original, 10, "a", created);
+    this.brighten(disabled, this.original, 10, "a", created);
+    assertEquals(5, created.get());
+  }
+
+  @Test
+  public void testCommandsUseCache() {
+    IAlbum album = new Album();
+    album.addImage(this.original);
+    ImageView view = new ImageTextView(new StringBuilder());
+
+    new PixelOperationCommand("original", "bright", new OffsetOperation(10)).apply(album, view);
+    // The same lookup table, built from two operations
+    new PixelOperationCommand("original", "bright2",
+            new OffsetOperation(5).andThen(new OffsetOperation(5))).apply(album, view);
+    new FlipCommand("original", "flipped", true).apply(album, view);
+    new FlipCommand("original", "mirrored", false).apply(album, view);
+    new FlipCommand("original", "flipped2", true).apply(album, view);
+
+    assertEquals(2, this.cache.getHits());
+    assertEquals(3, this.cache.getMisses());
+    assertEquals("bright2", album.getImage("bright2").getImageName());
+    assertEquals(album.getImage("bright").getRgb(1, 1), album.getImage("bright2").getRgb(1, 1));
+    assertEquals(album.getImage("flipped").getRgb(0, 0),
+            album.getImage("flipped2").getRgb(0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    new ResultCache(-1);
+  }
+}
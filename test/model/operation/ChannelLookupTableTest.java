@@ -0,0 +1,82 @@
+package model.operation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Pixel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the ChannelLookupTable maps each component of a pixel using its tables, validates
+ * the tables it is given, and combines correctly with other tables.
+ */
+public class ChannelLookupTableTest {
+  int[] identity;
+  int[] invert;
+  int[] half;
+
+  @Before
+  public void initData() {
+    this.identity = new int[256];
+    this.invert = new int[256];
+    this.half = new int[256];
+
+    for (int i = 0; i < 256; ++i) {
+      this.identity[i] = i;
+      this.invert[i] = 255 - i;
+      this.half[i] = i / 2;
+    }
+  }
+
+  @Test
+  public void testApply() {
+    ChannelLookupTable table = new ChannelLookupTable(this.invert, this.identity, this.half);
+
+    assertEquals(new Pixel(245, 15, 127), table.apply(new Pixel(10, 15, 255)));
+    assertEquals(0xF50F7F, table.applyRgb(0x0A0FFF));
+    assertEquals(245, table.getRed(10));
+    assertEquals(15, table.getGreen(15));
+    assertEquals(127, table.getBlue(255));
+  }
+
+  @Test
+  public void testApplyArray() {
+    ChannelLookupTable table = new ChannelLookupTable(this.invert);
+    int[] data = {0x000000, 0xFFFFFF, 0x0A0FFF, 0x123456};
+
+    table.applyRgb(data, 1, 3);
+
+    assertArrayEquals(new int[]{0x000000, 0x000000, 0xF5F000, 0x123456}, data);
+  }
+
+  @Test
+  public void testThen() {
+    ChannelLookupTable invertTable = new ChannelLookupTable(this.invert);
+    ChannelLookupTable halfTable = new ChannelLookupTable(this.half);
+    ChannelLookupTable combined = invertTable.then(halfTable);
+
+    for (int rgb : new int[]{0x000000, 0xFFFFFF, 0x0A0FFF, 0x123456}) {
+      assertEquals(halfTable.applyRgb(invertTable.applyRgb(rgb)), combined.applyRgb(rgb));
+    }
+    assertEquals(new ChannelLookupTable(this.identity),
+            invertTable.then(invertTable));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongLength() {
+    new ChannelLookupTable(new int[255]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidValue() {
+    this.half[3] = 256;
+    new ChannelLookupTable(this.half);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullTable() {
+    new ChannelLookupTable(this.identity, null, this.identity);
+  }
+}
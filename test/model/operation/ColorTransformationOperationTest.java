@@ -7,6 +7,8 @@ import model.IPixel;
 import model.Pixel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * A testing class for the {@code ColorTransformationOperation} that ensures it correctly
@@ -141,4 +143,23 @@ public class ColorTransformationOperationTest {
     assertEquals(new Pixel(255, 255, 238), sepia.apply(pixel2));
     assertEquals(new Pixel(0, 0, 0), sepia.apply(pixel3));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testToLookupTable() {
+    assertFalse(redComponent.toLookupTable().isPresent());
+    assertFalse(sepia.toLookupTable().isPresent());
+
+    ColorTransformationOperation scale = new ColorTransformationOperation(new double[][]{
+            {1.5, 0, 0},
+            {0, 0.5, 0},
+            {0, 0, -1}
+    });
+    assertTrue(scale.toLookupTable().isPresent());
+
+    ChannelLookupTable table = scale.toLookupTable().get();
+    for (int value = 0; value < 256; value += 5) {
+      IPixel pixel = new Pixel(value, 255 - value, value / 2);
+      assertEquals(scale.apply(pixel), table.apply(pixel));
+    }
+  }
+}
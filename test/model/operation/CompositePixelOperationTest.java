@@ -0,0 +1,83 @@
+package model.operation;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import model.IPixel;
+import model.Pixel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the CompositePixelOperation applies its steps in order, exactly as if each step
+ * was applied separately, and that it folds lookup tables together.
+ */
+public class CompositePixelOperationTest {
+  IPixelOperation brighten = new OffsetOperation(40);
+  IPixelOperation darken = new OffsetOperation(-25);
+  IPixelOperation luma = new ColorTransformationOperation(0.2126, 0.7152, 0.0722);
+  IPixelOperation sepia = new ColorTransformationOperation(new double[][]{
+      {0.393, 0.769, 0.189},
+      {0.349, 0.686, 0.168},
+      {0.272, 0.534, 0.131}
+  });
+
+  @Test
+  public void testMatchesSeparateSteps() {
+    IPixelOperation composite = new CompositePixelOperation(
+            List.of(this.sepia, this.brighten, this.luma, this.darken, new ValueOperation()));
+
+    int[] data = new int[10000];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = (int) ((i * 2654435761L) & 0xFFFFFF);
+    }
+    int[] expected = data.clone();
+    for (int i = 0; i < expected.length; ++i) {
+      IPixel pixel = Pixel.fromRgb(expected[i]);
+      pixel = this.sepia.apply(pixel);
+      pixel = this.brighten.apply(pixel);
+      pixel = this.luma.apply(pixel);
+      pixel = this.darken.apply(pixel);
+      pixel = new ValueOperation().apply(pixel);
+      expected[i] = Pixel.toRgb(pixel);
+    }
+
+    composite.applyRgb(data, 0, data.length);
+    for (int i = 0; i < data.length; ++i) {
+      assertEquals(expected[i], data[i]);
+    }
+
+    assertEquals(Pixel.fromRgb(expected[123]),
+            composite.apply(Pixel.fromRgb((int) ((123 * 2654435761L) & 0xFFFFFF))));
+  }
+
+  @Test
+  public void testFoldsLookupTables() {
+    CompositePixelOperation composite = new CompositePixelOperation(
+            List.of(this.brighten, this.darken, this.sepia, this.darken, this.brighten));
+
+    assertEquals(3, composite.getSteps().size());
+    assertTrue(composite.getSteps().get(0) instanceof ChannelLookupTable);
+    assertEquals(this.sepia, composite.getSteps().get(1));
+    assertTrue(composite.getSteps().get(2) instanceof ChannelLookupTable);
+  }
+
+  @Test
+  public void testAndThen() {
+    IPixelOperation tables = this.brighten.andThen(this.darken);
+    assertTrue(tables instanceof ChannelLookupTable);
+    // the intermediate result is clamped before darkening
+    assertEquals(new Pixel(15, 15, 230), tables.apply(new Pixel(0, 0, 255)));
+
+    IPixelOperation nested = this.sepia.andThen(this.brighten).andThen(this.darken);
+    assertTrue(nested instanceof CompositePixelOperation);
+    assertEquals(2, ((CompositePixelOperation) nested).getSteps().size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoSteps() {
+    new CompositePixelOperation(List.of());
+  }
+}
@@ -0,0 +1,49 @@
+package model.operation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that each EdgeMode reads the correct pixel for taps inside and outside of the image.
+ */
+public class EdgeModeTest {
+  @Test
+  public void testInside() {
+    for (EdgeMode mode : EdgeMode.values()) {
+      for (int i = 0; i < 4; ++i) {
+        assertEquals(i, mode.resolve(i, 4));
+      }
+    }
+  }
+
+  @Test
+  public void testZero() {
+    assertEquals(-1, EdgeMode.ZERO.resolve(-1, 4));
+    assertEquals(-1, EdgeMode.ZERO.resolve(4, 4));
+  }
+
+  @Test
+  public void testClamp() {
+    assertEquals(0, EdgeMode.CLAMP.resolve(-3, 4));
+    assertEquals(3, EdgeMode.CLAMP.resolve(4, 4));
+    assertEquals(3, EdgeMode.CLAMP.resolve(10, 4));
+  }
+
+  @Test
+  public void testMirror() {
+    assertEquals(1, EdgeMode.MIRROR.resolve(-1, 4));
+    assertEquals(3, EdgeMode.MIRROR.resolve(-3, 4));
+    assertEquals(2, EdgeMode.MIRROR.resolve(4, 4));
+    assertEquals(0, EdgeMode.MIRROR.resolve(6, 4));
+    assertEquals(1, EdgeMode.MIRROR.resolve(7, 4));
+    assertEquals(0, EdgeMode.MIRROR.resolve(-5, 1));
+  }
+
+  @Test
+  public void testWrap() {
+    assertEquals(3, EdgeMode.WRAP.resolve(-1, 4));
+    assertEquals(0, EdgeMode.WRAP.resolve(4, 4));
+    assertEquals(1, EdgeMode.WRAP.resolve(-7, 4));
+  }
+}
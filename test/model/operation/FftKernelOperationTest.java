@@ -0,0 +1,131 @@
+package model.operation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import model.IImage;
+import model.PackedImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the FftKernelOperation gives the same results as direct convolution, and that
+ * KernelOperation.create chooses it for large kernels which are not separable.
+ */
+public class FftKernelOperationTest {
+  IImage image;
+  double[][] kernel;
+
+  @Before
+  public void initData() {
+    Random random = new Random(42);
+
+    int[] data = new int[40 * 90];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = random.nextInt(0x1000000);
+    }
+    this.image = new PackedImage(40, 90, data, "random");
+
+    // A large sharpening kernel, which is not separable
+    this.kernel = new double[17][17];
+    for (int y = 0; y < 17; ++y) {
+      for (int x = 0; x < 17; ++x) {
+        this.kernel[y][x] = -1.0 / 300 + random.nextDouble() / 1000;
+      }
+    }
+    this.kernel[8][8] += 2;
+  }
+
+  @Test
+  public void testMatchesDirect() {
+    for (EdgeMode mode : EdgeMode.values()) {
+      IKernelOperation direct = new KernelOperation(this.kernel, mode);
+      IKernelOperation fft = new FftKernelOperation(this.kernel, mode);
+
+      int[] expected = new int[40 * 90];
+      int[] actual = new int[40 * 90];
+      direct.applyRows(this.image, 0, 90, expected);
+      fft.applyRows(this.image, 0, 90, actual);
+
+      for (int i = 0; i < expected.length; ++i) {
+        for (int shift = 0; shift <= 16; shift += 8) {
+          int difference = ((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF);
+          assertTrue(mode + " differs at " + i, Math.abs(difference) <= 1);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPartialRows() {
+    IKernelOperation fft = new FftKernelOperation(this.kernel);
+
+    int[] all = new int[40 * 90];
+    int[] some = new int[40 * 90];
+    fft.applyRows(this.image, 0, 90, all);
+    fft.applyRows(this.image, 30, 80, some);
+
+    for (int y = 0; y < 90; ++y) {
+      for (int x = 0; x < 40; ++x) {
+        assertEquals(y >= 30 && y < 80 ? all[y * 40 + x] : 0, some[y * 40 + x]);
+      }
+    }
+  }
+
+  @Test
+  public void testExactForSimpleKernel() {
+    double[][] identity = new double[15][15];
+    identity[7][7] = 1;
+    IKernelOperation fft = new FftKernelOperation(identity);
+
+    int[] result = new int[40 * 90];
+    fft.applyRows(this.image, 0, 90, result);
+
+    for (int y = 0; y < 90; ++y) {
+      for (int x = 0; x < 40; ++x) {
+        assertEquals(this.image.getRgb(x, y), result[y * 40 + x]);
+      }
+    }
+  }
+
+  @Test
+  public void testCreate() {
+    double[][] small = {
+            {-1.0 / 8, -1.0 / 8, -1.0 / 8},
+            {-1.0 / 8, 2, -1.0 / 8},
+            {-1.0 / 8, -1.0 / 8, -1.0 / 8}
+    };
+    double[] weights = new double[31];
+    Arrays.fill(weights, 1.0 / 31);
+    double[][] box = new double[31][];
+    Arrays.fill(box, weights);
+
+    assertEquals(KernelOperation.class, KernelOperation.create(small, EdgeMode.ZERO).getClass());
+    assertEquals(KernelOperation.class, KernelOperation.create(box, EdgeMode.ZERO).getClass());
+    assertEquals(FftKernelOperation.class,
+            KernelOperation.create(this.kernel, EdgeMode.ZERO).getClass());
+
+    int threshold = KernelOperation.getFftThreshold();
+    try {
+      KernelOperation.setFftThreshold(3);
+      assertEquals(FftKernelOperation.class,
+              KernelOperation.create(small, EdgeMode.ZERO).getClass());
+    } finally {
+      KernelOperation.setFftThreshold(threshold);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidThreshold() {
+    KernelOperation.setFftThreshold(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEvenKernel() {
+    new FftKernelOperation(new double[16][16]);
+  }
+}
@@ -3,12 +3,17 @@ package model.operation;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Random;
+
 import model.IImage;
 import model.IPixel;
 import model.Image;
+import model.PackedImage;
 import model.Pixel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests that the KernelOperation properly applies a kernel operation to an image to create
@@ -209,4 +214,212 @@ public class KernelOperationTest {
 
     assertEquals(expectedRed, actualRed);
   }
+
+  @Test
+  public void testApplyRowsMatchesApply() {
+    IKernelOperation sharpen = new KernelOperation(new double[][]{
+            {-1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8},
+            {-1.0 / 8, 1.0 / 4, 1.0 / 4, 1.0 / 4, -1.0 / 8},
+            {-1.0 / 8, 1.0 / 4, 1.0, 1.0 / 4, -1.0 / 8},
+            {-1.0 / 8, 1.0 / 4, 1.0 / 4, 1.0 / 4, -1.0 / 8},
+            {-1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8}
+    });
+
+    int[] result = new int[25];
+    sharpen.applyRows(this.image, 1, 4, result);
+
+    for (int y = 0; y < 5; ++y) {
+      for (int x = 0; x < 5; ++x) {
+        if (y >= 1 && y < 4) {
+          assertEquals(Pixel.toRgb(sharpen.apply(x, y, this.image)), result[y * 5 + x]);
+        } else {
+          assertEquals(0, result[y * 5 + x]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSeparableDetection() {
+    KernelOperation blur = new KernelOperation(new double[][]{
+            {1.0 / 16, 1.0 / 8, 1.0 / 16},
+            {1.0 / 8, 1.0 / 4, 1.0 / 8},
+            {1.0 / 16, 1.0 / 8, 1.0 / 16}
+    });
+    KernelOperation sharpen = new KernelOperation(new double[][]{
+            {-1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8},
+            {-1.0 / 8, 1.0 / 4, 1.0 / 4, 1.0 / 4, -1.0 / 8},
+            {-1.0 / 8, 1.0 / 4, 1.0, 1.0 / 4, -1.0 / 8},
+            {-1.0 / 8, 1.0 / 4, 1.0 / 4, 1.0 / 4, -1.0 / 8},
+            {-1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8}
+    });
+    KernelOperation zero = new KernelOperation(new double[3][3]);
+
+    assertTrue(blur.isSeparable());
+    assertFalse(sharpen.isSeparable());
+    assertFalse(zero.isSeparable());
+  }
+
+  @Test
+  public void testSeparableMatchesFullKernel() {
+    double[] weights = {1.0 / 4, 1.0 / 2, 1.0 / 4};
+    KernelOperation separable = new KernelOperation(weights, weights);
+    KernelOperation blur = new KernelOperation(new double[][]{
+            {1.0 / 16, 1.0 / 8, 1.0 / 16},
+            {1.0 / 8, 1.0 / 4, 1.0 / 8},
+            {1.0 / 16, 1.0 / 8, 1.0 / 16}
+    });
+
+    assertTrue(separable.isSeparable());
+
+    int[] separableRows = new int[25];
+    int[] blurRows = new int[25];
+    separable.applyRows(this.image, 0, 5, separableRows);
+    blur.applyRows(this.image, 0, 5, blurRows);
+
+    for (int y = 0; y < 5; ++y) {
+      for (int x = 0; x < 5; ++x) {
+        int expected = Pixel.toRgb(new Image(this.image, blur, "blurred").getPixel(x, y));
+        assertEquals(expected, separableRows[y * 5 + x]);
+        assertEquals(expected, blurRows[y * 5 + x]);
+        assertEquals(expected, separable.applyRgb(x, y, this.image));
+      }
+    }
+  }
+
+  @Test
+  public void testInexactSeparableKernel() {
+    Random random = new Random(7);
+    int[] data = new int[200 * 300];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = random.nextInt(0x1000000);
+    }
+    IImage noise = new PackedImage(200, 300, data, "noise");
+
+    // Ninths are not binary fractions, so the two passes round differently from the full kernel
+    double[] ninths = {1.0 / 9, 1.0 / 9, 1.0 / 9};
+    double[] ones = {1, 1, 1};
+    KernelOperation box = new KernelOperation(new double[][]{ninths, ninths, ninths});
+    KernelOperation separable = new KernelOperation(ninths, ones);
+    assertFalse(box.isSeparable());
+    assertTrue(separable.isSeparable());
+
+    int[] expected = new int[data.length];
+    int[] actual = new int[data.length];
+    box.applyRows(noise, 0, 300, expected);
+    separable.applyRows(noise, 0, 300, actual);
+
+    int differences = 0;
+    for (int i = 0; i < data.length; ++i) {
+      assertEquals(box.applyRgb(i % 200, i / 200, noise), expected[i]);
+      for (int shift = 0; shift <= 16; shift += 8) {
+        int difference = ((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF);
+        assertTrue("differs at " + i, Math.abs(difference) <= 1);
+      }
+      differences += expected[i] == actual[i] ? 0 : 1;
+    }
+    assertTrue(differences > 0);
+  }
+
+  @Test
+  public void testCreateLargeSeparableKernel() {
+    double[][] kernel = new double[15][15];
+    for (int y = 0; y < 15; ++y) {
+      for (int x = 0; x < 15; ++x) {
+        kernel[y][x] = 1.0 / 225;
+      }
+    }
+
+    // Too large for the full kernel, so it is applied in two passes rather than with an FFT
+    IKernelOperation operation = KernelOperation.create(kernel, EdgeMode.CLAMP);
+    assertTrue(operation instanceof KernelOperation);
+    assertTrue(((KernelOperation) operation).isSeparable());
+    assertFalse(new KernelOperation(kernel).isSeparable());
+  }
+
+  @Test
+  public void testSeparableWiderThanImage() {
+    double[] weights = {1, 1, 1, 1, 1, 1, 1};
+    KernelOperation box = new KernelOperation(weights, weights);
+
+    int[] result = new int[25];
+    box.applyRows(this.image, 0, 5, result);
+
+    for (int y = 0; y < 5; ++y) {
+      for (int x = 0; x < 5; ++x) {
+        assertEquals(box.applyRgb(x, y, this.image), result[y * 5 + x]);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSeparableEvenSize() {
+    new KernelOperation(new double[]{0.5, 0.5}, new double[]{0.5, 0.5});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSeparableMismatchedSize() {
+    new KernelOperation(new double[]{0.5, 0.5, 0.5}, new double[]{1.0});
+  }
+
+  @Test
+  public void testEdgeModesMatchApply() {
+    double[][] sharpen = {
+            {-1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8},
+            {-1.0 / 8, 1.0 / 4, 1.0 / 4, 1.0 / 4, -1.0 / 8},
+            {-1.0 / 8, 1.0 / 4, 1.0, 1.0 / 4, -1.0 / 8},
+            {-1.0 / 8, 1.0 / 4, 1.0 / 4, 1.0 / 4, -1.0 / 8},
+            {-1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8}
+    };
+    double[] weights = {0.1, 0.2, 0.3, 0.2, 0.1, 0.05, 0.05};
+
+    for (EdgeMode mode : EdgeMode.values()) {
+      KernelOperation[] operations = {
+          new KernelOperation(sharpen, mode),
+          new KernelOperation(weights, weights, mode)
+      };
+
+      for (KernelOperation operation : operations) {
+        assertEquals(mode, operation.getEdgeMode());
+
+        int[] result = new int[25];
+        operation.applyRows(this.image, 0, 5, result);
+        for (int y = 0; y < 5; ++y) {
+          for (int x = 0; x < 5; ++x) {
+            assertEquals(operation.applyRgb(x, y, this.image), result[y * 5 + x]);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEdgeModes() {
+    double[][] sum = {
+            {1, 1, 1},
+            {1, 1, 1},
+            {1, 1, 1}
+    };
+    IImage small = new Image(3, 3, new IPixel[][]{
+        {new Pixel(10, 10, 10), new Pixel(10, 10, 10), new Pixel(10, 10, 10)},
+        {new Pixel(10, 10, 10), new Pixel(10, 10, 10), new Pixel(10, 10, 10)},
+        {new Pixel(10, 10, 10), new Pixel(20, 20, 20), new Pixel(0, 0, 0)}
+    }, "small");
+
+    // Zero padding only sees the four pixels in the image, the other modes see nine
+    assertEquals(40, new KernelOperation(sum, EdgeMode.ZERO).apply(0, 0, small).getRed());
+    assertEquals(90, new KernelOperation(sum, EdgeMode.CLAMP).apply(0, 0, small).getRed());
+    assertEquals(90, new KernelOperation(sum, EdgeMode.MIRROR).apply(0, 0, small).getRed());
+    assertEquals(90, new KernelOperation(sum, EdgeMode.WRAP).apply(0, 0, small).getRed());
+
+    assertEquals(40, new KernelOperation(sum, EdgeMode.ZERO).apply(2, 2, small).getRed());
+    assertEquals(70, new KernelOperation(sum, EdgeMode.CLAMP).apply(2, 2, small).getRed());
+    assertEquals(100, new KernelOperation(sum, EdgeMode.MIRROR).apply(2, 2, small).getRed());
+    assertEquals(90, new KernelOperation(sum, EdgeMode.WRAP).apply(2, 2, small).getRed());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullEdgeMode() {
+    new KernelOperation(new double[][]{{1.0}}, null);
+  }
 }
@@ -49,4 +49,18 @@ public class OffsetOperationTest {
     assertEquals(new Pixel(255, 255, 255), offset3.apply(pixel2));
     assertEquals(new Pixel(0, 0, 0), offset3.apply(pixel3));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testToLookupTable() {
+    ChannelLookupTable table = offset1.toLookupTable().get();
+    assertEquals(5, table.getRed(0));
+    assertEquals(255, table.getGreen(253));
+    assertEquals(20, table.getBlue(15));
+
+    int[] data = {Pixel.toRgb(pixel1), Pixel.toRgb(pixel2), Pixel.toRgb(pixel3)};
+    offset2.applyRgb(data, 0, 3);
+    assertEquals(new Pixel(8, 13, 253), Pixel.fromRgb(data[0]));
+    assertEquals(new Pixel(253, 253, 253), Pixel.fromRgb(data[1]));
+    assertEquals(new Pixel(0, 0, 0), Pixel.fromRgb(data[2]));
+  }
+}
@@ -0,0 +1,88 @@
+package model.operation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import model.IImage;
+import model.PackedImage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests that the vector engine, when it is available, gives exactly the same results as the
+ * scalar loops. These tests are skipped when the engine has not been compiled or the incubator
+ * module is not available.
+ */
+public class VectorEngineTest {
+  VectorEngine engine;
+  Random random;
+
+  @Before
+  public void initData() {
+    assumeTrue(VectorEngine.get().isPresent());
+    this.engine = VectorEngine.get().get();
+    this.random = new Random(7);
+  }
+
+  @Test
+  public void testConvolve() {
+    double[][] weights = new double[3][5];
+    double[][] rows = new double[3][104];
+    for (int i = 0; i < 3; ++i) {
+      for (int j = 0; j < 5; ++j) {
+        weights[i][j] = this.random.nextDouble() - 0.5;
+      }
+      for (int x = 0; x < 104; ++x) {
+        rows[i][x] = this.random.nextInt(256);
+      }
+    }
+
+    double[] expected = new double[100];
+    for (int x = 0; x < 100; ++x) {
+      for (int i = 0; i < 3; ++i) {
+        for (int j = 0; j < 5; ++j) {
+          expected[x] += rows[i][x + j] * weights[i][j];
+        }
+      }
+    }
+
+    double[] actual = new double[100];
+    this.engine.convolve(weights, rows, actual, 100);
+    assertArrayEquals(expected, actual, 0);
+  }
+
+  @Test
+  public void testKernelOperation() {
+    int[] data = new int[37 * 23];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = this.random.nextInt(0x1000000);
+    }
+    IImage image = new PackedImage(37, 23, data, "random");
+
+    KernelOperation sharpen = new KernelOperation(new double[][]{
+        {-1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8},
+        {-1.0 / 8, 1.0 / 4, 1.0 / 4, 1.0 / 4, -1.0 / 8},
+        {-1.0 / 8, 1.0 / 4, 1.0, 1.0 / 4, -1.0 / 8},
+        {-1.0 / 8, 1.0 / 4, 1.0 / 4, 1.0 / 4, -1.0 / 8},
+        {-1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8, -1.0 / 8}
+    }, EdgeMode.MIRROR);
+    KernelOperation blur = new KernelOperation(new double[]{0.25, 0.5, 0.25},
+            new double[]{0.1, 0.3, 0.6}, EdgeMode.CLAMP);
+
+    for (KernelOperation operation : new KernelOperation[]{sharpen, blur}) {
+      int[] expected = new int[data.length];
+      for (int y = 0; y < 23; ++y) {
+        for (int x = 0; x < 37; ++x) {
+          expected[y * 37 + x] = operation.applyRgb(x, y, image);
+        }
+      }
+
+      int[] actual = new int[data.length];
+      operation.applyRows(image, 0, 23, actual);
+      assertArrayEquals(expected, actual);
+    }
+  }
+}
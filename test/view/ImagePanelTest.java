@@ -0,0 +1,108 @@
+package view;
+
+import org.junit.Test;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import control.ImageUtil;
+import model.Album;
+import model.IAlbum;
+import model.IImage;
+import model.LazyImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the image panel draws the active image once its tiles have been created, at the
+ * current zoom.
+ */
+public class ImagePanelTest {
+  private static BufferedImage paintUntil(ImagePanel panel, int x, int y, int rgb)
+          throws InterruptedException {
+    BufferedImage canvas = new BufferedImage(panel.getWidth(), panel.getHeight(),
+            BufferedImage.TYPE_INT_RGB);
+    long deadline = System.currentTimeMillis() + 10000;
+    do {
+      Graphics graphics = canvas.getGraphics();
+      panel.paint(graphics);
+      graphics.dispose();
+      if ((canvas.getRGB(x, y) & 0xFFFFFF) == rgb) {
+        break;
+      }
+      Thread.sleep(10);
+    } while (System.currentTimeMillis() < deadline);
+    return canvas;
+  }
+
+  @Test
+  public void testPaintTiles() throws IOException, InterruptedException {
+    IAlbum album = new Album();
+    IImage rocks = ImageUtil.loadImage("res/rocks.ppm", "rocks");
+    album.addImage(rocks);
+    ViewModel viewModel = new ViewModel(() -> { });
+    viewModel.setActiveImage("rocks");
+    ImagePanel panel = new ImagePanel(album, viewModel);
+
+    int width = rocks.getWidth();
+    int height = rocks.getHeight();
+    assertEquals(new Dimension(width, height), panel.getPreferredSize());
+    panel.setSize(width, height);
+
+    BufferedImage canvas = paintUntil(panel, width - 1, height - 1,
+            rocks.getRgb(width - 1, height - 1));
+    for (int y = 0; y < height; y += 7) {
+      for (int x = 0; x < width; x += 7) {
+        assertEquals(rocks.getRgb(x, y), canvas.getRGB(x, y) & 0xFFFFFF);
+      }
+    }
+
+    // Zoomed in, each pixel of the image covers 2x2 pixels of the panel
+    panel.zoomBy(2, new Point(0, 0));
+    assertEquals(2, panel.getZoom(), 0);
+    assertEquals(new Dimension(2 * width, 2 * height), panel.getPreferredSize());
+    canvas = paintUntil(panel, 3, 3, rocks.getRgb(1, 1));
+    assertEquals(rocks.getRgb(1, 1), canvas.getRGB(2, 3) & 0xFFFFFF);
+
+    // Zooming out is limited
+    panel.zoomBy(1e-6, new Point(0, 0));
+    assertTrue(panel.getZoom() >= 1.0 / 64);
+  }
+
+  @Test
+  public void testFailedTileNotRetried() throws InterruptedException,
+          InvocationTargetException {
+    IAlbum album = new Album();
+    AtomicInteger attempts = new AtomicInteger();
+    album.addImage(LazyImage.defer(100, 100, "broken", () -> {
+      attempts.incrementAndGet();
+      throw new IllegalStateException("Cannot compute the image");
+    }));
+    ViewModel viewModel = new ViewModel(() -> { });
+    viewModel.setActiveImage("broken");
+    ImagePanel panel = new ImagePanel(album, viewModel);
+    panel.setSize(100, 100);
+
+    BufferedImage canvas = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+    long deadline = System.currentTimeMillis() + 10000;
+    for (int i = 0; i < 20 || attempts.get() == 0 && System.currentTimeMillis() < deadline; ++i) {
+      Graphics graphics = canvas.getGraphics();
+      panel.paint(graphics);
+      graphics.dispose();
+      Thread.sleep(10);
+      // Let the panel hear about the tile
+      SwingUtilities.invokeAndWait(() -> { });
+    }
+
+    // The single tile was tried once, rather than once for every repaint
+    assertEquals(1, attempts.get());
+  }
+}
@@ -0,0 +1,116 @@
+package view;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import model.IImage;
+import model.PackedImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the tile pyramid splits each level into tiles, averages each level from the level
+ * below, and keeps the most recently used tiles within its memory budget.
+ */
+public class TilePyramidTest {
+  private static IImage randomImage(int width, int height) {
+    Random random = new Random(width * 31L + height);
+    int[] data = new int[width * height];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = random.nextInt(0x1000000);
+    }
+    return new PackedImage(width, height, data, "random");
+  }
+
+  @Test
+  public void testLevels() {
+    TilePyramid pyramid = new TilePyramid(randomImage(601, 300), 1 << 24);
+
+    assertEquals(3, pyramid.getLevels());
+    assertEquals(601, pyramid.getLevelWidth(0));
+    assertEquals(301, pyramid.getLevelWidth(1));
+    assertEquals(151, pyramid.getLevelWidth(2));
+    assertEquals(75, pyramid.getLevelHeight(2));
+    assertEquals(3, pyramid.getColumns(0));
+    assertEquals(2, pyramid.getRows(0));
+    assertEquals(2, pyramid.getColumns(1));
+    assertEquals(1, pyramid.getRows(1));
+    assertEquals(1, pyramid.getColumns(2));
+
+    assertEquals(1, new TilePyramid(randomImage(10, 10), 0).getLevels());
+  }
+
+  @Test
+  public void testTiles() {
+    IImage image = randomImage(601, 300);
+    TilePyramid pyramid = new TilePyramid(image, 1 << 24);
+
+    BufferedImage corner = pyramid.getTile(0, 2, 1);
+    assertEquals(89, corner.getWidth());
+    assertEquals(44, corner.getHeight());
+    assertEquals(image.getRgb(600, 299), corner.getRGB(88, 43) & 0xFFFFFF);
+    assertEquals(image.getRgb(512, 256), corner.getRGB(0, 0) & 0xFFFFFF);
+
+    // Each pixel of a level averages a 2x2 block of the level below
+    BufferedImage top = pyramid.getTile(2, 0, 0);
+    assertEquals(151, top.getWidth());
+    assertEquals(75, top.getHeight());
+    BufferedImage level1 = pyramid.getTile(1, 1, 0);
+    int[] block = {image.getRgb(516, 10), image.getRgb(517, 10), image.getRgb(516, 11),
+        image.getRgb(517, 11)};
+    for (int shift = 0; shift <= 16; shift += 8) {
+      int sum = 2;
+      for (int rgb : block) {
+        sum += (rgb >> shift) & 0xFF;
+      }
+      assertEquals(sum >> 2, (level1.getRGB(2, 5) >> shift) & 0xFF);
+    }
+
+    // The odd last column is averaged with itself
+    int last = image.getRgb(600, 0);
+    int below = image.getRgb(600, 1);
+    assertEquals((((last & 0xFF) * 2 + (below & 0xFF) * 2 + 2) >> 2),
+            level1.getRGB(44, 0) & 0xFF);
+
+    assertSame(top, pyramid.getCachedTile(2, 0, 0));
+    assertSame(corner, pyramid.getTile(0, 2, 1));
+  }
+
+  @Test
+  public void testEviction() {
+    // Room for two full tiles
+    long tileBytes = 4L * TilePyramid.TILE_SIZE * TilePyramid.TILE_SIZE;
+    TilePyramid pyramid = new TilePyramid(randomImage(1024, 256), 2 * tileBytes);
+
+    BufferedImage first = pyramid.getTile(0, 0, 0);
+    pyramid.getTile(0, 1, 0);
+    pyramid.getCachedTile(0, 0, 0);
+    pyramid.getTile(0, 2, 0);
+
+    assertSame(first, pyramid.getCachedTile(0, 0, 0));
+    assertNull(pyramid.getCachedTile(0, 1, 0));
+    assertNotNull(pyramid.getCachedTile(0, 2, 0));
+    assertEquals(2 * tileBytes, pyramid.getUsedBytes());
+
+    // Building a coarser tile needs more tiles than fit, but the budget still holds
+    pyramid.getTile(2, 0, 0);
+    assertTrue(pyramid.getUsedBytes() <= 2 * tileBytes);
+    assertNotNull(pyramid.getCachedTile(2, 0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidTile() {
+    new TilePyramid(randomImage(300, 10), 0).getTile(0, 2, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    new TilePyramid(randomImage(10, 10), -1);
+  }
+}
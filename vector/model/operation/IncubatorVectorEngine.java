@@ -0,0 +1,46 @@
+package model.operation;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@code VectorEngine} built on {@code jdk.incubator.vector}. Pixels are processed in lanes
+ * of the widest double vector the hardware supports. No fused multiply-adds are used, so each
+ * lane rounds exactly as the scalar loops do.
+ *
+ * <p>This source root must be compiled and run with {@code --add-modules jdk.incubator.vector}.
+ */
+final class IncubatorVectorEngine implements VectorEngine {
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+  IncubatorVectorEngine() {
+    // Loaded reflectively by VectorEngine
+  }
+
+  @Override
+  public void convolve(double[][] weights, double[][] rows, double[] dst, int length) {
+    // Each tap is added to every sum before the next, which keeps each sum in the same order
+    // and lets every step be a simple loop over the rows
+    Arrays.fill(dst, 0, length, 0);
+    int upper = DOUBLES.loopBound(length);
+
+    for (int i = 0; i < weights.length; ++i) {
+      double[] row = rows[i];
+      for (int j = 0; j < weights[i].length; ++j) {
+        double weight = weights[i][j];
+
+        int x = 0;
+        for (; x < upper; x += DOUBLES.length()) {
+          DoubleVector.fromArray(DOUBLES, row, x + j).mul(weight)
+                  .add(DoubleVector.fromArray(DOUBLES, dst, x))
+                  .intoArray(dst, x);
+        }
+        for (; x < length; ++x) {
+          dst[x] += row[x + j] * weight;
+        }
+      }
+    }
+  }
+}